@@ -0,0 +1,201 @@
+package main;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.deckfour.xes.model.XLog;
+
+import main.algorithms.MiningAlgorithmSelector;
+import main.cache.ResultCache;
+import main.comparison.AlgorithmResult;
+import main.comparison.ComparisonPipeline;
+import main.comparison.ComparisonScheduler;
+import main.conformance.AlignmentBackend;
+import main.log.CompactLog;
+import main.model.AcceptingPetriNet;
+import main.utils.Utils;
+
+/**
+ * Headless entry point that runs the algorithm comparison over every model in a directory.
+ * For each .pnml file a log is generated and all mining algorithms are run against it;
+ * one CSV row per model and algorithm is written to the output file.
+ *
+ * Usage: BenchmarkRunner &lt;input dir&gt; &lt;output.csv&gt; [traces] [max trace length] [parallelism] [remove silent]
+ * [prom|native] [warmup runs] [measured runs] [cache dir]
+ */
+public class BenchmarkRunner {
+
+	private static final String[] HEADER = { "model", "algorithm", "reduced", "traces", "variants",
+			"log_generation_ms", "execution_time_ms", "execution_time_p90_ms", "execution_time_stddev_ms", "places",
+			"transitions", "arcs", "fitness", "precision", "f_measure", "degraded_traces", "soundness", "cpu_ms", "allocated_mb",
+			"gc_count", "gc_ms", "peak_heap_mb", "cached", "error" };
+
+	private AlignmentBackend alignmentBackend = AlignmentBackend.PROM_ILP;
+	private int warmupRuns = 0;
+	private int measuredRuns = 1;
+	private ResultCache cache;
+
+	public static void main(String[] args) throws Exception {
+		if (args.length < 2) {
+			System.err.println("Usage: BenchmarkRunner <input dir> <output.csv> [traces] [max trace length] "
+					+ "[parallelism] [remove silent] [prom|native] [warmup runs] [measured runs] [cache dir]");
+			System.exit(2);
+		}
+
+		File inputDir = new File(args[0]);
+		File outputFile = new File(args[1]);
+		int numberOfTraces = args.length > 2 ? Utils.parseIntWithDefault(args[2], 100) : 100;
+		int maxTraceLength = args.length > 3 ? Utils.parseIntWithDefault(args[3], 50) : 50;
+		int parallelism = args.length > 4 ? Utils.parseIntWithDefault(args[4], ComparisonScheduler.defaultParallelism())
+				: ComparisonScheduler.defaultParallelism();
+		boolean removeSilent = args.length > 5 && Boolean.parseBoolean(args[5]);
+		AlignmentBackend backend = args.length > 6 && "native".equalsIgnoreCase(args[6]) ? AlignmentBackend.NATIVE
+				: AlignmentBackend.PROM_ILP;
+		int warmupRuns = args.length > 7 ? Utils.parseIntWithDefault(args[7], 0) : 0;
+		int measuredRuns = args.length > 8 ? Utils.parseIntWithDefault(args[8], 1) : 1;
+		// Results are only cached when a directory is given, so regular benchmark runs always measure
+		ResultCache cache = args.length > 9 ? new ResultCache(Paths.get(args[9]), ResultCache.DEFAULT_MAX_BYTES) : null;
+
+		if (!inputDir.isDirectory()) {
+			System.err.println("Not a directory: " + inputDir);
+			System.exit(2);
+		}
+
+		BenchmarkRunner runner = new BenchmarkRunner();
+		runner.setAlignmentBackend(backend);
+		runner.setRuns(warmupRuns, measuredRuns);
+		runner.setCache(cache);
+		runner.run(inputDir, outputFile, numberOfTraces, maxTraceLength, parallelism, removeSilent);
+		System.exit(0);
+	}
+
+	public void setAlignmentBackend(AlignmentBackend alignmentBackend) {
+		this.alignmentBackend = alignmentBackend;
+	}
+
+	public void setRuns(int warmupRuns, int measuredRuns) {
+		this.warmupRuns = warmupRuns;
+		this.measuredRuns = measuredRuns;
+	}
+
+	public void setCache(ResultCache cache) {
+		this.cache = cache;
+	}
+
+	public void run(File inputDir, File outputFile, int numberOfTraces, int maxTraceLength, int parallelism,
+			boolean removeSilent) throws IOException, InterruptedException {
+		List<File> models = findModels(inputDir);
+		System.out.println("[BENCHMARK] Found " + models.size() + " PNML files in " + inputDir);
+
+		PnmlToModelConverter converter = new PnmlToModelConverter();
+		ComparisonScheduler scheduler = new ComparisonScheduler(parallelism);
+		List<String> algorithms = MiningAlgorithmSelector.getAvailableAlgorithms();
+
+		try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(outputFile.toPath(), StandardCharsets.UTF_8))) {
+			out.println(String.join(",", HEADER));
+			out.flush();
+
+			for (File pnmlFile : models) {
+				String modelName = inputDir.toPath().relativize(pnmlFile.toPath()).toString();
+				System.out.println("[BENCHMARK] " + modelName);
+
+				XLog log;
+				CompactLog compactLog;
+				long generationTime;
+				try {
+					long startTime = System.currentTimeMillis();
+					AcceptingPetriNet model = converter.loadAcceptingPetriNetFromPnml(pnmlFile);
+					compactLog = converter.generateCompactLogFromPnml(model, numberOfTraces, maxTraceLength);
+					log = compactLog.toXLog();
+					generationTime = System.currentTimeMillis() - startTime;
+				} catch (Exception e) {
+					e.printStackTrace();
+					// Keep the model in the results so failures show up in the nightly report
+					for (String algorithmName : algorithms) {
+						AlgorithmResult failed = new AlgorithmResult(algorithmName);
+						failed.setError("Log generation failed: " + e.getMessage());
+						writeRow(out, modelName, failed, 0, 0, 0);
+					}
+					out.flush();
+					continue;
+				}
+
+				int traces = compactLog.getTraceCount();
+				int variants = compactLog.getVariantIndex().size();
+				ComparisonPipeline pipeline = new ComparisonPipeline(log, removeSilent);
+				pipeline.setCompactLog(compactLog);
+				pipeline.setAlignmentBackend(alignmentBackend);
+				pipeline.setRuns(warmupRuns, measuredRuns);
+				pipeline.setCache(cache);
+
+				scheduler.runAll(algorithms, pipeline, result -> {
+					writeRow(out, modelName, result, traces, variants, generationTime);
+					out.flush();
+				});
+			}
+		}
+
+		System.out.println("[BENCHMARK] Results written to " + outputFile.getAbsolutePath());
+	}
+
+	private List<File> findModels(File inputDir) throws IOException {
+		try (Stream<Path> paths = Files.walk(inputDir.toPath())) {
+			return paths.filter(Files::isRegularFile)
+					.filter(p -> p.getFileName().toString().toLowerCase().endsWith(".pnml"))
+					.sorted()
+					.map(Path::toFile)
+					.collect(Collectors.toList());
+		}
+	}
+
+	private void writeRow(PrintWriter out, String modelName, AlgorithmResult result, int traces, int variants,
+			long generationTime) {
+		List<String> row = new ArrayList<>();
+		row.add(csv(modelName));
+		row.add(csv(result.getAlgorithmName()));
+		row.add(String.valueOf(result.isReduced()));
+		row.add(String.valueOf(traces));
+		row.add(String.valueOf(variants));
+		row.add(String.valueOf(generationTime));
+		row.add(String.valueOf(result.getExecutionTime()));
+		row.add(String.valueOf(result.getP90Time()));
+		row.add(String.format(Locale.ROOT, "%.3f", result.getTimeStdDev()));
+		row.add(String.valueOf(result.getPlacesCount()));
+		row.add(String.valueOf(result.getTransitionsCount()));
+		row.add(String.valueOf(result.getArcsCount()));
+		row.add(metric(result.getFitness()));
+		row.add(metric(result.getPrecision()));
+		row.add(metric(result.getFMeasure()));
+		row.add(String.valueOf(result.getDegradedTraces()));
+		row.add(csv(result.getSoundness()));
+		row.add(String.valueOf(result.getCpuTime()));
+		row.add(String.valueOf(result.getAllocatedMb()));
+		row.add(String.valueOf(result.getGcCount()));
+		row.add(String.valueOf(result.getGcTime()));
+		row.add(String.valueOf(result.getPeakHeapMb()));
+		row.add(csv(result.getCachedStages()));
+		row.add(csv(result.getError() != null ? result.getError() : ""));
+		out.println(String.join(",", row));
+	}
+
+	private String metric(double value) {
+		return Double.isNaN(value) ? "" : String.format(Locale.ROOT, "%.6f", value);
+	}
+
+	private String csv(String value) {
+		if (value.contains(",") || value.contains("\"") || value.contains("\n")) {
+			return "\"" + value.replace("\"", "\"\"") + "\"";
+		}
+		return value;
+	}
+}
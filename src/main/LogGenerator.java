@@ -0,0 +1,58 @@
+package main;
+
+import java.io.File;
+
+import main.model.AcceptingPetriNet;
+import main.simulation.ShardedSimulator;
+import main.simulation.SimulationBackend;
+import main.simulation.TraceLengthPolicy;
+import main.utils.Utils;
+
+/**
+ * Headless entry point that simulates a model straight into an XES file. Traces are written as they are
+ * simulated, so logs of any size can be generated with constant memory. The output is gzip compressed when
+ * its name ends with .gz.
+ *
+ * Usage: LogGenerator &lt;model.pnml&gt; &lt;output.xes[.gz]&gt; [traces] [max trace length] [seed] [parallelism]
+ * [native|prom] [truncate|retry]
+ */
+public class LogGenerator {
+
+	public static void main(String[] args) throws Exception {
+		if (args.length < 2) {
+			System.err.println("Usage: LogGenerator <model.pnml> <output.xes[.gz]> [traces] [max trace length] "
+					+ "[seed] [parallelism] [native|prom] [truncate|retry]");
+			System.exit(2);
+		}
+
+		File pnmlFile = new File(args[0]);
+		File outputFile = new File(args[1]);
+		int numberOfTraces = args.length > 2 ? Utils.parseIntWithDefault(args[2], 1000) : 1000;
+		int maxTraceLength = args.length > 3 ? Utils.parseIntWithDefault(args[3], 50) : 50;
+		long seed = args.length > 4 ? Long.parseLong(args[4]) : ShardedSimulator.DEFAULT_SEED;
+		int parallelism = args.length > 5 ? Utils.parseIntWithDefault(args[5], Runtime.getRuntime().availableProcessors())
+				: Runtime.getRuntime().availableProcessors();
+		SimulationBackend backend = args.length > 6 && "prom".equalsIgnoreCase(args[6]) ? SimulationBackend.PROM
+				: SimulationBackend.NATIVE;
+		TraceLengthPolicy policy = args.length > 7 && "retry".equalsIgnoreCase(args[7]) ? TraceLengthPolicy.RETRY
+				: TraceLengthPolicy.TRUNCATE;
+
+		if (!pnmlFile.isFile()) {
+			System.err.println("Not a file: " + pnmlFile);
+			System.exit(2);
+		}
+
+		PnmlToModelConverter converter = new PnmlToModelConverter();
+		converter.setSimulationSeed(seed);
+		converter.setSimulationParallelism(parallelism);
+		converter.setSimulationBackend(backend);
+		converter.setTraceLengthPolicy(policy);
+		AcceptingPetriNet model = converter.loadAcceptingPetriNetFromPnml(pnmlFile);
+
+		long start = System.nanoTime();
+		long written = converter.generateLogToXes(model, numberOfTraces, maxTraceLength, outputFile);
+		long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+		System.out.println("[GENERATOR] Wrote " + written + " traces to " + outputFile + " in " + elapsedMs + " ms");
+		System.exit(0);
+	}
+}
@@ -3,11 +3,8 @@ package main;
 import org.processmining.contexts.uitopia.UIContext;
 import org.processmining.contexts.uitopia.UIPluginContext;
 import org.processmining.models.graphbased.directed.petrinet.Petrinet;
-import org.processmining.models.graphbased.directed.petrinet.impl.PetrinetImpl;
-import org.processmining.models.graphbased.directed.petrinet.elements.Place;
-import org.processmining.models.graphbased.directed.petrinet.elements.Transition;
+import org.processmining.models.graphbased.directed.petrinet.StochasticNet;
 import org.deckfour.xes.model.XLog;
-import org.deckfour.xes.model.XTrace;
 import org.deckfour.xes.factory.XFactory;
 import org.deckfour.xes.factory.XFactoryRegistry;
 import org.deckfour.xes.in.XMxmlParser;
@@ -15,16 +12,20 @@ import org.deckfour.xes.in.XesXmlParser;
 import main.algorithms.MiningAlgorithm;
 import main.algorithms.MiningAlgorithmSelector;
 import java.io.File;
-import java.util.HashMap;
+import java.io.IOException;
+import java.util.List;
 import java.util.Map;
-import java.io.BufferedReader;
-import java.io.FileReader;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.function.DoubleConsumer;
 import org.processmining.plugins.stochasticpetrinet.simulator.PNSimulator;
-import org.processmining.plugins.stochasticpetrinet.simulator.PNSimulatorConfig;
-import org.processmining.models.semantics.petrinet.Marking;
-import org.processmining.plugins.stochasticpetrinet.StochasticNetUtils;
+import main.conformance.CompiledNet;
+import main.io.PnmlReader;
+import main.io.XesReader;
+import main.io.XesStreamWriter;
+import main.log.CompactLog;
+import main.model.AcceptingPetriNet;
+import main.simulation.ShardedSimulator;
+import main.simulation.SimulationBackend;
+import main.simulation.TraceLengthPolicy;
 import main.utils.Utils;
 
 /**
@@ -32,167 +33,185 @@ import main.utils.Utils;
  */
 public class PnmlToModelConverter {
 
-	public Petrinet loadPetriNetFromPnml(File pnmlFile) throws Exception {
-		PetrinetImpl net = new PetrinetImpl(pnmlFile.getName());
-		Map<String, Place> places = new HashMap<>();
-		Map<String, Transition> transitions = new HashMap<>();
-
-		try (BufferedReader reader = new BufferedReader(new FileReader(pnmlFile))) {
-			String line;
-			while ((line = reader.readLine()) != null) {
-				line = line.trim();
-
-				// Parse places
-				if (line.contains("<place id=\"")) {
-					String id = extractAttribute(line, "id");
-					String name = extractName(reader);
-					Place p = net.addPlace(name != null ? name : id);
-					places.put(id, p);
-				}
-				// Parse transitions
-				else if (line.contains("<transition id=\"")) {
-					String id = extractAttribute(line, "id");
-					String name = extractName(reader);
-					Transition t = net.addTransition(name != null ? name : id);
-					transitions.put(id, t);
-				}
-				// Parse arcs
-				else if (line.contains("<arc ")) {
-					String source = extractAttribute(line, "source");
-					String target = extractAttribute(line, "target");
-
-					if (places.containsKey(source) && transitions.containsKey(target)) {
-						net.addArc(places.get(source), transitions.get(target));
-					} else if (transitions.containsKey(source) && places.containsKey(target)) {
-						net.addArc(transitions.get(source), places.get(target));
-					}
-				}
-			}
+	// Steps after which the simulator gives up on a trace, the default of the plugin
+	private static final int MAX_SIMULATED_EVENTS = 10000;
 
-			System.out.println("Loaded Petri net with:");
-			System.out.println("- Places: " + places.size());
-			System.out.println("- Transitions: " + transitions.size());
-			return net;
-		} catch (Exception e) {
-			throw new Exception("Failed to parse PNML file: " + e.getMessage(), e);
-		}
+	private long simulationSeed = ShardedSimulator.DEFAULT_SEED;
+	private int simulationParallelism = Runtime.getRuntime().availableProcessors();
+	private SimulationBackend simulationBackend = SimulationBackend.NATIVE;
+	private TraceLengthPolicy traceLengthPolicy = TraceLengthPolicy.TRUNCATE;
+	private int importParallelism = Runtime.getRuntime().availableProcessors();
+
+	/**
+	 * Master seed of the log simulation; the same seed gives the same log.
+	 */
+	public void setSimulationSeed(long simulationSeed) {
+		this.simulationSeed = simulationSeed;
 	}
 
-	private String extractAttribute(String line, String attrName) {
-		Pattern pattern = Pattern.compile(attrName + "=\"([^\"]+)\"");
-		Matcher matcher = pattern.matcher(line);
-		return matcher.find() ? matcher.group(1) : null;
+	/**
+	 * Threads of the log simulation; the log is the same for a given seed however many threads are used.
+	 */
+	public void setSimulationParallelism(int simulationParallelism) {
+		this.simulationParallelism = simulationParallelism;
 	}
 
-	private String extractName(BufferedReader reader) throws Exception {
-		String line;
-		while ((line = reader.readLine()) != null) {
-			line = line.trim();
-			if (line.contains("<text>")) {
-				return line.replace("<text>", "").replace("</text>", "").trim();
-			} else if (line.contains("</name>")) {
-				break;
-			}
+	/**
+	 * Engine used to generate logs. Stochastic nets with timing information are always simulated by ProM,
+	 * which samples their durations.
+	 */
+	public void setSimulationBackend(SimulationBackend simulationBackend) {
+		this.simulationBackend = simulationBackend;
+	}
+
+	/**
+	 * Threads that parse large XES files on import.
+	 */
+	public void setImportParallelism(int importParallelism) {
+		this.importParallelism = importParallelism;
+	}
+
+	/**
+	 * Whether traces reaching the maximum trace length are cut off or simulated again.
+	 */
+	public void setTraceLengthPolicy(TraceLengthPolicy traceLengthPolicy) {
+		this.traceLengthPolicy = traceLengthPolicy;
+	}
+
+	private boolean useNativeSimulator(Petrinet model) {
+		return simulationBackend == SimulationBackend.NATIVE && !(model instanceof StochasticNet
+				&& PNSimulator.transitionsContainTimingInfo(model.getTransitions()));
+	}
+
+	public Petrinet loadPetriNetFromPnml(File pnmlFile) throws Exception {
+		return loadAcceptingPetriNetFromPnml(pnmlFile).getNet();
+	}
+
+	/**
+	 * Loads the net with the initial and final marking of the file; markings the file does not give are the
+	 * source and sink places of the net.
+	 */
+	public AcceptingPetriNet loadAcceptingPetriNetFromPnml(File pnmlFile) throws Exception {
+		try {
+			AcceptingPetriNet model = new PnmlReader().read(pnmlFile);
+
+			System.out.println("Loaded Petri net with:");
+			System.out.println("- Places: " + model.getNet().getPlaces().size());
+			System.out.println("- Transitions: " + model.getNet().getTransitions().size());
+			return model;
+		} catch (Exception e) {
+			throw new Exception("Failed to parse PNML file: " + e.getMessage(), e);
 		}
-		return null;
 	}
 
-	public XLog generateLogFromPnml(Petrinet model, File pnmlFile, int numberOfTraces, int maxTraceLength)
+	/**
+	 * Simulates the model from its initial marking; traces end when they reach its final marking.
+	 */
+	public XLog generateLogFromPnml(AcceptingPetriNet model, int numberOfTraces, int maxTraceLength)
 			throws Exception {
-		UIPluginContext context = new UIContext().getMainPluginContext();
-		Marking initialMarking = parseInitialMarking(pnmlFile, model);
+		if (useNativeSimulator(model.getNet())) {
+			return generateCompactLogFromPnml(model, numberOfTraces, maxTraceLength).toXLog();
+		}
 
-		return simulateWithStochasticPlugin(context, model, initialMarking, numberOfTraces, maxTraceLength); // stochastic
-																												// plugin
-																												// simulation
+		return simulateWithStochasticPlugin(model, numberOfTraces, maxTraceLength);
 	}
 	
+	/**
+	 * Simulates the model like {@link #generateLogFromPnml(AcceptingPetriNet, int, int)} and returns the log in
+	 * compact form. The built-in simulator produces it directly; logs of the ProM simulator are converted.
+	 */
+	public CompactLog generateCompactLogFromPnml(AcceptingPetriNet model, int numberOfTraces, int maxTraceLength)
+			throws Exception {
+		if (useNativeSimulator(model.getNet())) {
+			CompactLog.Builder log = new CompactLog.Builder(simulatedLogName(model.getNet()), true);
+			createShardedSimulator(maxTraceLength).simulate(compile(model), numberOfTraces, MAX_SIMULATED_EVENTS,
+					true, log::append);
+			return log.build();
+		}
+		return CompactLog.fromXLog(generateLogFromPnml(model, numberOfTraces, maxTraceLength));
+	}
+
 	/**
 	 * Simulates the given Petri net model using the Stochastic Petri Net plugin to generate an event log.
+	 * The traces are simulated in shards on {@link #setSimulationParallelism(int)} threads.
 	 *
-	 * @param context         The UI plugin context.
-	 * @param model           The Petri net model to simulate.
-	 * @param initialMarking  The initial marking for the simulation.
+	 * @param model           The Petri net model to simulate, with its markings.
 	 * @param numberOfTraces  The number of traces to generate.
 	 * @param maxTraceLength  The maximum length of each trace.
 	 * @return The generated event log as an XLog object.
 	 * @throws Exception If the simulation fails.
 	 */
-	private XLog simulateWithStochasticPlugin(UIPluginContext context, Petrinet model, Marking initialMarking,
-			int numberOfTraces, int maxTraceLength) throws Exception {
+	private XLog simulateWithStochasticPlugin(AcceptingPetriNet model, int numberOfTraces, int maxTraceLength)
+			throws Exception {
 		try {
-			PNSimulator simulator = new PNSimulator();
-			PNSimulatorConfig config = new PNSimulatorConfig(numberOfTraces);
-
-			// Get markings with non-lambda approach
-			Marking finalMarking = StochasticNetUtils.getFinalMarking(context, model);
-			if (finalMarking == null) {
-				finalMarking = new Marking();
-			}
-
-			Marking initialMarking2 = StochasticNetUtils.getInitialMarking(context, model);
-			if (initialMarking2 == null) {
-				initialMarking2 = detectInitialMarking(model);
-			}
-
-			// Debug output
-			System.out.println("Initial marking places:");
-			for (Place p : initialMarking2.baseSet()) {
-				System.out.println("- " + p.getLabel() + ": " + initialMarking2.occurrences(p));
-			}
+			return createShardedSimulator(maxTraceLength).simulate(model.getNet(), model.getInitialMarking(), model.getFinalMarking(),
+					numberOfTraces, MAX_SIMULATED_EVENTS);
+		} catch (Exception e) {
+			throw new Exception("Stochastic simulation failed: " + e.getMessage(), e);
+		}
+	}
 
-			XLog log = simulator.simulate(context, model, StochasticNetUtils.getSemantics(model), config,
-					initialMarking2, finalMarking);
+	/**
+	 * Simulates the model like {@link #generateLogFromPnml(AcceptingPetriNet, int, int)} but writes every trace to
+	 * the XES file as soon as it is simulated instead of building the log in memory, so memory use does not
+	 * depend on the number of traces. The file is gzip compressed when its name ends with .gz.
+	 *
+	 * @return The number of traces written.
+	 */
+	public long generateLogToXes(AcceptingPetriNet model, int numberOfTraces, int maxTraceLength, File output)
+			throws Exception {
+		if (useNativeSimulator(model.getNet())) {
+			return generateLogToXesNative(model, numberOfTraces, maxTraceLength, output);
+		}
 
-			return limitTraceLengths(log, maxTraceLength);
+		try (XesStreamWriter writer = XesStreamWriter.open(output)) {
+			writer.writeHeader(XesStreamWriter.createHeader(simulatedLogName(model.getNet())));
+			createShardedSimulator(maxTraceLength).simulate(model.getNet(), model.getInitialMarking(), model.getFinalMarking(), numberOfTraces,
+					MAX_SIMULATED_EVENTS, writer::write);
+			return writer.getTraceCount();
 		} catch (Exception e) {
 			throw new Exception("Stochastic simulation failed: " + e.getMessage(), e);
 		}
 	}
 
-	private XLog limitTraceLengths(XLog log, int maxLength) {
+	/**
+	 * Streams the traces of the built-in simulator to the file, one shard at a time.
+	 */
+	private long generateLogToXesNative(AcceptingPetriNet model, int numberOfTraces, int maxTraceLength,
+			File output) throws Exception {
 		XFactory factory = XFactoryRegistry.instance().currentDefault();
-		XLog limitedLog = factory.createLog(log.getAttributes());
-
-		for (XTrace trace : log) {
-			if (trace.size() <= maxLength) {
-				limitedLog.add(trace);
-			} else {
-				XTrace shortened = factory.createTrace(trace.getAttributes());
-				for (int i = 0; i < maxLength && i < trace.size(); i++) {
-					shortened.add(trace.get(i));
-				}
-				limitedLog.add(shortened);
-			}
+		try (XesStreamWriter writer = XesStreamWriter.open(output)) {
+			writer.writeHeader(XesStreamWriter.createHeader(simulatedLogName(model.getNet())));
+			createShardedSimulator(maxTraceLength).simulate(compile(model), numberOfTraces, MAX_SIMULATED_EVENTS,
+					true, shard -> {
+						for (int t = 0; t < shard.getTraceCount(); t++) {
+							writer.write(shard.toXTrace(t, String.valueOf(writer.getTraceCount()), factory));
+						}
+					});
+			return writer.getTraceCount();
 		}
-		return limitedLog;
 	}
 
-	// Helper method to detect initial marking from net structure
-	private Marking detectInitialMarking(Petrinet net) {
-		Marking marking = new Marking();
+	private ShardedSimulator createShardedSimulator(int maxTraceLength) {
+		ShardedSimulator simulator = new ShardedSimulator(simulationParallelism);
+		simulator.setMasterSeed(simulationSeed);
+		simulator.setMaxTraceLength(maxTraceLength, traceLengthPolicy);
+		return simulator;
+	}
 
-		// Iterate through all places in the net
-		for (Place place : net.getPlaces()) {
-			// Check if this place has no incoming edges (source place)
-			if (net.getInEdges(place).isEmpty()) {
-				// Add one token to this place
-				marking.add(place, 1);
-			}
-		}
-		return marking;
+	private static CompiledNet compile(AcceptingPetriNet model) {
+		return CompiledNet.compile(model.getNet(), model.getInitialMarking(), model.getFinalMarking());
 	}
 
-	private Marking parseInitialMarking(File pnmlFile, Petrinet net) throws Exception {
-		Marking marking = new Marking();
-		return marking;
+	private static String simulatedLogName(Petrinet model) {
+		return "Simulated log (from " + model.getLabel() + ")";
 	}
 
 	public String generateModelStatistics(XLog eventLog, String algorithmName) throws Exception {
 		UIPluginContext context = createPluginContext();
 		MiningAlgorithm algorithm = MiningAlgorithmSelector.getAlgorithm(algorithmName);
 
-		Petrinet petriNet = algorithm.mine(context, eventLog);
+		Petrinet petriNet = algorithm.mine(context, eventLog).getNet();
 		return formatModelReport(petriNet, algorithmName);
 	}
 
@@ -225,7 +244,7 @@ public class PnmlToModelConverter {
 		return null; // If parsing fails
 	}
 
-	public Petrinet mineModelFromLog(XLog log, String algorithmName) throws Exception {
+	public AcceptingPetriNet mineModelFromLog(XLog log, String algorithmName) throws Exception {
 		UIPluginContext context = new UIContext().getMainPluginContext();
 		MiningAlgorithm algorithm = MiningAlgorithmSelector.getAlgorithm(algorithmName);
 		return algorithm.mine(context, log);
@@ -269,6 +288,35 @@ public class PnmlToModelConverter {
 	    return sb.toString();
 	}
 
+	/**
+	 * Imports an XES log, optionally gzip compressed, straight into a compact log. The classifier is the name of a
+	 * classifier declared in the log or a list of attribute keys, null for concept:name; progress, if given, is
+	 * called with the fraction of the file read so far. Large uncompressed files are parsed in parts on
+	 * {@link #setImportParallelism(int)} threads.
+	 */
+	public CompactLog importCompactXesLog(File xesFile, String classifier, DoubleConsumer progress) throws IOException {
+		XesReader reader = new XesReader();
+		reader.setClassifier(classifier);
+		reader.setProgressListener(progress);
+		reader.setParallelism(importParallelism);
+		return reader.read(xesFile);
+	}
+
+	/**
+	 * Classifiers declared in the header of an XES log, by name, with their attribute keys.
+	 */
+	public Map<String, List<String>> readXesClassifiers(File xesFile) throws IOException {
+		return new XesReader().readClassifiers(xesFile);
+	}
+
+	/**
+	 * OpenXES view of a compact log for the mining plugins. Events are named by their activity under the classifier
+	 * the log was imported with and carry only their timestamp besides, so the view stays small.
+	 */
+	public XLog toMiningLog(CompactLog log) {
+		return log.toXLog();
+	}
+
 	public XLog importXesLog(File xesFile) throws Exception {
 		XesXmlParser parser = new XesXmlParser();
 		if (parser.canParse(xesFile)) {
@@ -278,13 +326,4 @@ public class PnmlToModelConverter {
 		}
 
 	}
-	
-	public String getEventName(org.deckfour.xes.model.XEvent event) {
-	    try {
-	        org.deckfour.xes.model.XAttribute attribute = event.getAttributes().get("concept:name");
-	        return attribute != null ? attribute.toString() : null;
-	    } catch (Exception e) {
-	        return null;
-	    }
-	}
 }
\ No newline at end of file
@@ -12,8 +12,10 @@ import org.processmining.plugins.etm.parameters.ETMParam;
 import org.processmining.plugins.etm.parameters.ETMParamFactory;
 import org.processmining.processtree.ProcessTree;
 import org.processmining.processtree.conversion.ProcessTree2Petrinet;
+import org.processmining.processtree.conversion.ProcessTree2Petrinet.PetrinetWithMarkings;
 import org.processmining.models.graphbased.directed.petrinet.elements.Place;
 import main.controller.settings.ETMParameterStorage;
+import main.model.AcceptingPetriNet;
 import java.lang.reflect.Field;
 import java.util.ArrayList;
 import java.util.Collection;
@@ -128,7 +130,7 @@ public class EvolutionaryTreeMinerAlgorithm implements MiningAlgorithm {
 
 
 	@Override
-	public Petrinet mine(UIPluginContext context, XLog log) throws Exception {
+	public AcceptingPetriNet mine(UIPluginContext context, XLog log) throws Exception {
 
 		ETMParam currentParameters = createMiningParameters(log, context);
 
@@ -153,12 +155,12 @@ public class EvolutionaryTreeMinerAlgorithm implements MiningAlgorithm {
 					currentParameters.getCentralRegistry().getEventClasses(), resultTree, "Discovered Process Tree");
 
 			// Convert to Petri net
-			Petrinet net = ProcessTree2Petrinet.convert(processTree).petrinet;
+			PetrinetWithMarkings conversionResult = ProcessTree2Petrinet.convert(processTree);
 
-			// Post-processing
-			net = postProcessNet(net);
+			// Post-processing only merges transitions and adds arcs, so the places of the markings remain
+			Petrinet net = postProcessNet(conversionResult.petrinet);
 
-			return net;
+			return new AcceptingPetriNet(net, conversionResult.initialMarking, conversionResult.finalMarking);
 
 		} catch (Exception e) {
 			throw new Exception("Evolutionary mining failed: " + e.getMessage(), e);
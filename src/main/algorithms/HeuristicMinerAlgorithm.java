@@ -11,6 +11,9 @@ import org.processmining.plugins.heuristicsnet.miner.heuristics.miner.Heuristics
 import org.processmining.plugins.heuristicsnet.miner.heuristics.miner.settings.HeuristicsMinerSettings;
 import org.processmining.plugins.heuristicsnet.miner.heuristics.converter.HeuristicsNetToPetriNetConverter;
 import org.processmining.models.heuristics.HeuristicsNet;
+import org.processmining.models.semantics.petrinet.Marking;
+
+import main.model.AcceptingPetriNet;
 
 public class HeuristicMinerAlgorithm implements MiningAlgorithm {
 
@@ -65,7 +68,7 @@ public class HeuristicMinerAlgorithm implements MiningAlgorithm {
 	}
 
 	@Override
-	public Petrinet mine(UIPluginContext context, XLog log) throws Exception {
+	public AcceptingPetriNet mine(UIPluginContext context, XLog log) throws Exception {
 		// Basic validation
 		if (log == null)
 			throw new IllegalArgumentException("Event log cannot be null");
@@ -82,10 +85,8 @@ public class HeuristicMinerAlgorithm implements MiningAlgorithm {
 				throw new Exception("Failed to create event classes for the log");
 			}
 
-			// 3. Configure settings with the classifier
-			HeuristicsMinerSettings settings = new HeuristicsMinerSettings();
+			// 3. Use the stored settings with the classifier
 			settings.setClassifier(classifier);
-			configureGatewaySettings(settings);
 
 			// 4. Run Heuristics Miner with all required parameters
 			HeuristicsMiner miner = new HeuristicsMiner(context, log, logInfo, settings);
@@ -96,7 +97,7 @@ public class HeuristicMinerAlgorithm implements MiningAlgorithm {
 			}
 
             // 5. Convert to Petri net
-            Petrinet net = convertHeuristicsNetToPetriNet(context, heuristicsNet);
+            AcceptingPetriNet net = convertHeuristicsNetToPetriNet(context, heuristicsNet);
             
             // 6. Return the Petri net
             return net;
@@ -106,15 +107,10 @@ public class HeuristicMinerAlgorithm implements MiningAlgorithm {
 		}
 	}
 
-	private void configureGatewaySettings(HeuristicsMinerSettings settings) {
-		settings.setDependencyThreshold(0.9);
-		settings.setAndThreshold(0.65);
-		settings.setL2lThreshold(0.85);
-		settings.setUseAllConnectedHeuristics(true);
-		settings.setRelativeToBestThreshold(0.2);
-	}
-
-	private Petrinet convertHeuristicsNetToPetriNet(UIPluginContext context, HeuristicsNet heuristicsNet)
+	/**
+	 * The converter returns the net and its initial marking; the final marking is taken from the sink places.
+	 */
+	private AcceptingPetriNet convertHeuristicsNetToPetriNet(UIPluginContext context, HeuristicsNet heuristicsNet)
 			throws Exception {
 		Object[] result = HeuristicsNetToPetriNetConverter.converter(context, heuristicsNet);
 
@@ -122,7 +118,8 @@ public class HeuristicMinerAlgorithm implements MiningAlgorithm {
 			throw new Exception("Conversion to Petri net failed");
 		}
 
-		return (Petrinet) result[0];
+		Marking initialMarking = result.length > 1 && result[1] instanceof Marking ? (Marking) result[1] : null;
+		return new AcceptingPetriNet((Petrinet) result[0], initialMarking, null);
 	}
 
 }
\ No newline at end of file
@@ -13,6 +13,8 @@ import org.processmining.processtree.ProcessTree;
 import org.processmining.processtree.conversion.ProcessTree2Petrinet;
 import org.processmining.processtree.conversion.ProcessTree2Petrinet.PetrinetWithMarkings;
 
+import main.model.AcceptingPetriNet;
+
 public class InductiveMinerAlgorithm implements MiningAlgorithm {
 	private MiningParameters parameters;
 	private UIPluginContext context;
@@ -56,7 +58,7 @@ public class InductiveMinerAlgorithm implements MiningAlgorithm {
 	}
 
 	@Override
-	public Petrinet mine(UIPluginContext context, XLog log) throws Exception {
+	public AcceptingPetriNet mine(UIPluginContext context, XLog log) throws Exception {
 		if (log == null || log.isEmpty()) {
 			throw new IllegalArgumentException("Event log cannot be null or empty");
 		}
@@ -93,7 +95,7 @@ public class InductiveMinerAlgorithm implements MiningAlgorithm {
 			System.out.println("Mined Petri net with: " + net.getPlaces().size() + " places, "
 					+ net.getTransitions().size() + " transitions, " + net.getEdges().size() + " arcs");
 
-			return net;
+			return new AcceptingPetriNet(net, conversionResult.initialMarking, conversionResult.finalMarking);
 		} catch (Exception e) {
 			context.log("Inductive Miner failed: " + e.getMessage());
 			throw new Exception("Inductive Miner failed: " + e.getMessage(), e);
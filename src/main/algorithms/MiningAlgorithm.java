@@ -2,13 +2,17 @@ package main.algorithms;
 
 import org.deckfour.xes.model.XLog;
 import org.processmining.contexts.uitopia.UIPluginContext;
-import org.processmining.models.graphbased.directed.petrinet.Petrinet;
+
+import main.model.AcceptingPetriNet;
 
 /**
  * Interface for mining algorithms to ensure consistency and interoperability.
  */
 public interface MiningAlgorithm {
-	Petrinet mine(UIPluginContext context, XLog log) throws Exception;
+	/**
+	 * Mines a model from the log and returns it with the markings the miner produced.
+	 */
+	AcceptingPetriNet mine(UIPluginContext context, XLog log) throws Exception;
 
 	String getAlgorithmName();
 
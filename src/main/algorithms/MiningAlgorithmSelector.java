@@ -15,7 +15,7 @@ import main.controller.settings.ETMParameterStorage;
 public class MiningAlgorithmSelector {
 	private static Map<String, MiningAlgorithm> algorithmInstances = new HashMap<>();
 
-	public static MiningAlgorithm getAlgorithm(String algorithmName) {
+	public static synchronized MiningAlgorithm getAlgorithm(String algorithmName) {
 		// Return existing instance if available
 		if (algorithmInstances.containsKey(algorithmName)) {
 			MiningAlgorithm algo = algorithmInstances.get(algorithmName);
@@ -26,30 +26,33 @@ public class MiningAlgorithmSelector {
 		}
 
 		// Create new instance if needed
-		MiningAlgorithm algorithm;
+		MiningAlgorithm algorithm = createAlgorithm(algorithmName);
+
+		System.out.println(
+				"[ALGORITHM SELECTOR] Created new " + algorithmName + " instance: " + System.identityHashCode(algorithm));
+		algorithmInstances.put(algorithmName, algorithm);
+		printCurrentParameters(algorithm);
+		return algorithm;
+		
+	}
+
+	/**
+	 * Creates a new instance with default parameters, independent of the shared instance
+	 * returned by {@link #getAlgorithm(String)}. Used where runs must not share parameters, like sweeps.
+	 */
+	public static MiningAlgorithm createAlgorithm(String algorithmName) {
 		switch (algorithmName) {
 		case "Inductive Miner":
-			algorithm = new InductiveMinerAlgorithm();
-			break;
+			return new InductiveMinerAlgorithm();
 		case "Evolutionary Tree Miner":
-			algorithm = new EvolutionaryTreeMinerAlgorithm();
-			break;
+			return new EvolutionaryTreeMinerAlgorithm();
 		case "Split Miner":
-			algorithm = new SplitMinerAlgorithm();
-			break;
+			return new SplitMinerAlgorithm();
 		case "Heuristics Miner":
-			algorithm = new HeuristicMinerAlgorithm();
-			break;
+			return new HeuristicMinerAlgorithm();
 		default:
 			throw new IllegalArgumentException("Unknown algorithm: " + algorithmName);
 		}
-
-		System.out.println(
-				"[ALGORITHM SELECTOR] Created new " + algorithmName + " instance: " + System.identityHashCode(algorithm));
-		algorithmInstances.put(algorithmName, algorithm);
-		printCurrentParameters(algorithm);
-		return algorithm;
-		
 	}
 
 	private static void printCurrentParameters(MiningAlgorithm algorithm) {
@@ -14,6 +14,9 @@ import java.util.Map;
 import com.raffaeleconforti.conversion.bpmn.BPMNToPetriNetConverter;
 
 import org.processmining.models.graphbased.directed.petrinet.elements.Place;
+import org.processmining.models.semantics.petrinet.Marking;
+
+import main.model.AcceptingPetriNet;
 
 public class SplitMinerAlgorithm implements MiningAlgorithm {
 	
@@ -101,7 +104,7 @@ public class SplitMinerAlgorithm implements MiningAlgorithm {
     }
 
 	@Override
-	public Petrinet mine(UIPluginContext context, XLog log) throws Exception {
+	public AcceptingPetriNet mine(UIPluginContext context, XLog log) throws Exception {
 		try {
 			SplitMiner splitMiner = new SplitMiner();
 			XEventClassifier classifier = new XEventNameClassifier();
@@ -113,7 +116,8 @@ public class SplitMinerAlgorithm implements MiningAlgorithm {
 			System.out.println("BPMN Nodes: " + bpmn.getNodes().size());
 			System.out.println("BPMN Edges: " + bpmn.getEdges().size());
 
-			Petrinet net = convertBPMNtoPetriNet(bpmn);
+			AcceptingPetriNet acceptingNet = convertBPMNtoPetriNet(bpmn);
+			Petrinet net = acceptingNet.getNet();
 
 			// Debug: Print Petri net info
 			System.out.println("PetriNet Places: " + net.getPlaces().size());
@@ -128,13 +132,16 @@ public class SplitMinerAlgorithm implements MiningAlgorithm {
 				}
 			}
 
-			return net;
+			return acceptingNet;
 		} catch (Exception e) {
 			throw new Exception("Conversion failed: " + e.getMessage(), e);
 		}
 	}
 	
-	private Petrinet convertBPMNtoPetriNet(BPMNDiagram bpmn) {
+	/**
+	 * The converter returns the net with its initial and final marking.
+	 */
+	private AcceptingPetriNet convertBPMNtoPetriNet(BPMNDiagram bpmn) {
 		try {
 			Object[] result = BPMNToPetriNetConverter.convert(bpmn);
 
@@ -165,7 +172,9 @@ public class SplitMinerAlgorithm implements MiningAlgorithm {
 			System.out.println("- Transitions: " + net.getTransitions().size());
 			System.out.println("- Edges: " + net.getEdges().size());
 
-			return net;
+			Marking initialMarking = result.length > 1 && result[1] instanceof Marking ? (Marking) result[1] : null;
+			Marking finalMarking = result.length > 2 && result[2] instanceof Marking ? (Marking) result[2] : null;
+			return new AcceptingPetriNet(net, initialMarking, finalMarking);
 		} catch (Exception e) {
 			throw new RuntimeException("BPMN to Petri net conversion failed: " + e.getMessage(), e);
 		}
@@ -0,0 +1,193 @@
+package main.cache;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Content addressed byte store in a local directory. An entry lives in a file named after the SHA-256 of its key,
+ * spread over 256 subdirectories. Reading an entry touches its modification time, so when the directory grows
+ * over its size limit the least recently used entries are deleted first.
+ * Writes go to a temporary file that is moved into place, so readers never see half an entry.
+ */
+class DiskCache {
+
+	private static final String SUFFIX = ".bin";
+
+	private final Path directory;
+	private final long maxBytes;
+	private long totalBytes = -1;
+
+	DiskCache(Path directory, long maxBytes) {
+		this.directory = directory;
+		this.maxBytes = maxBytes;
+	}
+
+	Path getDirectory() {
+		return directory;
+	}
+
+	/**
+	 * Returns the entry stored under the key, or null when there is none.
+	 */
+	synchronized byte[] get(String key) {
+		Path file = fileFor(key);
+		if (!Files.isRegularFile(file)) {
+			return null;
+		}
+		try {
+			byte[] data = Files.readAllBytes(file);
+			Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+			return data;
+		} catch (IOException e) {
+			e.printStackTrace();
+			return null;
+		}
+	}
+
+	synchronized void put(String key, byte[] data) {
+		Path file = fileFor(key);
+		try {
+			Files.createDirectories(file.getParent());
+			long previous = Files.isRegularFile(file) ? Files.size(file) : 0;
+			Path temp = Files.createTempFile(file.getParent(), "entry", ".tmp");
+			Files.write(temp, data);
+			Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			if (totalBytes < 0) {
+				totalBytes = scanSize();
+			} else {
+				totalBytes += data.length - previous;
+			}
+			if (totalBytes > maxBytes) {
+				evict();
+			}
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+
+	synchronized void remove(String key) {
+		try {
+			Path file = fileFor(key);
+			if (Files.isRegularFile(file)) {
+				long size = Files.size(file);
+				Files.delete(file);
+				if (totalBytes >= 0) {
+					totalBytes -= size;
+				}
+			}
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+
+	synchronized void clear() {
+		for (Path file : entries()) {
+			try {
+				Files.delete(file);
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		}
+		totalBytes = 0;
+	}
+
+	synchronized long size() {
+		if (totalBytes < 0) {
+			totalBytes = scanSize();
+		}
+		return totalBytes;
+	}
+
+	/**
+	 * Deletes the least recently used entries until the cache is below 90% of its limit,
+	 * so eviction does not run again on the next write.
+	 */
+	private void evict() {
+		List<Path> files = entries();
+		files.sort(Comparator.comparingLong(DiskCache::lastModified));
+		long target = maxBytes / 10 * 9;
+		for (Path file : files) {
+			if (totalBytes <= target) {
+				break;
+			}
+			try {
+				long size = Files.size(file);
+				Files.delete(file);
+				totalBytes -= size;
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		}
+	}
+
+	private long scanSize() {
+		long total = 0;
+		for (Path file : entries()) {
+			try {
+				total += Files.size(file);
+			} catch (IOException e) {
+				// Removed by another process in the meantime
+			}
+		}
+		return total;
+	}
+
+	private List<Path> entries() {
+		if (!Files.isDirectory(directory)) {
+			return new ArrayList<>();
+		}
+		try (Stream<Path> paths = Files.walk(directory, 2)) {
+			return paths.filter(p -> p.getFileName().toString().endsWith(SUFFIX))
+					.filter(Files::isRegularFile)
+					.collect(Collectors.toList());
+		} catch (IOException e) {
+			e.printStackTrace();
+			return new ArrayList<>();
+		}
+	}
+
+	private static long lastModified(Path file) {
+		try {
+			return Files.getLastModifiedTime(file).toMillis();
+		} catch (IOException e) {
+			return 0;
+		}
+	}
+
+	private Path fileFor(String key) {
+		String hash = sha256(key);
+		return directory.resolve(hash.substring(0, 2)).resolve(hash + SUFFIX);
+	}
+
+	static String sha256(String value) {
+		return toHex(newDigest().digest(value.getBytes(StandardCharsets.UTF_8)));
+	}
+
+	static MessageDigest newDigest() {
+		try {
+			return MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			// Every Java platform is required to support SHA-256
+			throw new IllegalStateException(e);
+		}
+	}
+
+	static String toHex(byte[] bytes) {
+		StringBuilder hex = new StringBuilder(bytes.length * 2);
+		for (byte b : bytes) {
+			hex.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+		}
+		return hex.toString();
+	}
+}
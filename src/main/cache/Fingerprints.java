@@ -0,0 +1,233 @@
+package main.cache;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.deckfour.xes.classification.XEventClassifier;
+import org.deckfour.xes.model.XAttribute;
+import org.deckfour.xes.model.XEvent;
+import org.deckfour.xes.model.XLog;
+import org.deckfour.xes.model.XTrace;
+import org.processmining.models.graphbased.directed.petrinet.PetrinetEdge;
+import org.processmining.models.graphbased.directed.petrinet.PetrinetGraph;
+import org.processmining.models.graphbased.directed.petrinet.PetrinetNode;
+import org.processmining.models.graphbased.directed.petrinet.elements.Arc;
+import org.processmining.models.graphbased.directed.petrinet.elements.Transition;
+import org.processmining.models.semantics.petrinet.Marking;
+
+import main.model.AcceptingPetriNet;
+
+/**
+ * SHA-256 fingerprints of the inputs of a comparison, used as cache keys.
+ */
+public final class Fingerprints {
+
+	// Nesting depth up to which parameter objects are described field by field
+	private static final int MAX_DEPTH = 3;
+
+	private Fingerprints() {
+	}
+
+	/**
+	 * Hash of the events of the log in order: every attribute of every event, trace by trace.
+	 * Log and trace attributes do not influence mining or conformance and are left out.
+	 */
+	public static String ofLog(XLog log) {
+		MessageDigest digest = DiskCache.newDigest();
+		for (XTrace trace : log) {
+			for (XEvent event : trace) {
+				for (Map.Entry<String, XAttribute> attribute : new TreeMap<>(event.getAttributes()).entrySet()) {
+					update(digest, attribute.getKey());
+					update(digest, attribute.getValue().toString());
+				}
+				digest.update((byte) 1);
+			}
+			digest.update((byte) 2);
+		}
+		return DiskCache.toHex(digest.digest());
+	}
+
+	/**
+	 * Hash of the net structure, independent of node identifiers. Node colours start from the node kind and
+	 * transition label and are refined with the colours of the neighbours (Weisfeiler-Lehman) until the partition
+	 * stops splitting. The nodes are then numbered by colour and the hash covers an exact description of the net
+	 * in that numbering, so different nets never share a hash. Isomorphic nets get the same hash when refinement
+	 * tells all nodes apart; nodes it cannot tell apart keep the order of the net, which may cost a cache miss.
+	 */
+	public static String ofNet(PetrinetGraph net) {
+		return ofNet(net, null, null);
+	}
+
+	/**
+	 * Hash of the net and its markings; the tokens of a place are part of its initial colour.
+	 */
+	public static String ofNet(AcceptingPetriNet model) {
+		return ofNet(model.getNet(), model.getInitialMarking(), model.getFinalMarking());
+	}
+
+	private static String ofNet(PetrinetGraph net, Marking initialMarking, Marking finalMarking) {
+		List<PetrinetNode> nodes = new ArrayList<>();
+		nodes.addAll(net.getPlaces());
+		nodes.addAll(net.getTransitions());
+
+		Map<PetrinetNode, String> descriptions = new HashMap<>();
+		Map<PetrinetNode, String> colours = new HashMap<>();
+		for (PetrinetNode node : nodes) {
+			if (node instanceof Transition) {
+				Transition t = (Transition) node;
+				descriptions.put(node, "t|" + t.isInvisible() + "|" + t.getLabel());
+			} else {
+				descriptions.put(node, initialMarking == null ? "p"
+						: "p|" + initialMarking.occurrences(node) + "|" + finalMarking.occurrences(node));
+			}
+			colours.put(node, DiskCache.sha256(descriptions.get(node)));
+		}
+
+		int classes = distinct(colours);
+		for (int round = 0; round < nodes.size(); round++) {
+			Map<PetrinetNode, String> refined = new HashMap<>();
+			for (PetrinetNode node : nodes) {
+				List<String> neighbours = new ArrayList<>();
+				for (PetrinetEdge<? extends PetrinetNode, ? extends PetrinetNode> edge : net.getInEdges(node)) {
+					neighbours.add("i" + weight(edge) + colours.get(edge.getSource()));
+				}
+				for (PetrinetEdge<? extends PetrinetNode, ? extends PetrinetNode> edge : net.getOutEdges(node)) {
+					neighbours.add("o" + weight(edge) + colours.get(edge.getTarget()));
+				}
+				Collections.sort(neighbours);
+				refined.put(node, DiskCache.sha256(colours.get(node) + neighbours));
+			}
+			colours = refined;
+			int refinedClasses = distinct(colours);
+			if (refinedClasses == classes) {
+				break;
+			}
+			classes = refinedClasses;
+		}
+
+		// Stable sort, so nodes with the same colour stay in the order of the net
+		Map<PetrinetNode, String> finalColours = colours;
+		nodes.sort(Comparator.comparing(finalColours::get));
+		Map<PetrinetNode, Integer> numbers = new HashMap<>();
+		List<String> parts = new ArrayList<>();
+		for (PetrinetNode node : nodes) {
+			numbers.put(node, numbers.size());
+			parts.add(descriptions.get(node));
+		}
+		List<String> arcs = new ArrayList<>();
+		for (PetrinetEdge<? extends PetrinetNode, ? extends PetrinetNode> edge : net.getEdges()) {
+			arcs.add(numbers.get(edge.getSource()) + ">" + numbers.get(edge.getTarget()) + "*" + weight(edge));
+		}
+		Collections.sort(arcs);
+		parts.addAll(arcs);
+		return DiskCache.sha256(String.join("\n", parts));
+	}
+
+	private static int weight(PetrinetEdge<? extends PetrinetNode, ? extends PetrinetNode> edge) {
+		return edge instanceof Arc ? ((Arc) edge).getWeight() : 1;
+	}
+
+	private static int distinct(Map<PetrinetNode, String> colours) {
+		return (int) colours.values().stream().distinct().count();
+	}
+
+	/**
+	 * Hash of the algorithm parameters as returned by {@code getParameters()}. Simple values are taken as they are,
+	 * other objects field by field up to a fixed depth. Returns null when the parameters cannot be described,
+	 * in which case the result should not be cached.
+	 */
+	public static String ofParameters(Object parameters) {
+		try {
+			StringBuilder description = new StringBuilder();
+			describe(parameters, 0, description);
+			return DiskCache.sha256(description.toString());
+		} catch (Exception e) {
+			e.printStackTrace();
+			return null;
+		}
+	}
+
+	private static void describe(Object value, int depth, StringBuilder out) throws IllegalAccessException {
+		if (value == null) {
+			out.append("null");
+		} else if (value instanceof Number || value instanceof Boolean || value instanceof Character
+				|| value instanceof CharSequence || value instanceof Enum) {
+			out.append(value);
+		} else if (value instanceof XEventClassifier) {
+			XEventClassifier classifier = (XEventClassifier) value;
+			out.append("classifier").append(Arrays.toString(classifier.getDefiningAttributeKeys()));
+		} else if (value instanceof Map) {
+			// Sorted on the description of the key so the iteration order of the map does not matter
+			TreeMap<String, Object> sorted = new TreeMap<>();
+			for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+				StringBuilder key = new StringBuilder();
+				describe(entry.getKey(), depth + 1, key);
+				sorted.put(key.toString(), entry.getValue());
+			}
+			out.append('{');
+			for (Map.Entry<String, Object> entry : sorted.entrySet()) {
+				out.append(entry.getKey()).append('=');
+				describe(entry.getValue(), depth + 1, out);
+				out.append(',');
+			}
+			out.append('}');
+		} else if (value instanceof Collection) {
+			out.append('[');
+			for (Object element : (Collection<?>) value) {
+				describe(element, depth + 1, out);
+				out.append(',');
+			}
+			out.append(']');
+		} else if (value.getClass().isArray()) {
+			out.append('[');
+			for (int i = 0; i < Array.getLength(value); i++) {
+				describe(Array.get(value, i), depth + 1, out);
+				out.append(',');
+			}
+			out.append(']');
+		} else {
+			out.append(value.getClass().getName());
+			// Platform classes are not opened to reflection and carry no settings of their own
+			if (depth < MAX_DEPTH && !value.getClass().getName().startsWith("java")) {
+				describeFields(value, depth, out);
+			}
+		}
+	}
+
+	private static void describeFields(Object value, int depth, StringBuilder out) throws IllegalAccessException {
+		TreeMap<String, Field> fields = new TreeMap<>();
+		for (Class<?> type = value.getClass(); type != null && type != Object.class; type = type.getSuperclass()) {
+			for (Field field : type.getDeclaredFields()) {
+				if (!Modifier.isStatic(field.getModifiers()) && !field.isSynthetic()) {
+					fields.putIfAbsent(type.getName() + "." + field.getName(), field);
+				}
+			}
+		}
+		out.append('(');
+		for (Map.Entry<String, Field> entry : fields.entrySet()) {
+			Field field = entry.getValue();
+			field.setAccessible(true);
+			out.append(field.getName()).append('=');
+			describe(field.get(value), depth + 1, out);
+			out.append(';');
+		}
+		out.append(')');
+	}
+
+	static void update(MessageDigest digest, String value) {
+		digest.update(value.getBytes(StandardCharsets.UTF_8));
+		digest.update((byte) 0);
+	}
+}
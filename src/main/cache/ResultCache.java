@@ -0,0 +1,327 @@
+package main.cache;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.processmining.models.graphbased.directed.petrinet.Petrinet;
+import org.processmining.models.graphbased.directed.petrinet.PetrinetEdge;
+import org.processmining.models.graphbased.directed.petrinet.PetrinetNode;
+import org.processmining.models.graphbased.directed.petrinet.elements.Arc;
+import org.processmining.models.graphbased.directed.petrinet.elements.Place;
+import org.processmining.models.graphbased.directed.petrinet.elements.Transition;
+import org.processmining.models.graphbased.directed.petrinet.impl.PetrinetFactory;
+import org.processmining.models.semantics.petrinet.Marking;
+
+import main.model.AcceptingPetriNet;
+
+/**
+ * Persistent cache of comparison results across sessions, on top of a {@link DiskCache}.
+ * Discovered nets are keyed by the log, the algorithm and its parameters; reduced nets by the canonical hash of
+ * the net they were reduced from; conformance summaries by the log, the canonical hash of the model and the
+ * conformance settings. Nets are stored with their initial and final marking. See {@link Fingerprints} for the hashes.
+ *
+ * Entries that cannot be read, for example after the format changed, are deleted and count as a miss.
+ */
+public class ResultCache {
+
+	public static final long DEFAULT_MAX_BYTES = 512L * 1024 * 1024;
+
+	// Bumped whenever the layout of an entry changes
+	private static final int FORMAT = 2;
+
+	private static ResultCache defaultCache;
+
+	private final DiskCache store;
+
+	public ResultCache(Path directory, long maxBytes) {
+		this.store = new DiskCache(directory, maxBytes);
+	}
+
+	/**
+	 * The cache in the user's home directory shared by the application and the benchmark runner.
+	 */
+	public static synchronized ResultCache getDefault() {
+		if (defaultCache == null) {
+			Path directory = Paths.get(System.getProperty("user.home"), ".discovery-comparator", "cache");
+			defaultCache = new ResultCache(directory, DEFAULT_MAX_BYTES);
+		}
+		return defaultCache;
+	}
+
+	public Path getDirectory() {
+		return store.getDirectory();
+	}
+
+	/** Bytes currently used on disk. */
+	public long size() {
+		return store.size();
+	}
+
+	public void clear() {
+		store.clear();
+	}
+
+	/**
+	 * A discovered net with the mining times measured when it was first discovered.
+	 */
+	public static class MinedModel {
+		private final AcceptingPetriNet model;
+		private final long[] miningNanos;
+
+		public MinedModel(AcceptingPetriNet model, long[] miningNanos) {
+			this.model = model;
+			this.miningNanos = miningNanos;
+		}
+
+		public AcceptingPetriNet getModel() {
+			return model;
+		}
+
+		public long[] getMiningNanos() {
+			return miningNanos;
+		}
+	}
+
+	/**
+	 * Metrics of one model against one log. The error is set when conformance was skipped.
+	 */
+	public static class ConformanceSummary {
+		private final double fitness;
+		private final double precision;
+		private final double fMeasure;
+		private final int degradedTraces;
+		private final String soundness;
+		private final String error;
+
+		public ConformanceSummary(double fitness, double precision, double fMeasure, int degradedTraces,
+				String soundness, String error) {
+			this.fitness = fitness;
+			this.precision = precision;
+			this.fMeasure = fMeasure;
+			this.degradedTraces = degradedTraces;
+			this.soundness = soundness;
+			this.error = error;
+		}
+
+		public double getFitness() {
+			return fitness;
+		}
+
+		public double getPrecision() {
+			return precision;
+		}
+
+		public double getFMeasure() {
+			return fMeasure;
+		}
+
+		public int getDegradedTraces() {
+			return degradedTraces;
+		}
+
+		public String getSoundness() {
+			return soundness;
+		}
+
+		public String getError() {
+			return error;
+		}
+	}
+
+	public MinedModel getMined(String logHash, String algorithm, String parameters) {
+		String key = "mined|" + logHash + "|" + algorithm + "|" + parameters;
+		byte[] data = store.get(key);
+		if (data == null) {
+			return null;
+		}
+		try (DataInputStream in = open(data)) {
+			AcceptingPetriNet model = readNet(in);
+			long[] nanos = new long[in.readInt()];
+			for (int i = 0; i < nanos.length; i++) {
+				nanos[i] = in.readLong();
+			}
+			return new MinedModel(model, nanos);
+		} catch (Exception e) {
+			store.remove(key);
+			return null;
+		}
+	}
+
+	public void putMined(String logHash, String algorithm, String parameters, AcceptingPetriNet model,
+			long[] miningNanos) {
+		try {
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			DataOutputStream out = create(bytes);
+			writeNet(out, model);
+			out.writeInt(miningNanos.length);
+			for (long nanos : miningNanos) {
+				out.writeLong(nanos);
+			}
+			out.flush();
+			store.put("mined|" + logHash + "|" + algorithm + "|" + parameters, bytes.toByteArray());
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+
+	public AcceptingPetriNet getReduced(String netHash) {
+		String key = "reduced|" + netHash;
+		byte[] data = store.get(key);
+		if (data == null) {
+			return null;
+		}
+		try (DataInputStream in = open(data)) {
+			return readNet(in);
+		} catch (Exception e) {
+			store.remove(key);
+			return null;
+		}
+	}
+
+	public void putReduced(String netHash, AcceptingPetriNet reduced) {
+		try {
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			DataOutputStream out = create(bytes);
+			writeNet(out, reduced);
+			out.flush();
+			store.put("reduced|" + netHash, bytes.toByteArray());
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+
+	public ConformanceSummary getConformance(String logHash, String netHash, String settings) {
+		String key = "conformance|" + logHash + "|" + netHash + "|" + settings;
+		byte[] data = store.get(key);
+		if (data == null) {
+			return null;
+		}
+		try (DataInputStream in = open(data)) {
+			double fitness = in.readDouble();
+			double precision = in.readDouble();
+			double fMeasure = in.readDouble();
+			int degradedTraces = in.readInt();
+			String soundness = in.readUTF();
+			String error = in.readBoolean() ? in.readUTF() : null;
+			return new ConformanceSummary(fitness, precision, fMeasure, degradedTraces, soundness, error);
+		} catch (Exception e) {
+			store.remove(key);
+			return null;
+		}
+	}
+
+	public void putConformance(String logHash, String netHash, String settings, ConformanceSummary summary) {
+		try {
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			DataOutputStream out = create(bytes);
+			out.writeDouble(summary.getFitness());
+			out.writeDouble(summary.getPrecision());
+			out.writeDouble(summary.getFMeasure());
+			out.writeInt(summary.getDegradedTraces());
+			out.writeUTF(summary.getSoundness() != null ? summary.getSoundness() : "");
+			out.writeBoolean(summary.getError() != null);
+			if (summary.getError() != null) {
+				out.writeUTF(summary.getError());
+			}
+			out.flush();
+			store.put("conformance|" + logHash + "|" + netHash + "|" + settings, bytes.toByteArray());
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+
+	private static DataOutputStream create(ByteArrayOutputStream bytes) throws IOException {
+		DataOutputStream out = new DataOutputStream(bytes);
+		out.writeInt(FORMAT);
+		return out;
+	}
+
+	private static DataInputStream open(byte[] data) throws IOException {
+		DataInputStream in = new DataInputStream(new ByteArrayInputStream(data));
+		if (in.readInt() != FORMAT) {
+			throw new IOException("Unsupported cache entry format");
+		}
+		return in;
+	}
+
+	private static void writeNet(DataOutputStream out, AcceptingPetriNet model) throws IOException {
+		Petrinet net = model.getNet();
+		Map<PetrinetNode, Integer> index = new HashMap<>();
+		out.writeUTF(net.getLabel());
+		out.writeInt(net.getPlaces().size());
+		for (Place place : net.getPlaces()) {
+			index.put(place, index.size());
+			out.writeUTF(place.getLabel());
+		}
+		out.writeInt(net.getTransitions().size());
+		for (Transition transition : net.getTransitions()) {
+			index.put(transition, index.size());
+			out.writeUTF(transition.getLabel());
+			out.writeBoolean(transition.isInvisible());
+		}
+		out.writeInt(net.getEdges().size());
+		for (PetrinetEdge<? extends PetrinetNode, ? extends PetrinetNode> edge : net.getEdges()) {
+			out.writeInt(index.get(edge.getSource()));
+			out.writeInt(index.get(edge.getTarget()));
+			out.writeInt(edge instanceof Arc ? ((Arc) edge).getWeight() : 1);
+		}
+		writeMarking(out, model.getInitialMarking(), index);
+		writeMarking(out, model.getFinalMarking(), index);
+	}
+
+	private static void writeMarking(DataOutputStream out, Marking marking, Map<PetrinetNode, Integer> index)
+			throws IOException {
+		out.writeInt(marking.baseSet().size());
+		for (Place place : marking.baseSet()) {
+			out.writeInt(index.get(place));
+			out.writeInt(marking.occurrences(place));
+		}
+	}
+
+	private static AcceptingPetriNet readNet(DataInputStream in) throws IOException {
+		Petrinet net = PetrinetFactory.newPetrinet(in.readUTF());
+		int places = in.readInt();
+		Place[] placeNodes = new Place[places];
+		for (int i = 0; i < places; i++) {
+			placeNodes[i] = net.addPlace(in.readUTF());
+		}
+		int transitions = in.readInt();
+		Transition[] transitionNodes = new Transition[transitions];
+		for (int i = 0; i < transitions; i++) {
+			transitionNodes[i] = net.addTransition(in.readUTF());
+			transitionNodes[i].setInvisible(in.readBoolean());
+		}
+		// Places come first in the numbering, so the index tells which kind a node is
+		int edges = in.readInt();
+		for (int i = 0; i < edges; i++) {
+			int source = in.readInt();
+			int target = in.readInt();
+			int weight = in.readInt();
+			if (source < places) {
+				net.addArc(placeNodes[source], transitionNodes[target - places], weight);
+			} else {
+				net.addArc(transitionNodes[source - places], placeNodes[target], weight);
+			}
+		}
+		Marking initialMarking = readMarking(in, placeNodes);
+		Marking finalMarking = readMarking(in, placeNodes);
+		return new AcceptingPetriNet(net, initialMarking, finalMarking);
+	}
+
+	private static Marking readMarking(DataInputStream in, Place[] placeNodes) throws IOException {
+		Marking marking = new Marking();
+		int size = in.readInt();
+		for (int i = 0; i < size; i++) {
+			Place place = placeNodes[in.readInt()];
+			marking.add(place, in.readInt());
+		}
+		return marking;
+	}
+}
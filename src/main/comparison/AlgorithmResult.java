@@ -0,0 +1,223 @@
+package main.comparison;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * One row of the algorithm comparison: model size, timing and quality scores of a single mining run.
+ */
+public class AlgorithmResult {
+    private String algorithmName;
+    private long executionTime;
+    private int placesCount;
+    private int transitionsCount;
+    private int arcsCount;
+    private int fitnessScore;
+    private int precisionScore;
+    private int fMeasureScore;
+    private double fitness = Double.NaN;
+    private double precision = Double.NaN;
+    private double fMeasure = Double.NaN;
+    private int degradedTraces;
+    private String soundness = "";
+    private long p90Time;
+    private double timeStdDev;
+    private int measuredRuns = 1;
+//        private double sizeComplexityScore;
+    private String formattedOverallScore;
+    private double overallScore;
+    private String winnerStatus;
+    private String error;
+    private boolean reduced;
+    private StageDeadlines.Stage timedOutStage;
+    private boolean cancelled;
+    private final Map<StageDeadlines.Stage, ResourceUsage> resourceUsage = new EnumMap<>(StageDeadlines.Stage.class);
+    private final Set<StageDeadlines.Stage> cachedStages = EnumSet.noneOf(StageDeadlines.Stage.class);
+
+    public AlgorithmResult(String algorithmName) {
+        this.algorithmName = algorithmName;
+        this.winnerStatus = "";
+        this.reduced = false;
+//            this.sizeComplexityScore = -1; // Initialize as -1 for invalid
+    }
+
+    // Getters and setters
+    public String getAlgorithmName() { 
+        return algorithmName + (reduced ? " (Reduced)" : ""); 
+    }
+    
+    public void setAlgorithmName(String algorithmName) { this.algorithmName = algorithmName; }
+    
+    /** Name of the mining algorithm without the " (Reduced)" suffix, as used for its stage budgets. */
+    public String getBaseAlgorithmName() { return algorithmName; }
+    
+    /** Mining time in ms; the median when several runs were measured. */
+    public long getExecutionTime() { return executionTime; }
+    public void setExecutionTime(long executionTime) { this.executionTime = executionTime; }
+
+    public long getP90Time() { return p90Time; }
+    public double getTimeStdDev() { return timeStdDev; }
+    public String getFormattedTimeStdDev() { return String.format("%.1f", timeStdDev); }
+    public int getMeasuredRuns() { return measuredRuns; }
+
+    public void setTiming(TimingStats timing) {
+        this.executionTime = Math.round(timing.getMedianMillis());
+        this.p90Time = Math.round(timing.getPercentileMillis(0.9));
+        this.timeStdDev = timing.getStdDevMillis();
+        this.measuredRuns = timing.getRuns();
+    }
+    
+    public int getPlacesCount() { return placesCount; }
+    public void setPlacesCount(int placesCount) { this.placesCount = placesCount; }
+    
+    public int getTransitionsCount() { return transitionsCount; }
+    public void setTransitionsCount(int transitionsCount) { this.transitionsCount = transitionsCount; }
+    
+    public int getArcsCount() { return arcsCount; }
+    public void setArcsCount(int arcsCount) { this.arcsCount = arcsCount; }
+    
+    public int getFitnessScore() { return fitnessScore; }
+    public void setFitnessScore(int fitnessScore) { this.fitnessScore = fitnessScore; }
+    
+    public int getPrecisionScore() { return precisionScore; }
+    public void setPrecisionScore(int precisionScore) { this.precisionScore = precisionScore; }
+    
+    public int getFMeasureScore() { return fMeasureScore; }
+    public void setFMeasureScore(int fMeasureScore) { this.fMeasureScore = fMeasureScore; }
+    
+    // Unrounded metric values, NaN if they could not be computed
+    public double getFitness() { return fitness; }
+    public void setFitness(double fitness) { this.fitness = fitness; }
+    
+    public double getPrecision() { return precision; }
+    public void setPrecision(double precision) { this.precision = precision; }
+    
+    public double getFMeasure() { return fMeasure; }
+    public void setFMeasure(double fMeasure) { this.fMeasure = fMeasure; }
+
+    public int getDegradedTraces() { return degradedTraces; }
+    public void setDegradedTraces(int degradedTraces) { this.degradedTraces = degradedTraces; }
+
+    /** Summary of the soundness check of the discovered model, empty if it was not checked. */
+    public String getSoundness() { return soundness; }
+    public void setSoundness(String soundness) { this.soundness = soundness; }
+    
+//        public double getSizeComplexityScore() { return sizeComplexityScore; }
+//        public void setSizeComplexityScore(double sizeComplexityScore) { this.sizeComplexityScore = sizeComplexityScore; }
+//        public double getOverallScore() { return overallScore; }
+
+    
+    public double getOverallScore() { return overallScore; }
+    
+    public void setOverallScore(double overallScore) { 
+        this.overallScore = overallScore;
+        this.formattedOverallScore = String.format("%.2f", overallScore);
+    }
+    
+    public String getFormattedOverallScore() {
+        return formattedOverallScore;
+    }
+    
+    public String getWinnerStatus() { return winnerStatus; }
+    public void setWinnerStatus(String winnerStatus) { this.winnerStatus = winnerStatus; }
+    
+    public String getError() { return error; }
+    public void setError(String error) { this.error = error; }
+    
+    public boolean isReduced() { return reduced; }
+    public void setReduced(boolean reduced) { this.reduced = reduced; }
+    
+    public boolean isTimedOut() { return timedOutStage != null; }
+    public StageDeadlines.Stage getTimedOutStage() { return timedOutStage; }
+    public void setTimedOut(StageDeadlines.Stage stage) {
+        this.timedOutStage = stage;
+        this.winnerStatus = "TIMED OUT";
+    }
+    
+    /** Whether the run was stopped by Cancel; its metrics are incomplete. */
+    public boolean isCancelled() { return cancelled; }
+    public void setCancelled(boolean cancelled) { this.cancelled = cancelled; }
+    
+    /** Resources of the last completed run of the stage, or null if it did not run. */
+    public synchronized ResourceUsage getResourceUsage(StageDeadlines.Stage stage) { return resourceUsage.get(stage); }
+    public synchronized void setResourceUsage(StageDeadlines.Stage stage, ResourceUsage usage) { resourceUsage.put(stage, usage); }
+    
+    /** Thread CPU time of all stages in ms. */
+    public synchronized long getCpuTime() {
+        long nanos = 0;
+        for (ResourceUsage usage : resourceUsage.values()) {
+            nanos += Math.max(0, usage.getCpuNanos());
+        }
+        return nanos / 1_000_000;
+    }
+    
+    public synchronized long getAllocatedMb() {
+        long bytes = 0;
+        for (ResourceUsage usage : resourceUsage.values()) {
+            bytes += Math.max(0, usage.getAllocatedBytes());
+        }
+        return bytes / (1024 * 1024);
+    }
+    
+    public synchronized long getGcCount() {
+        long count = 0;
+        for (ResourceUsage usage : resourceUsage.values()) {
+            count += usage.getGcCount();
+        }
+        return count;
+    }
+    
+    public synchronized long getGcTime() {
+        long millis = 0;
+        for (ResourceUsage usage : resourceUsage.values()) {
+            millis += usage.getGcMillis();
+        }
+        return millis;
+    }
+    
+    public String getFormattedGc() { return getGcCount() + " / " + getGcTime() + " ms"; }
+    
+    /** Largest peak heap of the stages that measured it, -1 if none did because runs overlapped. */
+    public synchronized long getPeakHeapMb() {
+        long peak = -1;
+        for (ResourceUsage usage : resourceUsage.values()) {
+            peak = Math.max(peak, usage.getPeakHeapBytes());
+        }
+        return peak < 0 ? -1 : peak / (1024 * 1024);
+    }
+    
+    /** Peak heap in MB for the table, "n/a" when no stage could measure it. */
+    public String getFormattedPeakHeap() {
+        long peak = getPeakHeapMb();
+        return peak < 0 ? "n/a" : String.valueOf(peak);
+    }
+    
+    /** Marks a stage whose outcome came from the result cache instead of being computed. */
+    public synchronized void setCached(StageDeadlines.Stage stage) { cachedStages.add(stage); }
+    public synchronized boolean isCached(StageDeadlines.Stage stage) { return cachedStages.contains(stage); }
+    
+    /** Labels of the cached stages separated by ';', empty if everything was computed. */
+    public synchronized String getCachedStages() {
+        List<String> labels = new ArrayList<>();
+        for (StageDeadlines.Stage stage : cachedStages) {
+            labels.add(stage.getLabel());
+        }
+        return String.join(";", labels);
+    }
+    
+    /** One line per stage, for the details view. */
+    public synchronized String getResourceDetails() {
+        StringBuilder details = new StringBuilder();
+        for (Map.Entry<StageDeadlines.Stage, ResourceUsage> entry : resourceUsage.entrySet()) {
+            details.append(String.format("  %-10s %s%n", entry.getKey().getLabel(), entry.getValue()));
+        }
+        for (StageDeadlines.Stage stage : cachedStages) {
+            details.append(String.format("  %-10s from cache%n", stage.getLabel()));
+        }
+        return details.toString();
+    }
+}
@@ -0,0 +1,449 @@
+package main.comparison;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.deckfour.xes.classification.XEventNameClassifier;
+import org.deckfour.xes.info.XLogInfoFactory;
+import org.deckfour.xes.model.XLog;
+import org.processmining.contexts.uitopia.UIContext;
+import org.processmining.contexts.uitopia.UIPluginContext;
+import org.processmining.models.graphbased.directed.petrinet.Petrinet;
+import org.processmining.models.graphbased.directed.petrinet.elements.Transition;
+
+import main.algorithms.MiningAlgorithm;
+import main.algorithms.MiningAlgorithmSelector;
+import main.cache.Fingerprints;
+import main.cache.ResultCache;
+import main.comparison.StageDeadlines.Stage;
+import main.conformance.AlignmentBackend;
+import main.conformance.ConformanceSession;
+import main.conformance.FitnessMethod;
+import main.conformance.SoundnessChecker;
+import main.conformance.UnreliableTracePolicy;
+import main.log.CompactLog;
+import main.model.AcceptingPetriNet;
+import main.utils.MurataReduction;
+
+/**
+ * Mining, optional silent transition removal and conformance checking of one algorithm against a shared log.
+ * A pipeline can be run for several algorithms at the same time, each run works on its own plugin context.
+ */
+public class ComparisonPipeline {
+
+	// Stage work runs here so the worker thread can enforce the deadline and walk away from it
+	private static final ExecutorService STAGE_EXECUTOR = Executors.newCachedThreadPool(r -> {
+		Thread thread = new Thread(r, "comparison-stage");
+		thread.setDaemon(true);
+		return thread;
+	});
+	// Time a cancelled stage gets to react to the interrupt before it counts as abandoned
+	private static final long CANCEL_GRACE_MILLIS = 2000;
+	private static final AtomicInteger ABANDONED_STAGES = new AtomicInteger();
+
+	private final XLog log;
+	private final boolean removeSilent;
+	private final StageDeadlines deadlines;
+	private AlignmentBackend alignmentBackend = AlignmentBackend.PROM_ILP;
+	private FitnessMethod fitnessMethod = FitnessMethod.ALIGNMENT;
+	private UnreliableTracePolicy unreliablePolicy = UnreliableTracePolicy.BOUND;
+	private boolean requireSound = false;
+	private ResultCache cache;
+	private String logHash;
+	private CompactLog compactLog;
+	private int warmupRuns = 0;
+	private int measuredRuns = 1;
+
+	public ComparisonPipeline(XLog log, boolean removeSilent) {
+		this(log, removeSilent, new StageDeadlines());
+	}
+
+	public ComparisonPipeline(XLog log, boolean removeSilent, StageDeadlines deadlines) {
+		this.log = log;
+		this.removeSilent = removeSilent;
+		this.deadlines = deadlines;
+
+		// The log info is cached on the log itself and is not safe to build concurrently
+		XLogInfoFactory.createLogInfo(log, new XEventNameClassifier());
+	}
+
+	public XLog getLog() {
+		return log;
+	}
+
+	public AlignmentBackend getAlignmentBackend() {
+		return alignmentBackend;
+	}
+
+	public void setAlignmentBackend(AlignmentBackend alignmentBackend) {
+		this.alignmentBackend = alignmentBackend;
+	}
+
+	public FitnessMethod getFitnessMethod() {
+		return fitnessMethod;
+	}
+
+	public void setFitnessMethod(FitnessMethod fitnessMethod) {
+		this.fitnessMethod = fitnessMethod;
+	}
+
+	public UnreliableTracePolicy getUnreliablePolicy() {
+		return unreliablePolicy;
+	}
+
+	public void setUnreliablePolicy(UnreliableTracePolicy unreliablePolicy) {
+		this.unreliablePolicy = unreliablePolicy;
+	}
+
+	public boolean isRequireSound() {
+		return requireSound;
+	}
+
+	/**
+	 * When set, conformance is skipped for every model proven unsound, not only for those that cannot be aligned.
+	 */
+	public void setRequireSound(boolean requireSound) {
+		this.requireSound = requireSound;
+	}
+
+	public ResultCache getCache() {
+		return cache;
+	}
+
+	/**
+	 * Reuses discovered and reduced nets and conformance results from the cache, and stores new ones in it.
+	 * Null, the default, turns caching off.
+	 */
+	public void setCache(ResultCache cache) {
+		this.cache = cache;
+	}
+
+	public int getWarmupRuns() {
+		return warmupRuns;
+	}
+
+	public int getMeasuredRuns() {
+		return measuredRuns;
+	}
+
+	/**
+	 * Mines every model warmup + measured times. The warmup runs load the plugin classes and let the JIT
+	 * compile the miner; only the measured runs are timed. Conformance is checked once, on the last model.
+	 */
+	public void setRuns(int warmupRuns, int measuredRuns) {
+		this.warmupRuns = Math.max(0, warmupRuns);
+		this.measuredRuns = Math.max(1, measuredRuns);
+	}
+
+	/**
+	 * Runs all stages for one algorithm. A stage that exceeds its deadline is cancelled and the result
+	 * is marked as timed out; interrupting the calling thread cancels the stage in progress.
+	 */
+	public AlgorithmResult run(String algorithmName) {
+		MiningAlgorithm algorithm;
+		try {
+			algorithm = MiningAlgorithmSelector.getAlgorithm(algorithmName);
+		} catch (Exception e) {
+			AlgorithmResult result = new AlgorithmResult(algorithmName);
+			result.setError(e.getMessage());
+			return result;
+		}
+		return run(algorithm);
+	}
+
+	/**
+	 * Runs all stages with the given algorithm instance and its current parameters.
+	 */
+	public AlgorithmResult run(MiningAlgorithm algorithm) {
+		AlgorithmResult result = new AlgorithmResult(algorithm.getAlgorithmName());
+		UIPluginContext pluginContext = new UIContext().getMainPluginContext();
+		Runnable cancelContext = () -> cancelProgress(pluginContext);
+
+		try {
+			String parameters = cache != null ? Fingerprints.ofParameters(algorithm.getParameters()) : null;
+			ResultCache.MinedModel cached = parameters != null
+					? cache.getMined(getLogHash(), algorithm.getAlgorithmName(), parameters)
+					: null;
+
+			AcceptingPetriNet discoveredModel = null;
+			if (cached != null) {
+				// Keep the times measured when the model was first mined
+				discoveredModel = cached.getModel();
+				result.setTiming(TimingStats.of(cached.getMiningNanos()));
+				result.setCached(Stage.MINE);
+			} else {
+				// Mine the model, timing the measured runs only
+				long[] times = new long[measuredRuns];
+				for (int run = 0; run < warmupRuns + measuredRuns; run++) {
+					long startTime = System.nanoTime();
+					discoveredModel = runStage(result, Stage.MINE, () -> algorithm.mine(pluginContext, log),
+							cancelContext);
+					if (run >= warmupRuns) {
+						times[run - warmupRuns] = System.nanoTime() - startTime;
+					}
+				}
+				result.setTiming(TimingStats.of(times));
+				if (parameters != null && discoveredModel != null) {
+					cache.putMined(getLogHash(), algorithm.getAlgorithmName(), parameters, discoveredModel, times);
+				}
+			}
+
+			if (removeSilent && discoveredModel != null) {
+				discoveredModel = reduce(discoveredModel, pluginContext, cancelContext, result);
+			}
+
+			if (discoveredModel != null) {
+				Petrinet net = discoveredModel.getNet();
+				result.setPlacesCount(net.getPlaces().size());
+				// Exclude invisible transitions from count
+				int visibleTransitions = 0;
+				for (Transition t : net.getTransitions()) {
+					if (!t.isInvisible()) visibleTransitions++;
+				}
+				result.setTransitionsCount(visibleTransitions);
+				result.setArcsCount(net.getEdges().size());
+
+				String netHash = cache != null ? Fingerprints.ofNet(discoveredModel) : null;
+				ResultCache.ConformanceSummary summary = cache != null
+						? cache.getConformance(getLogHash(), netHash, getConformanceSettings())
+						: null;
+				if (summary != null) {
+					result.setCached(Stage.ALIGN);
+					result.setCached(Stage.PRECISION);
+				} else {
+					summary = checkConformance(discoveredModel, pluginContext, result);
+					// Degraded traces depend on the alignment budget, which follows the heap of this run
+					if (cache != null && summary.getDegradedTraces() == 0) {
+						cache.putConformance(getLogHash(), netHash, getConformanceSettings(), summary);
+					}
+				}
+				apply(summary, result);
+			}
+
+		} catch (StageTimeoutException e) {
+			result.setTimedOut(e.getStage());
+			result.setError(e.getMessage());
+		} catch (InterruptedException e) {
+			result.setCancelled(true);
+			result.setError(e.getMessage() != null ? e.getMessage() : "Cancelled");
+			Thread.currentThread().interrupt();
+		} catch (Exception e) {
+			result.setError(e.getMessage());
+		}
+
+		return result;
+	}
+
+	/**
+	 * Aligns once and derives all metrics from the same session. Models that cannot be aligned, or that are
+	 * unsound when only sound models are wanted, are skipped with the reason as error.
+	 */
+	private ResultCache.ConformanceSummary checkConformance(AcceptingPetriNet discoveredModel,
+			UIPluginContext pluginContext, AlgorithmResult result) throws Exception {
+		ConformanceSession session = ConformanceSession.open(pluginContext, discoveredModel, log, getCompactLog(),
+				alignmentBackend);
+		session.setFitnessMethod(fitnessMethod);
+		session.setUnreliablePolicy(unreliablePolicy);
+
+		Runnable cancelSession = () -> {
+			session.cancel();
+			cancelProgress(pluginContext);
+		};
+
+		// Unsound models are usually caught in milliseconds here instead of after a futile alignment
+		SoundnessChecker.Report soundness = runStage(result, Stage.SOUNDNESS, session::getSoundness, cancelSession);
+		String summary = soundness != null ? soundness.getSummary() : "";
+		if (soundness != null) {
+			boolean skip = requireSound ? soundness.getVerdict() == SoundnessChecker.Verdict.UNSOUND
+					: !soundness.canAlign();
+			if (skip) {
+				return new ResultCache.ConformanceSummary(Double.NaN, Double.NaN, Double.NaN, 0, summary,
+						"Conformance skipped: " + summary);
+			}
+		}
+		double fitness = runStage(result, Stage.ALIGN, session::getFitness, cancelSession);
+		double precision = runStage(result, Stage.PRECISION, session::getPrecision, cancelSession);
+		return new ResultCache.ConformanceSummary(fitness, precision, session.getFMeasure(),
+				session.getDegradedTraces(), summary, null);
+	}
+
+	private static void apply(ResultCache.ConformanceSummary summary, AlgorithmResult result) {
+		result.setSoundness(summary.getSoundness());
+		result.setFitness(summary.getFitness());
+		result.setPrecision(summary.getPrecision());
+		result.setFMeasure(summary.getFMeasure());
+		result.setDegradedTraces(summary.getDegradedTraces());
+		result.setFitnessScore((int) (summary.getFitness() * 100));
+		result.setPrecisionScore((int) (summary.getPrecision() * 100));
+		result.setFMeasureScore((int) (summary.getFMeasure() * 100));
+		if (summary.getError() != null) {
+			result.setError(summary.getError());
+		}
+	}
+
+	/**
+	 * Removes silent transitions, reusing an earlier reduction of the same net when the cache has one.
+	 * Returns the model unchanged if the reduction fails.
+	 */
+	private AcceptingPetriNet reduce(AcceptingPetriNet minedModel, UIPluginContext pluginContext,
+			Runnable cancelContext, AlgorithmResult result) throws Exception {
+		String netHash = cache != null ? Fingerprints.ofNet(minedModel) : null;
+		AcceptingPetriNet reducedModel = cache != null ? cache.getReduced(netHash) : null;
+		if (reducedModel != null) {
+			result.setCached(Stage.REDUCE);
+		} else {
+			MurataReduction reducer = new MurataReduction(pluginContext);
+			reducedModel = runStage(result, Stage.REDUCE, () -> reducer.removeSilentTransitions(minedModel),
+					cancelContext);
+			if (reducedModel != null && cache != null) {
+				cache.putReduced(netHash, reducedModel);
+			}
+		}
+		if (reducedModel == null) {
+			return minedModel;
+		}
+		result.setReduced(true);
+		return reducedModel;
+	}
+
+	/**
+	 * Hash of the log contents, computed once per pipeline and shared by all algorithms.
+	 */
+	private synchronized String getLogHash() {
+		if (logHash == null) {
+			logHash = Fingerprints.ofLog(log);
+		}
+		return logHash;
+	}
+
+	/**
+	 * Compact form of the log, built once per pipeline unless it was handed in, and shared by all algorithms.
+	 */
+	public synchronized CompactLog getCompactLog() {
+		if (compactLog == null) {
+			compactLog = CompactLog.fromXLog(log);
+		}
+		return compactLog;
+	}
+
+	/**
+	 * Sets the compact form of the log when the caller already has it, e.g. from simulation.
+	 */
+	public synchronized void setCompactLog(CompactLog compactLog) {
+		this.compactLog = compactLog;
+	}
+
+	private String getConformanceSettings() {
+		return alignmentBackend + "|" + fitnessMethod + "|" + unreliablePolicy + "|" + requireSound;
+	}
+
+	/**
+	 * Number of cancelled or timed out stages that are still running. Some plugins, the ETM among them, never
+	 * check for interrupts, and Java has no safe way to stop a thread from outside; such a stage keeps its thread
+	 * and CPU until the plugin returns, and its result is discarded.
+	 */
+	public static int getAbandonedStages() {
+		return ABANDONED_STAGES.get();
+	}
+
+	/**
+	 * Runs one stage on its own thread under the stage deadline and records the resources it used.
+	 */
+	private <T> T runStage(AlgorithmResult result, Stage stage, Callable<T> work, Runnable onCancel)
+			throws Exception {
+		long deadline = deadlines.getDeadline(result.getBaseAlgorithmName(), stage);
+		AtomicReference<ResourceUsage> usage = new AtomicReference<>();
+		StageState state = new StageState();
+		Future<T> future = STAGE_EXECUTOR.submit(() -> {
+			if (!state.start()) {
+				return null;
+			}
+			ResourceMeter meter = ResourceMeter.start();
+			try {
+				return work.call();
+			} finally {
+				usage.set(meter.stop());
+				state.finish();
+			}
+		});
+
+		try {
+			T value = deadline > 0 ? future.get(deadline, TimeUnit.MILLISECONDS) : future.get();
+			result.setResourceUsage(stage, usage.get());
+			return value;
+		} catch (TimeoutException e) {
+			future.cancel(true);
+			onCancel.run();
+			throw new StageTimeoutException(stage, deadline, state.abandon());
+		} catch (InterruptedException e) {
+			future.cancel(true);
+			onCancel.run();
+			if (state.abandon()) {
+				throw new InterruptedException("Cancelled; " + stage.getLabel() + StageTimeoutException.STILL_RUNNING);
+			}
+			throw e;
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof Exception) {
+				throw (Exception) cause;
+			}
+			throw new Exception(cause.toString(), cause);
+		}
+	}
+
+	/**
+	 * Whether the work of a stage started, is running or was given up on.
+	 */
+	private static class StageState {
+		private boolean running;
+		private boolean abandoned;
+
+		synchronized boolean start() {
+			running = !abandoned;
+			return running;
+		}
+
+		synchronized void finish() {
+			running = false;
+			if (abandoned) {
+				ABANDONED_STAGES.decrementAndGet();
+			}
+			notifyAll();
+		}
+
+		/**
+		 * Gives up on the stage after it was cancelled. Returns true if its work ignored the interrupt and is still
+		 * running after the grace period.
+		 */
+		synchronized boolean abandon() {
+			long end = System.currentTimeMillis() + CANCEL_GRACE_MILLIS;
+			try {
+				for (long left = CANCEL_GRACE_MILLIS; running && left > 0; left = end - System.currentTimeMillis()) {
+					wait(left);
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			abandoned = true;
+			if (running) {
+				ABANDONED_STAGES.incrementAndGet();
+			}
+			return running;
+		}
+	}
+
+	private static void cancelProgress(UIPluginContext pluginContext) {
+		try {
+			pluginContext.getProgress().cancel();
+		} catch (Exception e) {
+			// Not every context has a progress to cancel
+		}
+	}
+}
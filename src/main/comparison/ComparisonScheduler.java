@@ -0,0 +1,153 @@
+package main.comparison;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Runs the comparison pipelines of several algorithms on a bounded pool of worker threads.
+ * Every algorithm has a memory hint in megabytes; a task only starts when its hint fits
+ * into the memory budget, so heavy miners do not all run at the same time.
+ */
+public class ComparisonScheduler {
+
+	private static final int DEFAULT_MEMORY_HINT_MB = 256;
+
+	private final int parallelism;
+	private final int memoryBudgetMb;
+	private final Map<String, Integer> memoryHints = new HashMap<>();
+	private final Map<Future<AlgorithmResult>, String> running = new ConcurrentHashMap<>();
+	private volatile boolean cancelled = false;
+
+	public ComparisonScheduler(int parallelism) {
+		this(parallelism, (int) (Runtime.getRuntime().maxMemory() / (1024 * 1024) * 3 / 4));
+	}
+
+	public ComparisonScheduler(int parallelism, int memoryBudgetMb) {
+		this.parallelism = Math.max(1, parallelism);
+		this.memoryBudgetMb = Math.max(1, memoryBudgetMb);
+
+		memoryHints.put("Inductive Miner", 256);
+		memoryHints.put("Evolutionary Tree Miner", 1024);
+		memoryHints.put("Split Miner", 512);
+		memoryHints.put("Heuristics Miner", 256);
+	}
+
+	public static int defaultParallelism() {
+		return Runtime.getRuntime().availableProcessors();
+	}
+
+	public int getParallelism() {
+		return parallelism;
+	}
+
+	public void setMemoryHint(String algorithmName, int megabytes) {
+		memoryHints.put(algorithmName, megabytes);
+	}
+
+	public int getMemoryHint(String algorithmName) {
+		// A single task may always run, even if its hint exceeds the whole budget
+		int hint = memoryHints.getOrDefault(algorithmName, DEFAULT_MEMORY_HINT_MB);
+		return Math.max(1, Math.min(hint, memoryBudgetMb));
+	}
+
+	/**
+	 * Cancels all runs of the current {@link #runAll} call. Running stages are interrupted and
+	 * asked to stop, algorithms that did not start yet are skipped. Their results are reported as cancelled.
+	 */
+	public void cancel() {
+		cancelled = true;
+		for (Future<AlgorithmResult> future : running.keySet()) {
+			future.cancel(true);
+		}
+	}
+
+	public boolean isCancelled() {
+		return cancelled;
+	}
+
+	/**
+	 * Runs the pipeline for every algorithm and blocks until all of them finished.
+	 * The consumer is called on the calling thread, in order of completion.
+	 */
+	public void runAll(List<String> algorithms, ComparisonPipeline pipeline, Consumer<AlgorithmResult> onResult)
+			throws InterruptedException {
+		runEach(algorithms, algorithmName -> algorithmName, pipeline::run,
+				(algorithmName, result) -> onResult.accept(result));
+	}
+
+	/**
+	 * Runs a task for every item, e.g. one configuration of a parameter sweep, under the same parallelism
+	 * and memory budget as {@link #runAll}. The memory hint is taken from the algorithm the item runs.
+	 * The consumer is called on the calling thread, in order of completion.
+	 */
+	public <T> void runEach(List<T> items, Function<T, String> algorithmOf, Function<T, AlgorithmResult> task,
+			BiConsumer<T, AlgorithmResult> onResult) throws InterruptedException {
+		if (items.isEmpty()) {
+			return;
+		}
+		Semaphore memory = new Semaphore(memoryBudgetMb, true);
+		AtomicInteger threadCount = new AtomicInteger();
+		ExecutorService executor = Executors.newFixedThreadPool(Math.min(parallelism, items.size()), r -> {
+			Thread thread = new Thread(r, "comparison-worker-" + threadCount.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+		ExecutorCompletionService<AlgorithmResult> completion = new ExecutorCompletionService<>(executor);
+		Map<Future<AlgorithmResult>, T> submitted = new HashMap<>();
+
+		try {
+			for (T item : items) {
+				String algorithmName = algorithmOf.apply(item);
+				int hint = getMemoryHint(algorithmName);
+				Future<AlgorithmResult> future = completion.submit(() -> {
+					memory.acquire(hint);
+					try {
+						return task.apply(item);
+					} finally {
+						memory.release(hint);
+					}
+				});
+				submitted.put(future, item);
+				running.put(future, algorithmName);
+			}
+			if (cancelled) {
+				cancel();
+			}
+
+			for (int i = 0; i < submitted.size(); i++) {
+				Future<AlgorithmResult> future = completion.take();
+				T item = submitted.get(future);
+				AlgorithmResult result;
+				running.remove(future);
+				try {
+					result = future.get();
+				} catch (CancellationException e) {
+					result = new AlgorithmResult(algorithmOf.apply(item));
+					result.setCancelled(true);
+					result.setError("Cancelled");
+				} catch (ExecutionException e) {
+					result = new AlgorithmResult(algorithmOf.apply(item));
+					Throwable cause = e.getCause() != null ? e.getCause() : e;
+					result.setError(cause.getMessage() != null ? cause.getMessage() : cause.toString());
+				}
+				onResult.accept(item, result);
+			}
+		} finally {
+			running.clear();
+			executor.shutdownNow();
+		}
+	}
+}
@@ -0,0 +1,128 @@
+package main.comparison;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.OperatingSystemMXBean;
+import java.lang.management.ThreadMXBean;
+
+/**
+ * Measures the {@link ResourceUsage} of work done on the current thread between {@link #start()} and
+ * {@link #stop()}, from the platform MXBeans. Allocation and process CPU time need the
+ * com.sun.management extensions of HotSpot; without them they are reported as -1.
+ *
+ * Peak heap usage can only be reset for the whole process, so it is reported only by a meter that ran while no
+ * other meter did; stages that overlap another report it as -1.
+ */
+class ResourceMeter {
+
+	private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+	private static final OperatingSystemMXBean OS = ManagementFactory.getOperatingSystemMXBean();
+
+	// Meters running and meters started so far, guarded by the class
+	private static int running;
+	private static long started;
+
+	private final long threadId;
+	private final long startCpu;
+	private final long startProcessCpu;
+	private final long startAllocated;
+	private final long startGcCount;
+	private final long startGcMillis;
+	private final long sequence;
+	private final boolean alone;
+
+	private ResourceMeter() {
+		threadId = Thread.currentThread().getId();
+
+		synchronized (ResourceMeter.class) {
+			alone = running++ == 0;
+			sequence = ++started;
+			// Peak usage is tracked per pool since the last reset; the sum over the heap pools approximates the peak heap
+			if (alone) {
+				for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+					if (pool.getType() == MemoryType.HEAP && pool.isValid()) {
+						pool.resetPeakUsage();
+					}
+				}
+			}
+		}
+
+		startCpu = threadCpuTime();
+		startProcessCpu = processCpuTime();
+		startAllocated = allocatedBytes(threadId);
+		startGcCount = gcCount();
+		startGcMillis = gcMillis();
+	}
+
+	static ResourceMeter start() {
+		return new ResourceMeter();
+	}
+
+	/**
+	 * Must be called once, on the thread that called {@link #start()}.
+	 */
+	ResourceUsage stop() {
+		long cpu = threadCpuTime();
+		long processCpu = processCpuTime();
+		long allocated = allocatedBytes(threadId);
+
+		long peakHeap = -1;
+		synchronized (ResourceMeter.class) {
+			running--;
+			if (alone && started == sequence) {
+				peakHeap = 0;
+				for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+					if (pool.getType() == MemoryType.HEAP && pool.isValid() && pool.getPeakUsage() != null) {
+						peakHeap += pool.getPeakUsage().getUsed();
+					}
+				}
+			}
+		}
+
+		return new ResourceUsage(delta(startCpu, cpu), delta(startProcessCpu, processCpu),
+				delta(startAllocated, allocated), gcCount() - startGcCount, gcMillis() - startGcMillis, peakHeap);
+	}
+
+	private static long delta(long start, long end) {
+		return start >= 0 && end >= 0 ? end - start : -1;
+	}
+
+	private static long threadCpuTime() {
+		return THREADS.isCurrentThreadCpuTimeSupported() ? THREADS.getCurrentThreadCpuTime() : -1;
+	}
+
+	private static long processCpuTime() {
+		if (OS instanceof com.sun.management.OperatingSystemMXBean) {
+			return ((com.sun.management.OperatingSystemMXBean) OS).getProcessCpuTime();
+		}
+		return -1;
+	}
+
+	private static long allocatedBytes(long threadId) {
+		if (THREADS instanceof com.sun.management.ThreadMXBean) {
+			com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) THREADS;
+			if (threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled()) {
+				return threads.getThreadAllocatedBytes(threadId);
+			}
+		}
+		return -1;
+	}
+
+	private static long gcCount() {
+		long count = 0;
+		for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+			count += Math.max(0, gc.getCollectionCount());
+		}
+		return count;
+	}
+
+	private static long gcMillis() {
+		long millis = 0;
+		for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+			millis += Math.max(0, gc.getCollectionTime());
+		}
+		return millis;
+	}
+}
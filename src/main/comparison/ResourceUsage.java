@@ -0,0 +1,63 @@
+package main.comparison;
+
+/**
+ * Resources used by one stage of a comparison run.
+ *
+ * CPU time and allocated bytes are those of the thread that ran the stage; work the stage hands to
+ * other threads (the replayer pools) only shows up in the process CPU time. Process CPU time and GC figures
+ * are process wide, so they are exact only when runs do not overlap (parallel runs = 1). Peak heap is only
+ * measured for stages that did not overlap another stage.
+ */
+public class ResourceUsage {
+
+	private final long cpuNanos;
+	private final long processCpuNanos;
+	private final long allocatedBytes;
+	private final long gcCount;
+	private final long gcMillis;
+	private final long peakHeapBytes;
+
+	public ResourceUsage(long cpuNanos, long processCpuNanos, long allocatedBytes, long gcCount, long gcMillis,
+			long peakHeapBytes) {
+		this.cpuNanos = cpuNanos;
+		this.processCpuNanos = processCpuNanos;
+		this.allocatedBytes = allocatedBytes;
+		this.gcCount = gcCount;
+		this.gcMillis = gcMillis;
+		this.peakHeapBytes = peakHeapBytes;
+	}
+
+	/** Figures that are not available on this JVM are -1. */
+	public long getCpuNanos() {
+		return cpuNanos;
+	}
+
+	public long getProcessCpuNanos() {
+		return processCpuNanos;
+	}
+
+	public long getAllocatedBytes() {
+		return allocatedBytes;
+	}
+
+	public long getGcCount() {
+		return gcCount;
+	}
+
+	public long getGcMillis() {
+		return gcMillis;
+	}
+
+	/** -1 when the stage overlapped another stage and its peak could not be told apart. */
+	public long getPeakHeapBytes() {
+		return peakHeapBytes;
+	}
+
+	@Override
+	public String toString() {
+		String peakHeap = peakHeapBytes >= 0 ? String.format("%.1f MB", peakHeapBytes / (1024.0 * 1024.0)) : "n/a";
+		return String.format("CPU %d ms (process %d ms), allocated %.1f MB, GC %d (%d ms), peak heap %s",
+				cpuNanos / 1_000_000, processCpuNanos / 1_000_000, allocatedBytes / (1024.0 * 1024.0), gcCount,
+				gcMillis, peakHeap);
+	}
+}
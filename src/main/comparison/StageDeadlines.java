@@ -0,0 +1,76 @@
+package main.comparison;
+
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Time budgets for the stages of a comparison run.
+ * Every stage has a default budget which can be overridden per algorithm. A budget of 0 means no limit.
+ */
+public class StageDeadlines {
+
+	public enum Stage {
+		MINE("mining"), REDUCE("reduction"), SOUNDNESS("soundness"), ALIGN("alignment"), PRECISION("precision");
+
+		private final String label;
+
+		Stage(String label) {
+			this.label = label;
+		}
+
+		public String getLabel() {
+			return label;
+		}
+	}
+
+	private final Map<Stage, Long> defaults = new EnumMap<>(Stage.class);
+	private final Map<String, Map<Stage, Long>> overrides = new HashMap<>();
+
+	public StageDeadlines() {
+		defaults.put(Stage.MINE, 10 * 60 * 1000L);
+		defaults.put(Stage.REDUCE, 2 * 60 * 1000L);
+		defaults.put(Stage.SOUNDNESS, 2 * 60 * 1000L);
+		defaults.put(Stage.ALIGN, 10 * 60 * 1000L);
+		defaults.put(Stage.PRECISION, 10 * 60 * 1000L);
+
+		// The genetic miner runs until its generation limit, give it more room than the others
+		setDeadline("Evolutionary Tree Miner", Stage.MINE, 30 * 60 * 1000L);
+	}
+
+	public synchronized long getDeadline(String algorithmName, Stage stage) {
+		Map<Stage, Long> algorithmOverrides = overrides.get(algorithmName);
+		if (algorithmOverrides != null && algorithmOverrides.containsKey(stage)) {
+			return algorithmOverrides.get(stage);
+		}
+		return defaults.get(stage);
+	}
+
+	public synchronized void setDeadline(String algorithmName, Stage stage, long millis) {
+		overrides.computeIfAbsent(algorithmName, k -> new EnumMap<>(Stage.class)).put(stage, Math.max(0, millis));
+	}
+
+	/**
+	 * Drops the override of the algorithm, so the stage falls back to the default budget.
+	 */
+	public synchronized void removeDeadline(String algorithmName, Stage stage) {
+		Map<Stage, Long> algorithmOverrides = overrides.get(algorithmName);
+		if (algorithmOverrides != null) {
+			algorithmOverrides.remove(stage);
+		}
+	}
+
+	/**
+	 * Budget of the stage for algorithms without an override.
+	 */
+	public synchronized long getDefault(Stage stage) {
+		return defaults.get(stage);
+	}
+
+	/**
+	 * Sets the budget of the stage for algorithms without an override; overrides are kept.
+	 */
+	public synchronized void setDefault(Stage stage, long millis) {
+		defaults.put(stage, Math.max(0, millis));
+	}
+}
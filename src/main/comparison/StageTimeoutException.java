@@ -0,0 +1,27 @@
+package main.comparison;
+
+import main.comparison.StageDeadlines.Stage;
+
+/**
+ * Thrown when a stage of a comparison run exceeds its time budget.
+ */
+public class StageTimeoutException extends Exception {
+
+	private static final long serialVersionUID = 1L;
+
+	/** Appended to the message when the stage ignored the interrupt. */
+	public static final String STILL_RUNNING = " ignores interrupts and is still running in the background";
+
+	private final Stage stage;
+
+	public StageTimeoutException(Stage stage, long millis, boolean stillRunning) {
+		super("Timed out during " + stage.getLabel() + " after "
+				+ (millis < 1000 ? millis + " ms" : (millis / 1000) + " s")
+				+ (stillRunning ? "; " + stage.getLabel() + STILL_RUNNING : ""));
+		this.stage = stage;
+	}
+
+	public Stage getStage() {
+		return stage;
+	}
+}
@@ -0,0 +1,72 @@
+package main.comparison;
+
+import java.util.Arrays;
+
+/**
+ * Summary of repeated timings of the same work, measured with {@link System#nanoTime()}.
+ * Percentiles use the nearest rank of the sorted samples; the standard deviation is the sample deviation.
+ */
+public final class TimingStats {
+
+	private final long[] sortedNanos;
+	private final double meanNanos;
+	private final double stdDevNanos;
+
+	private TimingStats(long[] nanos) {
+		this.sortedNanos = nanos.clone();
+		Arrays.sort(sortedNanos);
+
+		double sum = 0;
+		for (long n : sortedNanos) {
+			sum += n;
+		}
+		meanNanos = sortedNanos.length > 0 ? sum / sortedNanos.length : 0;
+
+		double squares = 0;
+		for (long n : sortedNanos) {
+			squares += (n - meanNanos) * (n - meanNanos);
+		}
+		stdDevNanos = sortedNanos.length > 1 ? Math.sqrt(squares / (sortedNanos.length - 1)) : 0;
+	}
+
+	public static TimingStats of(long[] nanos) {
+		return new TimingStats(nanos);
+	}
+
+	public int getRuns() {
+		return sortedNanos.length;
+	}
+
+	public double getMedianMillis() {
+		int n = sortedNanos.length;
+		if (n == 0) {
+			return 0;
+		}
+		double median = n % 2 == 1 ? sortedNanos[n / 2] : (sortedNanos[n / 2 - 1] + sortedNanos[n / 2]) / 2.0;
+		return median / 1e6;
+	}
+
+	/**
+	 * Value below which the given fraction of the runs fall, e.g. 0.9 for p90.
+	 */
+	public double getPercentileMillis(double fraction) {
+		int n = sortedNanos.length;
+		if (n == 0) {
+			return 0;
+		}
+		int rank = (int) Math.ceil(fraction * n);
+		return sortedNanos[Math.max(0, Math.min(n - 1, rank - 1))] / 1e6;
+	}
+
+	public double getMeanMillis() {
+		return meanNanos / 1e6;
+	}
+
+	public double getStdDevMillis() {
+		return stdDevNanos / 1e6;
+	}
+
+	public double getMinMillis() {
+		return sortedNanos.length > 0 ? sortedNanos[0] / 1e6 : 0;
+	}
+}
@@ -0,0 +1,702 @@
+package main.conformance;
+
+import java.util.Arrays;
+
+import nl.tue.astar.AStarThread.Canceller;
+
+/**
+ * A* search for optimal alignments over the synchronous product of a {@link CompiledNet} and a trace.
+ *
+ * A search state is a marking plus a position in the trace. Markings are packed four places to a long
+ * (16 bit token counts) and all states of a search live in flat primitive arrays: the packed markings,
+ * an open addressing table to find visited states and a binary heap ordered by g + h.
+ * The arrays are kept between calls, so one aligner aligns many traces without new allocations.
+ * An aligner is not thread safe; use one instance per thread.
+ *
+ * A trace is first searched with a cheap heuristic, the cost of the remaining events whose activity no
+ * transition can synchronise with, for a few states per event; that aligns most traces. Traces it does not
+ * finish are searched again with the marking equation of the synchronous product, see {@link MarkingEquation},
+ * as in the ProM replayer, and with the cheap heuristic after all if the equation hardly ever gives a higher
+ * bound, as among many silent transitions where it does not pay for its linear programs.
+ *
+ * Linear programs are only solved for states taken from the queue: a new state first gets the bound of its
+ * parent minus the cost of the move, which is exact when the parent's solution contains the move, and is
+ * otherwise solved and put back in the queue when its bound rises. States from which the final marking cannot
+ * be reached are dropped. Both heuristics are admissible and consistent, so the first goal state taken from
+ * the queue has the optimal cost.
+ */
+public class AStarAligner {
+
+	public static final byte SYNC_MOVE = 0;
+	public static final byte LOG_MOVE = 1;
+	public static final byte MODEL_MOVE = 2;
+
+	private static final int NONE = -1;
+	private static final int MAX_TOKENS = 0xFFFF;
+	private static final double EPSILON = 1e-6;
+	private static final int QUICK_STATES_PER_EVENT = 64;
+	// The equation must raise at least one in this many solved bounds to be worth its cost
+	private static final int MIN_SOLVES = 1000;
+	private static final int SOLVES_PER_RAISE = 20;
+
+	private final CompiledNet net;
+	private final int[] transitionActivity;
+	private final int[] modelMoveCost;
+	private final int[] logMoveCost;
+	private final boolean[] activitySyncable;
+	private final MarkingEquation equation;
+	private final int words;
+	private final long[] finalWords;
+
+	private int maxStates = Integer.MAX_VALUE;
+	private Canceller canceller;
+
+	// Per state data, indexed by state id
+	private long[] markings;
+	private int[] tracePos;
+	private int[] g;
+	private int[] f;
+	private int[] parent;
+	private int[] move;
+	private byte[] moveType;
+	private boolean[] closed;
+	private int[] heapPos;
+	// Heuristic of every state, whether it is the solved bound and, while the state is open, its solution
+	private int[] h;
+	private boolean[] exact;
+	private Solution[] solutions;
+	private int stateCount;
+
+	// Visited table, entries of older searches are ignored through the stamp
+	private int[] table;
+	private int[] tableStamp;
+	private int stamp;
+
+	private int[] heap;
+	private int heapSize;
+
+	// Scratch space for expanding a state
+	private final int[] current;
+	private final int[] next;
+	private final long[] packed;
+	private final double[] solution;
+	private final int[] remaining;
+	// Cost of the remaining events that can only be log moves, and of those the marking equation leaves out
+	private int[] remainingBound = new int[16];
+	private int[] unknownBound = new int[16];
+	private int[] trace = new int[0];
+	private boolean useEquation;
+	private boolean equationUnproductive;
+
+	private int queued;
+	private int traversedArcs;
+
+	/**
+	 * @param net                the compiled net, with initial and final marking
+	 * @param transitionActivity for every transition the activity it synchronises with, or -1 if it never does
+	 * @param modelMoveCost      cost of a move on model for every transition
+	 * @param logMoveCost        cost of a move on log for every activity
+	 */
+	public AStarAligner(CompiledNet net, int[] transitionActivity, int[] modelMoveCost, int[] logMoveCost) {
+		this.net = net;
+		this.transitionActivity = transitionActivity;
+		this.modelMoveCost = modelMoveCost;
+		this.logMoveCost = logMoveCost;
+
+		activitySyncable = new boolean[logMoveCost.length];
+		for (int activity : transitionActivity) {
+			if (activity >= 0 && activity < activitySyncable.length) {
+				activitySyncable[activity] = true;
+			}
+		}
+
+		int placeCount = net.getPlaceCount();
+		words = Math.max(1, (placeCount + 3) / 4);
+		current = new int[placeCount];
+		next = new int[placeCount];
+		packed = new long[words];
+		finalWords = new long[words];
+		pack(net.getFinalMarking(), finalWords);
+		equation = new MarkingEquation(net, transitionActivity, modelMoveCost, logMoveCost);
+		solution = new double[equation.getVariableCount()];
+		remaining = new int[logMoveCost.length];
+
+		allocate(1024);
+		table = new int[2048];
+		tableStamp = new int[2048];
+		heap = new int[1024];
+	}
+
+	public void setMaxStates(int maxStates) {
+		this.maxStates = maxStates;
+	}
+
+	public void setCanceller(Canceller canceller) {
+		this.canceller = canceller;
+	}
+
+	/**
+	 * Aligns a trace given as activity indices. Activities outside the log move cost table cost 1.
+	 */
+	public Result align(int[] trace) {
+		long startTime = System.currentTimeMillis();
+		int quickStates = (int) Math.min(maxStates, (long) QUICK_STATES_PER_EVENT * (trace.length + 1));
+		Result result = search(trace, false, quickStates);
+		if (!result.reliable && quickStates < maxStates && (canceller == null || !canceller.isCancelled())) {
+			int lowerBound = result.lowerBound;
+			int searched = result.states;
+			result = search(trace, true, maxStates);
+			if (equationUnproductive) {
+				// The bounds hardly ever rise above the cheap one, e.g. among many silent transitions
+				lowerBound = Math.max(lowerBound, result.lowerBound);
+				searched += result.states;
+				result = search(trace, false, maxStates);
+			}
+			result.lowerBound = Math.max(result.lowerBound, lowerBound);
+			result.states += searched;
+		}
+		result.milliseconds = System.currentTimeMillis() - startTime;
+		return result;
+	}
+
+	private Result search(int[] trace, boolean useEquation, int maxStates) {
+		this.useEquation = useEquation;
+		equationUnproductive = false;
+		reset(trace);
+		int solves = 0;
+		int raises = 0;
+
+		int start = insert(net.getInitialMarking(), 0);
+		g[start] = 0;
+		h[start] = remainingBound[0];
+		exact[start] = !useEquation;
+		if (!useEquation || evaluate(start)) {
+			f[start] = h[start];
+			push(start);
+		}
+
+		int goal = NONE;
+		boolean reliable = true;
+		int lowerBound = 0;
+
+		while (heapSize > 0) {
+			int state = pop();
+			// States leave the queue in order of f, so no alignment is cheaper than this
+			lowerBound = Math.max(lowerBound, f[state]);
+
+			if (!exact[state]) {
+				if (++solves >= MIN_SOLVES && raises * SOLVES_PER_RAISE < solves) {
+					equationUnproductive = true;
+					reliable = false;
+					break;
+				}
+				int estimate = h[state];
+				if (!evaluate(state)) {
+					// The final marking cannot be reached from here
+					raises++;
+					closed[state] = true;
+					continue;
+				}
+				if (h[state] > estimate) {
+					raises++;
+					f[state] = g[state] + h[state];
+					push(state);
+					continue;
+				}
+			}
+			closed[state] = true;
+
+			if (tracePos[state] == trace.length && isFinal(state)) {
+				goal = state;
+				break;
+			}
+			if (stateCount >= maxStates || (canceller != null && canceller.isCancelled())) {
+				reliable = false;
+				break;
+			}
+			if (!expand(state, trace)) {
+				reliable = false;
+				break;
+			}
+			solutions[state] = null;
+		}
+
+		Result result = goal != NONE ? buildResult(goal) : new Result();
+		result.reliable = reliable && goal != NONE;
+		result.lowerBound = goal != NONE ? result.cost : lowerBound;
+		result.states = stateCount;
+		result.queued = queued;
+		result.traversedArcs = traversedArcs;
+		return result;
+	}
+
+	private void reset(int[] trace) {
+		stateCount = 0;
+		heapSize = 0;
+		queued = 0;
+		traversedArcs = 0;
+		if (++stamp == 0) {
+			Arrays.fill(tableStamp, 0);
+			stamp = 1;
+		}
+
+		this.trace = trace;
+		if (remainingBound.length < trace.length + 1) {
+			remainingBound = new int[trace.length + 1];
+			unknownBound = new int[trace.length + 1];
+		}
+		remainingBound[trace.length] = 0;
+		unknownBound[trace.length] = 0;
+		for (int i = trace.length - 1; i >= 0; i--) {
+			int activity = trace[i];
+			boolean known = activity >= 0 && activity < activitySyncable.length;
+			boolean syncable = known && activitySyncable[activity];
+			remainingBound[i] = remainingBound[i + 1] + (syncable ? 0 : logCost(activity));
+			unknownBound[i] = unknownBound[i + 1] + (known ? 0 : logCost(activity));
+		}
+	}
+
+	/**
+	 * Solves the marking equation for the state and makes its heuristic exact. Returns false if the final marking
+	 * cannot be reached from the state. When the solver gives up the state keeps its bound, without a solution.
+	 */
+	private boolean evaluate(int state) {
+		int pos = tracePos[state];
+		unpack(state, current);
+		Arrays.fill(remaining, 0);
+		for (int i = pos; i < trace.length; i++) {
+			if (trace[i] >= 0 && trace[i] < remaining.length) {
+				remaining[trace[i]]++;
+			}
+		}
+
+		int bound = equation.solve(current, remaining, solution);
+		if (bound == MarkingEquation.INFEASIBLE) {
+			return false;
+		}
+		exact[state] = true;
+		if (bound != MarkingEquation.UNKNOWN) {
+			h[state] = Math.max(h[state], bound + unknownBound[pos]);
+			solutions[state] = Solution.of(solution);
+		}
+		return true;
+	}
+
+	/**
+	 * Generates all successors of a state. Returns false if a marking exceeds the packed token range.
+	 */
+	private boolean expand(int state, int[] trace) {
+		int pos = tracePos[state];
+		unpack(state, current);
+		int activity = pos < trace.length ? trace[pos] : NONE;
+
+		// Move on log
+		if (pos < trace.length) {
+			relax(state, current, pos + 1, logCost(activity), LOG_MOVE, pos, equation.logVariable(activity));
+		}
+
+		for (int t = 0; t < transitionActivity.length; t++) {
+			if (!net.isEnabled(current, t)) {
+				continue;
+			}
+			System.arraycopy(current, 0, next, 0, current.length);
+			net.fire(next, t);
+			if (!fits(next)) {
+				return false;
+			}
+
+			// Synchronous move, free of cost
+			if (activity != NONE && transitionActivity[t] == activity) {
+				relax(state, next, pos + 1, 0, SYNC_MOVE, t, equation.syncVariable(t));
+			}
+			// Move on model
+			relax(state, next, pos, modelMoveCost[t], MODEL_MOVE, t, equation.modelVariable(t));
+		}
+		return true;
+	}
+
+	/**
+	 * Reaches a state through a move. The variable is the one of the move in the marking equation, -1 for log
+	 * moves of activities it leaves out.
+	 */
+	private void relax(int from, int[] marking, int pos, int cost, byte type, int moveIndex, int variable) {
+		traversedArcs++;
+		int newG = g[from] + cost;
+
+		int state = find(marking, pos);
+		boolean reached = state == NONE;
+		if (reached) {
+			state = insert(marking, pos);
+		} else if (closed[state] || newG >= g[state]) {
+			return;
+		}
+
+		// Taking the move out of the parent's solution solves the equation for this state
+		Solution parentSolution = solutions[from];
+		boolean derived = parentSolution != null && (variable < 0 || parentSolution.get(variable) >= 1 - EPSILON);
+		if (!useEquation) {
+			h[state] = remainingBound[pos];
+			exact[state] = true;
+		} else if (reached || (derived && !exact[state])) {
+			h[state] = Math.max(h[from] - cost, remainingBound[pos]);
+			exact[state] = derived;
+			solutions[state] = derived ? (variable < 0 ? parentSolution : parentSolution.minusOne(variable)) : null;
+		}
+
+		g[state] = newG;
+		f[state] = newG + h[state];
+		parent[state] = from;
+		move[state] = moveIndex;
+		moveType[state] = type;
+
+		if (heapPos[state] == NONE) {
+			push(state);
+		} else {
+			// A solved bound can outweigh the cheaper path, so the key may move either way
+			siftUp(heapPos[state]);
+			siftDown(heapPos[state]);
+		}
+	}
+
+	private Result buildResult(int goal) {
+		int length = 0;
+		for (int s = goal; parent[s] != NONE; s = parent[s]) {
+			length++;
+		}
+
+		Result result = new Result();
+		result.cost = g[goal];
+		result.moveTypes = new byte[length];
+		result.moves = new int[length];
+		int i = length - 1;
+		for (int s = goal; parent[s] != NONE; s = parent[s]) {
+			result.moveTypes[i] = moveType[s];
+			result.moves[i] = move[s];
+			i--;
+		}
+		return result;
+	}
+
+	private int logCost(int activity) {
+		return activity >= 0 && activity < logMoveCost.length ? logMoveCost[activity] : 1;
+	}
+
+	// ----- state storage -----
+
+	private void allocate(int capacity) {
+		markings = new long[capacity * words];
+		tracePos = new int[capacity];
+		g = new int[capacity];
+		f = new int[capacity];
+		parent = new int[capacity];
+		move = new int[capacity];
+		moveType = new byte[capacity];
+		closed = new boolean[capacity];
+		heapPos = new int[capacity];
+		h = new int[capacity];
+		exact = new boolean[capacity];
+		solutions = new Solution[capacity];
+	}
+
+	private void grow() {
+		int capacity = tracePos.length * 2;
+		markings = Arrays.copyOf(markings, capacity * words);
+		tracePos = Arrays.copyOf(tracePos, capacity);
+		g = Arrays.copyOf(g, capacity);
+		f = Arrays.copyOf(f, capacity);
+		parent = Arrays.copyOf(parent, capacity);
+		move = Arrays.copyOf(move, capacity);
+		moveType = Arrays.copyOf(moveType, capacity);
+		closed = Arrays.copyOf(closed, capacity);
+		heapPos = Arrays.copyOf(heapPos, capacity);
+		h = Arrays.copyOf(h, capacity);
+		exact = Arrays.copyOf(exact, capacity);
+		solutions = Arrays.copyOf(solutions, capacity);
+	}
+
+	private boolean fits(int[] marking) {
+		for (int tokens : marking) {
+			if (tokens > MAX_TOKENS) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private void pack(int[] marking, long[] target) {
+		Arrays.fill(target, 0L);
+		for (int p = 0; p < marking.length; p++) {
+			target[p >> 2] |= ((long) marking[p]) << ((p & 3) << 4);
+		}
+	}
+
+	private void unpack(int state, int[] target) {
+		int base = state * words;
+		for (int p = 0; p < target.length; p++) {
+			target[p] = (int) ((markings[base + (p >> 2)] >>> ((p & 3) << 4)) & MAX_TOKENS);
+		}
+	}
+
+	private boolean isFinal(int state) {
+		int base = state * words;
+		for (int w = 0; w < words; w++) {
+			if (markings[base + w] != finalWords[w]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private int hash(long[] words, int pos) {
+		long h = pos * 0x9E3779B97F4A7C15L;
+		for (long w : words) {
+			h = (h ^ w) * 0x9E3779B97F4A7C15L;
+		}
+		return (int) (h ^ (h >>> 32));
+	}
+
+	private int hashOf(int state) {
+		long h = tracePos[state] * 0x9E3779B97F4A7C15L;
+		int base = state * words;
+		for (int w = 0; w < words; w++) {
+			h = (h ^ markings[base + w]) * 0x9E3779B97F4A7C15L;
+		}
+		return (int) (h ^ (h >>> 32));
+	}
+
+	private int find(int[] marking, int pos) {
+		pack(marking, packed);
+		int mask = table.length - 1;
+		int slot = hash(packed, pos) & mask;
+
+		while (tableStamp[slot] == stamp) {
+			int state = table[slot];
+			if (tracePos[state] == pos && sameMarking(state, packed)) {
+				return state;
+			}
+			slot = (slot + 1) & mask;
+		}
+		return NONE;
+	}
+
+	private boolean sameMarking(int state, long[] words) {
+		int base = state * this.words;
+		for (int w = 0; w < this.words; w++) {
+			if (markings[base + w] != words[w]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private int insert(int[] marking, int pos) {
+		if (stateCount == tracePos.length) {
+			grow();
+		}
+		if ((stateCount + 1) * 2 > table.length) {
+			rehash(table.length * 2);
+		}
+
+		int state = stateCount++;
+		pack(marking, packed);
+		System.arraycopy(packed, 0, markings, state * words, words);
+		tracePos[state] = pos;
+		g[state] = Integer.MAX_VALUE;
+		parent[state] = NONE;
+		move[state] = NONE;
+		closed[state] = false;
+		heapPos[state] = NONE;
+		h[state] = 0;
+		exact[state] = false;
+		solutions[state] = null;
+
+		place(state, hash(packed, pos));
+		return state;
+	}
+
+	private void place(int state, int hash) {
+		int mask = table.length - 1;
+		int slot = hash & mask;
+		while (tableStamp[slot] == stamp) {
+			slot = (slot + 1) & mask;
+		}
+		table[slot] = state;
+		tableStamp[slot] = stamp;
+	}
+
+	private void rehash(int capacity) {
+		table = new int[capacity];
+		tableStamp = new int[capacity];
+		for (int state = 0; state < stateCount; state++) {
+			place(state, hashOf(state));
+		}
+	}
+
+	// ----- priority queue -----
+
+	/**
+	 * Lower f first; on ties prefer states further in the trace, they are closer to a goal, and then states
+	 * whose bound is already solved.
+	 */
+	private boolean before(int a, int b) {
+		if (f[a] != f[b]) {
+			return f[a] < f[b];
+		}
+		if (tracePos[a] != tracePos[b]) {
+			return tracePos[a] > tracePos[b];
+		}
+		return exact[a] && !exact[b];
+	}
+
+	private void push(int state) {
+		if (heapSize == heap.length) {
+			heap = Arrays.copyOf(heap, heap.length * 2);
+		}
+		heap[heapSize] = state;
+		heapPos[state] = heapSize;
+		heapSize++;
+		queued++;
+		siftUp(heapSize - 1);
+	}
+
+	private int pop() {
+		int top = heap[0];
+		heapPos[top] = NONE;
+		heapSize--;
+		if (heapSize > 0) {
+			heap[0] = heap[heapSize];
+			heapPos[heap[0]] = 0;
+			siftDown(0);
+		}
+		return top;
+	}
+
+	private void siftUp(int index) {
+		int state = heap[index];
+		while (index > 0) {
+			int parentIndex = (index - 1) >> 1;
+			int other = heap[parentIndex];
+			if (!before(state, other)) {
+				break;
+			}
+			heap[index] = other;
+			heapPos[other] = index;
+			index = parentIndex;
+		}
+		heap[index] = state;
+		heapPos[state] = index;
+	}
+
+	private void siftDown(int index) {
+		int state = heap[index];
+		while (true) {
+			int child = 2 * index + 1;
+			if (child >= heapSize) {
+				break;
+			}
+			if (child + 1 < heapSize && before(heap[child + 1], heap[child])) {
+				child++;
+			}
+			if (!before(heap[child], state)) {
+				break;
+			}
+			heap[index] = heap[child];
+			heapPos[heap[index]] = index;
+			index = child;
+		}
+		heap[index] = state;
+		heapPos[state] = index;
+	}
+
+	/**
+	 * The non-zero variables of a solution of the marking equation; most moves are not in it.
+	 */
+	private static final class Solution {
+		private final int[] variables;
+		private final double[] values;
+
+		private Solution(int[] variables, double[] values) {
+			this.variables = variables;
+			this.values = values;
+		}
+
+		static Solution of(double[] solution) {
+			int size = 0;
+			for (double value : solution) {
+				if (value > EPSILON) {
+					size++;
+				}
+			}
+			int[] variables = new int[size];
+			double[] values = new double[size];
+			int i = 0;
+			for (int v = 0; v < solution.length; v++) {
+				if (solution[v] > EPSILON) {
+					variables[i] = v;
+					values[i++] = solution[v];
+				}
+			}
+			return new Solution(variables, values);
+		}
+
+		double get(int variable) {
+			for (int i = 0; i < variables.length; i++) {
+				if (variables[i] == variable) {
+					return values[i];
+				}
+			}
+			return 0;
+		}
+
+		/**
+		 * The solution with one move less of the variable, which must be in it at least once.
+		 */
+		Solution minusOne(int variable) {
+			for (int i = 0; i < variables.length; i++) {
+				if (variables[i] == variable) {
+					if (values[i] - 1 > EPSILON) {
+						double[] newValues = values.clone();
+						newValues[i] -= 1;
+						return new Solution(variables, newValues);
+					}
+					int[] newVariables = new int[variables.length - 1];
+					double[] newValues = new double[variables.length - 1];
+					System.arraycopy(variables, 0, newVariables, 0, i);
+					System.arraycopy(variables, i + 1, newVariables, i, variables.length - i - 1);
+					System.arraycopy(values, 0, newValues, 0, i);
+					System.arraycopy(values, i + 1, newValues, i, values.length - i - 1);
+					return new Solution(newVariables, newValues);
+				}
+			}
+			return this;
+		}
+	}
+
+	/**
+	 * Outcome of aligning one trace. For every move the type and either the transition index
+	 * (sync and model moves) or the event position in the trace (log moves).
+	 * When the search stopped early there are no moves and only the lower bound on the cost is known.
+	 */
+	public static class Result {
+		private int cost;
+		private int lowerBound;
+		private boolean reliable;
+		private byte[] moveTypes = new byte[0];
+		private int[] moves = new int[0];
+		private int states;
+		private int queued;
+		private int traversedArcs;
+		private long milliseconds;
+
+		public int getCost() { return cost; }
+		public int getLowerBound() { return lowerBound; }
+		public boolean isReliable() { return reliable; }
+		public int size() { return moves.length; }
+		public byte getMoveType(int i) { return moveTypes[i]; }
+		public int getMove(int i) { return moves[i]; }
+		public int getStates() { return states; }
+		public int getQueued() { return queued; }
+		public int getTraversedArcs() { return traversedArcs; }
+		public long getMilliseconds() { return milliseconds; }
+	}
+}
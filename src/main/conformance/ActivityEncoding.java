@@ -0,0 +1,71 @@
+package main.conformance;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.deckfour.xes.classification.XEventClass;
+import org.deckfour.xes.classification.XEventClasses;
+import org.processmining.models.graphbased.directed.petrinet.elements.Transition;
+import org.processmining.plugins.connectionfactories.logpetrinet.TransEvClassMapping;
+
+/**
+ * Numbers the event classes of a log and links every transition of a {@link CompiledNet}
+ * to the activity it is mapped to, so replay code can work on int traces.
+ * Transitions that are mapped to the dummy class or not mapped at all get activity -1.
+ */
+class ActivityEncoding {
+
+	private final CompiledNet net;
+	private final TransEvClassMapping mapping;
+	private final List<XEventClass> activities = new ArrayList<>();
+	private final Map<String, Integer> activityIndex = new HashMap<>();
+	private final int[] transitionActivity;
+
+	ActivityEncoding(CompiledNet net, TransEvClassMapping mapping, XEventClasses eventClasses) {
+		this.net = net;
+		this.mapping = mapping;
+
+		for (XEventClass evClass : eventClasses.getClasses()) {
+			activityIndex.put(evClass.getId(), activities.size());
+			activities.add(evClass);
+		}
+
+		transitionActivity = new int[net.getTransitionCount()];
+		for (int t = 0; t < transitionActivity.length; t++) {
+			XEventClass evClass = mapping.get(net.getTransition(t));
+			Integer activity = evClass != null ? activityIndex.get(evClass.getId()) : null;
+			transitionActivity[t] = activity != null && !evClass.equals(mapping.getDummyEventClass()) ? activity : -1;
+		}
+	}
+
+	CompiledNet getNet() {
+		return net;
+	}
+
+	int getActivityCount() {
+		return activities.size();
+	}
+
+	XEventClass getActivity(int activity) {
+		return activity >= 0 ? activities.get(activity) : mapping.getDummyEventClass();
+	}
+
+	int[] getTransitionActivities() {
+		return transitionActivity;
+	}
+
+	int[] encode(List<String> variant) {
+		int[] trace = new int[variant.size()];
+		for (int i = 0; i < trace.length; i++) {
+			Integer activity = activityIndex.get(variant.get(i));
+			trace[i] = activity != null ? activity : -1;
+		}
+		return trace;
+	}
+
+	Transition getTransition(int transition) {
+		return net.getTransition(transition);
+	}
+}
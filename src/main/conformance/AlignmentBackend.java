@@ -0,0 +1,19 @@
+package main.conformance;
+
+/**
+ * Engines that can compute the alignments of a {@link ConformanceSession}.
+ */
+public enum AlignmentBackend {
+	PROM_ILP("ProM A* (ILP)"), NATIVE("Built-in A*");
+
+	private final String label;
+
+	AlignmentBackend(String label) {
+		this.label = label;
+	}
+
+	@Override
+	public String toString() {
+		return label;
+	}
+}
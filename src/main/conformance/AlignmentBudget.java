@@ -0,0 +1,80 @@
+package main.conformance;
+
+/**
+ * Limit on the number of search states an alignment may create for one trace.
+ * The limit grows with the trace length and is capped by what fits in the free heap,
+ * shared by the traces that are aligned at the same time. A trace that hits its limit is
+ * reported unreliable with an approximate fitness instead of exhausting the heap.
+ *
+ * Limits are rounded down to a power of two, so traces of similar length share one limit.
+ */
+public class AlignmentBudget {
+
+	// Part of the free heap the alignments of one session may take
+	private static final double HEAP_SHARE = 0.5;
+	private static final int MIN_STATES = 1 << 14;
+	private static final int DEFAULT_STATES_PER_EVENT = 1 << 16;
+
+	private final long maxStates;
+	private int statesPerEvent = DEFAULT_STATES_PER_EVENT;
+
+	private AlignmentBudget(long maxStates) {
+		this.maxStates = Math.max(MIN_STATES, maxStates);
+	}
+
+	/**
+	 * Budget based on the heap that is free right now.
+	 *
+	 * @param bytesPerState    estimated memory of one search state
+	 * @param concurrentTraces number of traces aligned in parallel
+	 */
+	public static AlignmentBudget fromHeap(long bytesPerState, int concurrentTraces) {
+		Runtime runtime = Runtime.getRuntime();
+		long free = runtime.maxMemory() - (runtime.totalMemory() - runtime.freeMemory());
+		long share = (long) (free * HEAP_SHARE) / Math.max(1, concurrentTraces);
+		return new AlignmentBudget(share / Math.max(1, bytesPerState));
+	}
+
+	/**
+	 * Budget with a fixed maximum, independent of the heap. Gives reproducible results.
+	 */
+	public static AlignmentBudget fixed(long maxStates) {
+		return new AlignmentBudget(maxStates);
+	}
+
+	/**
+	 * Memory of one state of the built-in search: the packed marking and the per state arrays,
+	 * the visited table at half load and growth by doubling, and the sparse solution of the marking
+	 * equation an open state keeps, with about one non-zero per place.
+	 */
+	public static long nativeStateBytes(CompiledNet net) {
+		long markingBytes = 8L * ((net.getPlaceCount() + 3) / 4);
+		long solutionBytes = 48 + 12L * net.getPlaceCount();
+		return 2 * (markingBytes + 64) + solutionBytes;
+	}
+
+	/**
+	 * Memory of one state of the ProM replayer, which keeps state objects and a compressed store
+	 * with one short per place.
+	 */
+	public static long promStateBytes(CompiledNet net) {
+		return 256 + 2L * net.getPlaceCount();
+	}
+
+	public void setStatesPerEvent(int statesPerEvent) {
+		this.statesPerEvent = statesPerEvent;
+	}
+
+	public long getCeiling() {
+		return maxStates;
+	}
+
+	/**
+	 * State limit for a trace with the given number of events.
+	 */
+	public int getMaxStates(int traceLength) {
+		long wanted = (long) statesPerEvent * (traceLength + 1);
+		long limit = Math.max(MIN_STATES, Math.min(wanted, Math.min(maxStates, Integer.MAX_VALUE)));
+		return Integer.highestOneBit((int) limit);
+	}
+}
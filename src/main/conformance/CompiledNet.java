@@ -0,0 +1,200 @@
+package main.conformance;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.processmining.models.graphbased.directed.petrinet.PetrinetEdge;
+import org.processmining.models.graphbased.directed.petrinet.PetrinetGraph;
+import org.processmining.models.graphbased.directed.petrinet.PetrinetNode;
+import org.processmining.models.graphbased.directed.petrinet.elements.Arc;
+import org.processmining.models.graphbased.directed.petrinet.elements.Place;
+import org.processmining.models.graphbased.directed.petrinet.elements.Transition;
+import org.processmining.models.semantics.petrinet.Marking;
+
+/**
+ * Petri net compiled into index based int arrays, for algorithms that fire many transitions
+ * (alignments, state space exploration, simulation) without touching the graph objects.
+ * Places and transitions are numbered from 0; a marking is an int array with one token count per place.
+ * The arrays returned by the getters are shared and must not be modified.
+ */
+public class CompiledNet {
+
+	private final PetrinetGraph net;
+	private final Place[] places;
+	private final Transition[] transitions;
+	private final Map<Place, Integer> placeIndex = new HashMap<>();
+	private final Map<Transition, Integer> transitionIndex = new HashMap<>();
+
+	private final int[][] inputPlaces;
+	private final int[][] inputWeights;
+	private final int[][] outputPlaces;
+	private final int[][] outputWeights;
+
+	private final int[] initialMarking;
+	private final int[] finalMarking;
+
+	private CompiledNet(PetrinetGraph net, Marking initial, Marking fin) {
+		this.net = net;
+		this.places = net.getPlaces().toArray(new Place[0]);
+		this.transitions = net.getTransitions().toArray(new Transition[0]);
+
+		for (int i = 0; i < places.length; i++) {
+			placeIndex.put(places[i], i);
+		}
+		for (int i = 0; i < transitions.length; i++) {
+			transitionIndex.put(transitions[i], i);
+		}
+
+		List<List<int[]>> inputs = new ArrayList<>();
+		List<List<int[]>> outputs = new ArrayList<>();
+		for (int i = 0; i < transitions.length; i++) {
+			inputs.add(new ArrayList<>());
+			outputs.add(new ArrayList<>());
+		}
+
+		for (PetrinetEdge<? extends PetrinetNode, ? extends PetrinetNode> edge : net.getEdges()) {
+			int weight = edge instanceof Arc ? ((Arc) edge).getWeight() : 1;
+			PetrinetNode source = edge.getSource();
+			PetrinetNode target = edge.getTarget();
+
+			if (source instanceof Place && target instanceof Transition) {
+				inputs.get(transitionIndex.get(target)).add(new int[] { placeIndex.get(source), weight });
+			} else if (source instanceof Transition && target instanceof Place) {
+				outputs.get(transitionIndex.get(source)).add(new int[] { placeIndex.get(target), weight });
+			}
+		}
+
+		inputPlaces = new int[transitions.length][];
+		inputWeights = new int[transitions.length][];
+		outputPlaces = new int[transitions.length][];
+		outputWeights = new int[transitions.length][];
+		for (int t = 0; t < transitions.length; t++) {
+			inputPlaces[t] = column(inputs.get(t), 0);
+			inputWeights[t] = column(inputs.get(t), 1);
+			outputPlaces[t] = column(outputs.get(t), 0);
+			outputWeights[t] = column(outputs.get(t), 1);
+		}
+
+		initialMarking = initial != null ? toArray(initial) : null;
+		finalMarking = fin != null ? toArray(fin) : null;
+	}
+
+	/**
+	 * Compiles the net. Either marking may be null if it is not known.
+	 */
+	public static CompiledNet compile(PetrinetGraph net, Marking initialMarking, Marking finalMarking) {
+		return new CompiledNet(net, initialMarking, finalMarking);
+	}
+
+	private static int[] column(List<int[]> rows, int col) {
+		int[] result = new int[rows.size()];
+		for (int i = 0; i < result.length; i++) {
+			result[i] = rows.get(i)[col];
+		}
+		return result;
+	}
+
+	public PetrinetGraph getNet() {
+		return net;
+	}
+
+	public int getPlaceCount() {
+		return places.length;
+	}
+
+	public int getTransitionCount() {
+		return transitions.length;
+	}
+
+	public Place getPlace(int index) {
+		return places[index];
+	}
+
+	public Transition getTransition(int index) {
+		return transitions[index];
+	}
+
+	public int indexOf(Place place) {
+		Integer index = placeIndex.get(place);
+		return index != null ? index : -1;
+	}
+
+	public int indexOf(Transition transition) {
+		Integer index = transitionIndex.get(transition);
+		return index != null ? index : -1;
+	}
+
+	public int[] getInputPlaces(int transition) {
+		return inputPlaces[transition];
+	}
+
+	public int[] getInputWeights(int transition) {
+		return inputWeights[transition];
+	}
+
+	public int[] getOutputPlaces(int transition) {
+		return outputPlaces[transition];
+	}
+
+	public int[] getOutputWeights(int transition) {
+		return outputWeights[transition];
+	}
+
+	public int[] getInitialMarking() {
+		return initialMarking;
+	}
+
+	public int[] getFinalMarking() {
+		return finalMarking;
+	}
+
+	public boolean isEnabled(int[] marking, int transition) {
+		int[] in = inputPlaces[transition];
+		int[] w = inputWeights[transition];
+		for (int i = 0; i < in.length; i++) {
+			if (marking[in[i]] < w[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Fires the transition on the given marking in place. The transition must be enabled.
+	 */
+	public void fire(int[] marking, int transition) {
+		int[] in = inputPlaces[transition];
+		int[] inW = inputWeights[transition];
+		for (int i = 0; i < in.length; i++) {
+			marking[in[i]] -= inW[i];
+		}
+		int[] out = outputPlaces[transition];
+		int[] outW = outputWeights[transition];
+		for (int i = 0; i < out.length; i++) {
+			marking[out[i]] += outW[i];
+		}
+	}
+
+	public int[] toArray(Marking marking) {
+		int[] result = new int[places.length];
+		for (Place p : marking.baseSet()) {
+			Integer index = placeIndex.get(p);
+			if (index != null) {
+				result[index] = marking.occurrences(p);
+			}
+		}
+		return result;
+	}
+
+	public Marking toMarking(int[] marking) {
+		Marking result = new Marking();
+		for (int p = 0; p < marking.length; p++) {
+			if (marking[p] > 0) {
+				result.add(places[p], marking[p]);
+			}
+		}
+		return result;
+	}
+}
@@ -0,0 +1,744 @@
+package main.conformance;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import org.deckfour.xes.classification.XEventClass;
+import org.deckfour.xes.classification.XEventClasses;
+import org.deckfour.xes.classification.XEventClassifier;
+import org.deckfour.xes.classification.XEventNameClassifier;
+import org.deckfour.xes.model.XLog;
+import org.processmining.framework.plugin.PluginContext;
+import org.processmining.models.connections.petrinets.behavioral.FinalMarkingConnection;
+import org.processmining.models.connections.petrinets.behavioral.InitialMarkingConnection;
+import org.processmining.models.graphbased.directed.petrinet.Petrinet;
+import org.processmining.models.graphbased.directed.petrinet.elements.Transition;
+import org.processmining.models.semantics.petrinet.Marking;
+import org.processmining.plugins.astar.petrinet.PetrinetReplayerWithILP;
+import org.processmining.plugins.connectionfactories.logpetrinet.TransEvClassMapping;
+import org.processmining.plugins.multietc.plugins.MultiETCPlugin;
+import org.processmining.plugins.multietc.res.MultiETCResult;
+import org.processmining.plugins.multietc.sett.MultiETCSettings;
+import org.processmining.plugins.petrinet.replayer.algorithms.IPNReplayParameter;
+import org.processmining.plugins.petrinet.replayer.algorithms.costbasedcomplete.CostBasedCompleteParam;
+import org.processmining.plugins.petrinet.replayresult.PNRepResult;
+import org.processmining.plugins.petrinet.replayresult.PNRepResultImpl;
+import org.processmining.plugins.replayer.replayresult.SyncReplayResult;
+
+import main.log.CompactLog;
+import main.log.VariantIndex;
+import main.log.VariantIndex.Variant;
+import main.model.AcceptingPetriNet;
+import main.utils.OutputCapture;
+import nl.tue.astar.AStarException;
+
+/**
+ * Conformance state for one discovered model against one log.
+ * The model comes with its markings; the transition/event class mapping and the alignment are computed once
+ * and fitness, precision and F-measure are all derived from the same alignment.
+ * The alignment is computed on one trace per variant and expanded to all traces afterwards. Variants, event
+ * classes and replay work on the {@link CompactLog} of the log; only the precision plugin reads the OpenXES log.
+ * Every trace gets a state budget from {@link AlignmentBudget}; traces over budget are degraded to an
+ * approximate fitness and handled by the {@link UnreliableTracePolicy}.
+ * Before aligning, the model goes through the {@link SoundnessChecker}; when its final marking is proven
+ * unreachable no alignment can exist and the fitness and precision are NaN without running one.
+ */
+public class ConformanceSession {
+
+
+	private final PluginContext pluginContext;
+	private final XLog log;
+	private CompactLog compactLog;
+	private final XEventClassifier classifier;
+	// Null when the model has no source or sink places to start and end in
+	private final AcceptingPetriNet model;
+	private final AlignmentBackend backend;
+	private FitnessMethod fitnessMethod = FitnessMethod.ALIGNMENT;
+	private UnreliableTracePolicy unreliablePolicy = UnreliableTracePolicy.BOUND;
+	private double maxUnreliableShare = 0.5;
+	private final XEventClass dummyEvClass = new XEventClass("DUMMY", 99999);
+
+	private XEventClasses eventClasses;
+	private CompiledNet compiledNet;
+	private ActivityEncoding encoding;
+	private SoundnessChecker.Report soundness;
+	private int escalatedTraces;
+	private int degradedTraces;
+	private TransEvClassMapping mapping;
+	private PNRepResult alignment;
+	private boolean alignmentComputed = false;
+	// Variants AUTO mode already aligned, and their alignments, reused when the whole log is aligned
+	private List<Integer> escalatedVariants;
+	private PNRepResult escalatedAlignment;
+
+	private Double fitness;
+	private Double precision;
+	private volatile boolean cancelled = false;
+	private final OutputCapture.TailBuffer pluginOutput = new OutputCapture.TailBuffer(16 * 1024);
+
+	private ConformanceSession(PluginContext pluginContext, XLog log, CompactLog compactLog,
+			AcceptingPetriNet model, AlignmentBackend backend) {
+		this.pluginContext = pluginContext;
+		this.log = log;
+		this.compactLog = compactLog;
+		this.classifier = new XEventNameClassifier();
+		this.model = model != null && model.hasMarkings() ? model : null;
+		this.backend = backend;
+	}
+
+	/**
+	 * Opens a session for the given model and its markings.
+	 * If a marking holds no tokens the session is still returned, but every metric is NaN.
+	 */
+	public static ConformanceSession open(PluginContext pluginContext, AcceptingPetriNet model, XLog log) {
+		return open(pluginContext, model, log, AlignmentBackend.PROM_ILP);
+	}
+
+	public static ConformanceSession open(PluginContext pluginContext, AcceptingPetriNet model, XLog log,
+			AlignmentBackend backend) {
+		return open(pluginContext, model, log, null, backend);
+	}
+
+	/**
+	 * Opens a session on a log whose compact form is already known, so it is not built again. The compact log
+	 * must hold the events of the log by concept:name; null builds it from the log on first use.
+	 */
+	public static ConformanceSession open(PluginContext pluginContext, AcceptingPetriNet model, XLog log,
+			CompactLog compactLog, AlignmentBackend backend) {
+		ConformanceSession session = new ConformanceSession(pluginContext, log, compactLog, model, backend);
+		session.registerMarkings();
+		return session;
+	}
+
+	public AlignmentBackend getBackend() {
+		return backend;
+	}
+
+	public FitnessMethod getFitnessMethod() {
+		return fitnessMethod;
+	}
+
+	/**
+	 * Selects how fitness is computed. Must be called before the first call to {@link #getFitness()}.
+	 */
+	public void setFitnessMethod(FitnessMethod fitnessMethod) {
+		this.fitnessMethod = fitnessMethod;
+	}
+
+	/**
+	 * Number of traces that were aligned because token replay was ambiguous, in {@link FitnessMethod#AUTO} mode.
+	 */
+	public int getEscalatedTraces() {
+		return escalatedTraces;
+	}
+
+	public UnreliableTracePolicy getUnreliablePolicy() {
+		return unreliablePolicy;
+	}
+
+	/**
+	 * Selects how traces without a completed alignment count towards fitness.
+	 */
+	public void setUnreliablePolicy(UnreliableTracePolicy unreliablePolicy) {
+		this.unreliablePolicy = unreliablePolicy;
+	}
+
+	/**
+	 * Fitness is NaN when more than this share of the traces is unreliable, whatever the policy.
+	 */
+	public void setMaxUnreliableShare(double maxUnreliableShare) {
+		this.maxUnreliableShare = maxUnreliableShare;
+	}
+
+	/**
+	 * Number of traces whose fitness comes from an unreliable alignment, known after {@link #getFitness()}.
+	 */
+	public int getDegradedTraces() {
+		return degradedTraces;
+	}
+
+	/**
+	 * Asks a running alignment to stop. Traces that are not aligned yet are reported as unreliable.
+	 */
+	public void cancel() {
+		cancelled = true;
+	}
+
+	public boolean isCancelled() {
+		return cancelled;
+	}
+
+	/**
+	 * The last output the replay and precision plugins printed for this session.
+	 */
+	public String getPluginOutput() {
+		return pluginOutput.toString();
+	}
+
+	public boolean hasMarkings() {
+		return model != null;
+	}
+
+	public AcceptingPetriNet getModel() {
+		return model;
+	}
+
+	/**
+	 * Structural and behavioural soundness of the model, computed on first use. Null without markings.
+	 */
+	public SoundnessChecker.Report getSoundness() {
+		if (soundness == null && model != null) {
+			soundness = new SoundnessChecker().check(getCompiledNet(), () -> cancelled);
+		}
+		return soundness;
+	}
+
+	public TransEvClassMapping getMapping() {
+		if (mapping == null && model != null) {
+			mapping = constructMapping(model.getNet());
+		}
+		return mapping;
+	}
+
+	/**
+	 * Returns the alignment of the log against the model, computing it on first use.
+	 */
+	public PNRepResult getAlignment() {
+		if (!alignmentComputed) {
+			alignment = computeAlignment();
+			alignmentComputed = true;
+		}
+		return alignment;
+	}
+
+	public double getFitness() {
+		if (fitness == null) {
+			try {
+				switch (fitnessMethod) {
+				case TOKEN_REPLAY:
+					fitness = computeTokenReplayFitness();
+					break;
+				case AUTO:
+					fitness = computeAutoFitness();
+					break;
+				default:
+					fitness = getAlignmentValue(getAlignment());
+					break;
+				}
+			} catch (Exception e) {
+				e.printStackTrace();
+				fitness = Double.NaN;
+			}
+		}
+		return fitness;
+	}
+
+	public double getPrecision() {
+		if (precision == null) {
+			precision = computePrecision();
+		}
+		return precision;
+	}
+
+	public double getFMeasure() {
+		double fitness = getFitness();
+		double precision = getPrecision();
+
+		if (Double.isNaN(fitness) || Double.isNaN(precision)) {
+			return Double.NaN;
+		}
+
+		// Harmonic mean of fitness and precision
+		if (fitness + precision == 0) {
+			return 0.0; // Avoid division by zero
+		}
+		return (2 * (fitness * precision)) / (fitness + precision);
+	}
+
+	/**
+	 * Alignment based precision (MultiETC) with {@link FitnessMethod#ALIGNMENT}; the quick methods would have
+	 * to align the whole log for it, so they use escaping edges on token replay instead.
+	 */
+	private double computePrecision() {
+		return fitnessMethod == FitnessMethod.ALIGNMENT ? computeAlignmentPrecision() : computeTokenPrecision();
+	}
+
+	@SuppressWarnings("try")
+	private double computeAlignmentPrecision() {
+		try (OutputCapture.Scope scope = OutputCapture.redirect(pluginOutput)) {
+			PNRepResult pnRepResult = getAlignment();
+			if (pnRepResult == null) {
+				return Double.NaN;
+			}
+
+			MultiETCPlugin multiETCPlugin = new MultiETCPlugin();
+			MultiETCSettings settings = new MultiETCSettings();
+			settings.put(MultiETCSettings.ALGORITHM, MultiETCSettings.Algorithm.ALIGN_1);
+			settings.put(MultiETCSettings.REPRESENTATION, MultiETCSettings.Representation.ORDERED);
+
+			Object[] res = multiETCPlugin.checkMultiETCAlign1(pluginContext, log, model.getNet(),
+					settings, pnRepResult);
+			MultiETCResult multiETCResult = (MultiETCResult) res[0];
+
+			return (Double) multiETCResult.getAttribute(MultiETCResult.PRECISION);
+		} catch (Exception e) {
+			e.printStackTrace();
+			return Double.NaN;
+		}
+	}
+
+	/**
+	 * Token replay fitness over the whole log: 1/2 (1 - missing/consumed) + 1/2 (1 - remaining/produced),
+	 * with the token counts of each variant weighted by its number of traces.
+	 */
+	private double computeTokenReplayFitness() {
+		if (model == null) return Double.NaN;
+
+		TokenReplayer replayer = new TokenReplayer(getEncoding());
+		VariantIndex variants = getVariantIndex();
+		TokenReplayer.Result total = new TokenReplayer.Result();
+
+		for (Variant variant : variants.getVariants()) {
+			TokenReplayer.Result r = replayer.replay(getEncoding().encode(variant.getActivities()));
+			total.produced += r.produced * variant.getCount();
+			total.consumed += r.consumed * variant.getCount();
+			total.missing += r.missing * variant.getCount();
+			total.remaining += r.remaining * variant.getCount();
+		}
+		return total.getFitness();
+	}
+
+	/**
+	 * Escaping edges precision on token replay, as in ETConformance: at every prefix of the log, the share of
+	 * the activities the model allows next that no trace with that prefix continues with, weighted by the number
+	 * of traces through the prefix.
+	 */
+	private double computeTokenPrecision() {
+		if (model == null) return Double.NaN;
+
+		TokenReplayer replayer = new TokenReplayer(getEncoding());
+		VariantIndex variants = getVariantIndex();
+		// Prefix tree of the log; a child is found by parent and activity
+		Map<Long, Integer> children = new HashMap<>();
+		List<BitSet> allowed = new ArrayList<>();
+		List<BitSet> observed = new ArrayList<>();
+		List<Long> weights = new ArrayList<>();
+		allowed.add(null);
+		observed.add(new BitSet());
+		weights.add(0L);
+
+		for (Variant variant : variants.getVariants()) {
+			int[] trace = getEncoding().encode(variant.getActivities());
+			int[] path = new int[trace.length + 1];
+			for (int i = 0; i < trace.length; i++) {
+				long key = ((long) path[i] << 32) | (trace[i] + 1);
+				Integer child = children.get(key);
+				if (child == null) {
+					child = allowed.size();
+					children.put(key, child);
+					allowed.add(null);
+					observed.add(new BitSet());
+					weights.add(0L);
+				}
+				path[i + 1] = child;
+				if (trace[i] >= 0) {
+					observed.get(path[i]).set(trace[i]);
+				}
+			}
+			replayer.replay(trace, (position, marking) -> {
+				int node = path[position];
+				if (allowed.get(node) == null) {
+					BitSet activities = new BitSet();
+					replayer.addEnabledActivities(marking, activities);
+					allowed.set(node, activities);
+				}
+				weights.set(node, weights.get(node) + variant.getCount());
+			});
+		}
+
+		double escaping = 0;
+		double total = 0;
+		for (int node = 0; node < allowed.size(); node++) {
+			BitSet escapes = (BitSet) allowed.get(node).clone();
+			escapes.andNot(observed.get(node));
+			escaping += (double) weights.get(node) * escapes.cardinality();
+			total += (double) weights.get(node) * allowed.get(node).cardinality();
+		}
+		return total > 0 ? 1.0 - escaping / total : 1.0;
+	}
+
+	/**
+	 * Mean trace fitness, taken from token replay where it is unambiguous and from alignments elsewhere.
+	 * If most traces are ambiguous the whole log is aligned, which precision needs anyway.
+	 */
+	private double computeAutoFitness() {
+		if (model == null) return Double.NaN;
+
+		TokenReplayer replayer = new TokenReplayer(getEncoding());
+		VariantIndex variants = getVariantIndex();
+		double[] traceFitness = new double[variants.size()];
+		List<Integer> ambiguous = new ArrayList<>();
+		int ambiguousTraces = 0;
+
+		for (int v = 0; v < variants.size(); v++) {
+			Variant variant = variants.getVariant(v);
+			TokenReplayer.Result r = replayer.replay(getEncoding().encode(variant.getActivities()));
+			if (r.ambiguous) {
+				ambiguous.add(v);
+				ambiguousTraces += variant.getCount();
+			} else {
+				traceFitness[v] = r.getFitness();
+			}
+		}
+
+		escalatedTraces = ambiguousTraces;
+		if (ambiguous.isEmpty()) {
+			return weightedMean(traceFitness, variants);
+		}
+		if (alignmentComputed || ambiguousTraces > variants.getTraceCount() / 2) {
+			escalatedTraces = variants.getTraceCount();
+			return getAlignmentValue(getAlignment());
+		}
+
+		PNRepResult partial = computeAlignment(ambiguous);
+		if (partial == null) return Double.NaN;
+		escalatedVariants = ambiguous;
+		escalatedAlignment = partial;
+		boolean[] unreliable = new boolean[variants.size()];
+		for (SyncReplayResult srr : partial) {
+			for (Integer i : srr.getTraceIndex()) {
+				traceFitness[ambiguous.get(i)] = srr.getInfo().get(PNRepResult.TRACEFITNESS);
+				unreliable[ambiguous.get(i)] = !srr.isReliable();
+			}
+		}
+		int[] counts = new int[variants.size()];
+		for (int v = 0; v < counts.length; v++) {
+			counts[v] = variants.getVariant(v).getCount();
+		}
+		return aggregateFitness(traceFitness, unreliable, counts);
+	}
+
+	private double weightedMean(double[] variantValues, VariantIndex variants) {
+		double sum = 0;
+		for (int v = 0; v < variantValues.length; v++) {
+			sum += variantValues[v] * variants.getVariant(v).getCount();
+		}
+		return variants.getTraceCount() > 0 ? sum / variants.getTraceCount() : Double.NaN;
+	}
+
+	/**
+	 * Weighted mean of trace fitness values, applying the unreliable trace policy.
+	 * Counts the degraded traces on the way.
+	 */
+	private double aggregateFitness(double[] values, boolean[] unreliable, int[] weights) {
+		double sum = 0;
+		long counted = 0;
+		long total = 0;
+		int degraded = 0;
+
+		for (int i = 0; i < values.length; i++) {
+			total += weights[i];
+			if (unreliable[i]) {
+				degraded += weights[i];
+				if (unreliablePolicy != UnreliableTracePolicy.BOUND) {
+					continue;
+				}
+			}
+			sum += values[i] * weights[i];
+			counted += weights[i];
+		}
+
+		degradedTraces = degraded;
+		if (degraded > 0 && unreliablePolicy == UnreliableTracePolicy.FAIL) {
+			return Double.NaN;
+		}
+		if (degraded > total * maxUnreliableShare || counted == 0) {
+			return Double.NaN;
+		}
+		return sum / counted;
+	}
+
+	private CompiledNet getCompiledNet() {
+		if (compiledNet == null) {
+			compiledNet = CompiledNet.compile(model.getNet(),
+					model.getInitialMarking(), model.getFinalMarking());
+		}
+		return compiledNet;
+	}
+
+	private ActivityEncoding getEncoding() {
+		if (encoding == null) {
+			encoding = new ActivityEncoding(getCompiledNet(), getMapping(), getEventClasses());
+		}
+		return encoding;
+	}
+
+	private double getAlignmentValue(PNRepResult pnRepResult) {
+		if (pnRepResult == null) return Double.NaN;
+
+		double[] values = new double[pnRepResult.size()];
+		boolean[] unreliable = new boolean[values.length];
+		int[] weights = new int[values.length];
+		int i = 0;
+		for (SyncReplayResult srr : pnRepResult) {
+			values[i] = srr.getInfo().get(PNRepResult.TRACEFITNESS);
+			unreliable[i] = !srr.isReliable();
+			weights[i] = srr.getTraceIndex().size();
+			i++;
+		}
+		return aggregateFitness(values, unreliable, weights);
+	}
+
+	private PNRepResult computeAlignment() {
+		if (model == null) return null;
+
+		// Replay one trace per variant and hand the result back to every trace of that variant
+		List<Integer> all = new ArrayList<>();
+		for (int v = 0; v < getVariantIndex().size(); v++) {
+			all.add(v);
+		}
+		if (escalatedAlignment == null) {
+			return expandVariants(computeAlignment(all), getVariantIndex(), all);
+		}
+
+		// Only the variants AUTO mode has not aligned yet
+		List<Integer> rest = new ArrayList<>(all);
+		rest.removeAll(new HashSet<>(escalatedVariants));
+		PNRepResult restAlignment = computeAlignment(rest);
+		if (restAlignment == null) return null;
+		List<SyncReplayResult> merged = new ArrayList<>(all.size());
+		merged.addAll(toVariantIndices(escalatedAlignment, escalatedVariants));
+		merged.addAll(toVariantIndices(restAlignment, rest));
+		return expandVariants(new PNRepResultImpl(merged), getVariantIndex(), all);
+	}
+
+	/**
+	 * Renumbers the traces of an alignment of selected variants from selection positions to variant indices.
+	 */
+	private static List<SyncReplayResult> toVariantIndices(PNRepResult selectionResult, List<Integer> selection) {
+		List<SyncReplayResult> results = new ArrayList<>(selectionResult.size());
+		for (SyncReplayResult srr : selectionResult) {
+			SortedSet<Integer> variantIndices = new TreeSet<>();
+			for (Integer position : srr.getTraceIndex()) {
+				variantIndices.add(selection.get(position));
+			}
+			srr.setTraceIndex(variantIndices);
+			results.add(srr);
+		}
+		return results;
+	}
+
+	/**
+	 * Aligns the representatives of the selected variants. Result trace index i refers to selection entry i.
+	 */
+	@SuppressWarnings("try")
+	private PNRepResult computeAlignment(List<Integer> selection) {
+		if (model == null) return null;
+		// Without a path to the final marking every trace would exhaust its state budget
+		if (!getSoundness().canAlign()) return null;
+
+		// Plugin chatter goes to this session's buffer; other threads keep their output
+		try (OutputCapture.Scope scope = OutputCapture.redirect(pluginOutput)) {
+			Petrinet petrinet = model.getNet();
+			Marking initialMarking = model.getInitialMarking();
+			Marking finalMarking = model.getFinalMarking();
+
+			Map<Transition, Integer> transitions2costs = constructTTCMap(petrinet);
+			Map<XEventClass, Integer> events2costs = constructETCMap(petrinet);
+			IPNReplayParameter parameters = constructParameters(transitions2costs, events2costs, initialMarking,
+					finalMarking);
+			TransEvClassMapping mapping = getMapping();
+
+			VariantIndex variants = getVariantIndex();
+			NativeReplayer nativeReplayer = new NativeReplayer(getEncoding(), transitions2costs, events2costs);
+			if (backend == AlignmentBackend.NATIVE) {
+				AlignmentBudget budget = AlignmentBudget.fromHeap(
+						AlignmentBudget.nativeStateBytes(getEncoding().getNet()), nativeReplayer.getParallelism());
+				return nativeReplayer.replay(variants, selection, budget, () -> cancelled);
+			} else {
+				CostBasedCompleteParam costParameters = (CostBasedCompleteParam) parameters;
+				AlignmentBudget budget = AlignmentBudget.fromHeap(
+						AlignmentBudget.promStateBytes(getEncoding().getNet()), costParameters.getNumThreads());
+
+				// ProM takes one state limit per replay, so variants sharing a limit are replayed together
+				Map<Integer, List<Integer>> groups = new TreeMap<>();
+				for (int position = 0; position < selection.size(); position++) {
+					int length = variants.getVariant(selection.get(position)).getActivities().size();
+					groups.computeIfAbsent(budget.getMaxStates(length), k -> new ArrayList<>()).add(position);
+				}
+
+				List<SyncReplayResult> results = new ArrayList<>();
+				for (Map.Entry<Integer, List<Integer>> group : groups.entrySet()) {
+					List<Integer> positions = group.getValue();
+					List<Integer> groupSelection = new ArrayList<>(positions.size());
+					for (Integer position : positions) {
+						groupSelection.add(selection.get(position));
+					}
+					costParameters.setMaxNumOfStates(group.getKey());
+
+					PetrinetReplayerWithILP replayer = new PetrinetReplayerWithILP();
+					PNRepResult groupResult = replayer.replayLog(pluginContext, petrinet,
+							variants.createRepresentativeLog(groupSelection), mapping, parameters);
+					for (SyncReplayResult srr : groupResult) {
+						SortedSet<Integer> traceIndices = new TreeSet<>();
+						for (Integer local : srr.getTraceIndex()) {
+							traceIndices.add(positions.get(local));
+						}
+						srr.setTraceIndex(traceIndices);
+						if (!srr.isReliable()) {
+							boundUnreliable(srr, nativeReplayer, selection, group.getKey());
+						}
+						results.add(srr);
+					}
+				}
+				return new PNRepResultImpl(results);
+			}
+		} catch (ArrayIndexOutOfBoundsException | AStarException e) {
+			e.printStackTrace();
+		}
+
+		return null;
+	}
+
+	/**
+	 * ProM reports the partial search of an unreliable trace, which is no bound on its fitness.
+	 * The built-in search under the same state limit gives one.
+	 */
+	private void boundUnreliable(SyncReplayResult srr, NativeReplayer nativeReplayer, List<Integer> selection,
+			int maxStates) {
+		int position = srr.getTraceIndex().first();
+		int[] trace = getEncoding().encode(getVariantIndex().getVariant(selection.get(position)).getActivities());
+		double maxCost = srr.getInfo().get(PNRepResult.MAXFITNESSCOST);
+		srr.getInfo().put(PNRepResult.TRACEFITNESS, nativeReplayer.boundFitness(trace, maxStates, maxCost,
+				() -> cancelled));
+	}
+
+	/**
+	 * Maps a replay result over the representative log back onto the traces of the full log.
+	 * The log level info is recomputed by {@link PNRepResultImpl} weighted by the number of traces per result,
+	 * which gives the same values as replaying every trace.
+	 */
+	private PNRepResult expandVariants(PNRepResult variantResult, VariantIndex variants, List<Integer> selection) {
+		if (variantResult == null) return null;
+
+		List<SyncReplayResult> expanded = new ArrayList<>(variantResult.size());
+		for (SyncReplayResult srr : variantResult) {
+			SortedSet<Integer> traceIndices = new TreeSet<>();
+			for (Integer representative : srr.getTraceIndex()) {
+				Variant variant = variants.getVariant(selection.get(representative));
+				for (int i = 0; i < variant.getCount(); i++) {
+					traceIndices.add(variant.getTraceIndex(i));
+				}
+			}
+			srr.setTraceIndex(traceIndices);
+			expanded.add(srr);
+		}
+		return new PNRepResultImpl(expanded);
+	}
+
+	public CompactLog getCompactLog() {
+		if (compactLog == null) {
+			compactLog = CompactLog.fromXLog(log, classifier, Collections.emptyList());
+		}
+		return compactLog;
+	}
+
+	/**
+	 * Variants of the log, shared with every other user of the same compact log.
+	 */
+	public VariantIndex getVariantIndex() {
+		return getCompactLog().getVariantIndex();
+	}
+
+	/**
+	 * One event class per activity of the compact log, sized by its number of events.
+	 */
+	private XEventClasses getEventClasses() {
+		if (eventClasses == null) {
+			CompactLog compact = getCompactLog();
+			XEventClasses classes = new XEventClasses(classifier);
+			for (int a = 0; a < compact.getActivityCount(); a++) {
+				classes.register(compact.getActivityName(a));
+			}
+			int[] sizes = new int[compact.getActivityCount()];
+			for (int t = 0; t < compact.getTraceCount(); t++) {
+				for (int i = 0; i < compact.getTraceLength(t); i++) {
+					sizes[compact.getActivity(t, i)]++;
+				}
+			}
+			for (int a = 0; a < sizes.length; a++) {
+				classes.getByIdentity(compact.getActivityName(a)).setSize(sizes[a]);
+			}
+			classes.harmonizeIndices();
+			eventClasses = classes;
+		}
+		return eventClasses;
+	}
+
+	private Map<Transition, Integer> constructTTCMap(Petrinet petrinet) {
+		Map<Transition, Integer> transitions2costs = new HashMap<Transition, Integer>();
+
+		for (Transition t : petrinet.getTransitions()) {
+			if (t.isInvisible()) {
+				transitions2costs.put(t, 0);
+			} else {
+				transitions2costs.put(t, 1);
+			}
+		}
+		return transitions2costs;
+	}
+
+	private Map<XEventClass, Integer> constructETCMap(Petrinet petrinet) {
+		Map<XEventClass, Integer> costMOT = new HashMap<XEventClass, Integer>();
+
+		for (XEventClass evClass : getEventClasses().getClasses()) {
+			costMOT.put(evClass, 1);
+		}
+
+		costMOT.put(dummyEvClass, 1);
+		return costMOT;
+	}
+
+	private IPNReplayParameter constructParameters(Map<Transition, Integer> transitions2costs,
+			Map<XEventClass, Integer> events2costs, Marking initialMarking, Marking finalMarking) {
+		IPNReplayParameter parameters = new CostBasedCompleteParam(events2costs, transitions2costs);
+
+		parameters.setInitialMarking(initialMarking);
+		parameters.setFinalMarkings(finalMarking);
+		parameters.setGUIMode(false);
+		parameters.setCreateConn(false);
+		((CostBasedCompleteParam) parameters).setCanceller(() -> cancelled);
+
+		return parameters;
+	}
+
+	private TransEvClassMapping constructMapping(Petrinet net) {
+		TransEvClassMapping mapping = new TransEvClassMapping(classifier, dummyEvClass);
+
+		for (Transition t : net.getTransitions()) {
+			XEventClass evClass = getEventClasses().getByIdentity(t.getLabel());
+			mapping.put(t, evClass != null ? evClass : dummyEvClass);
+		}
+
+		return mapping;
+	}
+
+	/**
+	 * The ProM plugins look the markings up in the context, so they are registered with it once.
+	 */
+	private void registerMarkings() {
+		if (model == null || pluginContext == null) {
+			return;
+		}
+		pluginContext.addConnection(new InitialMarkingConnection(model.getNet(), model.getInitialMarking()));
+		pluginContext.addConnection(new FinalMarkingConnection(model.getNet(), model.getFinalMarking()));
+	}
+}
@@ -0,0 +1,293 @@
+package main.conformance;
+
+import java.util.Arrays;
+
+/**
+ * Two phase simplex on a dense tableau for min c.x subject to A x = b, x >= 0, sized for the marking equation
+ * of one net: a few hundred variables and rows. Bland's rule keeps degenerate problems, which are the rule
+ * here, from cycling. Rows that turn out to be linear combinations of others are left in the tableau with
+ * their artificial variable at zero.
+ *
+ * Only the right hand side changes between solves, so the optimal basis of the last solve stays dual feasible
+ * and is the starting point of the next one: a few dual simplex pivots usually restore feasibility, and only
+ * when they do not is the problem solved from scratch. Not thread safe.
+ */
+class DenseSimplex {
+
+	static final int OPTIMAL = 0;
+	static final int INFEASIBLE = 1;
+	static final int GAVE_UP = 2;
+
+	private static final double EPSILON = 1e-9;
+	private static final double FEASIBILITY = 1e-7;
+	private static final int COLD = -1;
+
+	private final double[][] a;
+	private final double[] c;
+	private final int rows;
+	private final int columns;
+	private final int maxIterations;
+
+	// Rows 0..rows-1 are the constraints, the last row the reduced costs; the last column the right hand side
+	private final double[][] tableau;
+	private final int[] basis;
+	private final double[] sign;
+	private boolean warm;
+	private double value;
+
+	/**
+	 * @param a             constraint matrix, one array per row; not copied
+	 * @param c             cost of every variable
+	 * @param maxIterations pivots per phase before giving up
+	 */
+	DenseSimplex(double[][] a, double[] c, int maxIterations) {
+		this.a = a;
+		this.c = c;
+		this.rows = a.length;
+		this.columns = c.length;
+		this.maxIterations = maxIterations;
+		tableau = new double[rows + 1][columns + rows + 1];
+		basis = new int[rows];
+		sign = new double[rows];
+	}
+
+	/**
+	 * Solves for the right hand side b and writes the optimal point to x. Returns {@link #OPTIMAL},
+	 * {@link #INFEASIBLE} or {@link #GAVE_UP}.
+	 */
+	int minimize(double[] b, double[] x) {
+		if (warm) {
+			int status = resolve(b);
+			if (status == OPTIMAL && optimal(x) == OPTIMAL && satisfies(b, x)) {
+				return OPTIMAL;
+			}
+			if (status == INFEASIBLE) {
+				return INFEASIBLE;
+			}
+		}
+		warm = false;
+
+		int rhs = columns + rows;
+		for (double[] row : tableau) {
+			Arrays.fill(row, 0);
+		}
+
+		// Phase one: an artificial variable per row, with the rows turned so the right hand side is not negative
+		double[] objective = tableau[rows];
+		for (int i = 0; i < rows; i++) {
+			sign[i] = b[i] < 0 ? -1 : 1;
+			double[] row = tableau[i];
+			for (int j = 0; j < columns; j++) {
+				row[j] = sign[i] * a[i][j];
+				objective[j] -= row[j];
+			}
+			row[columns + i] = 1;
+			row[rhs] = sign[i] * b[i];
+			objective[rhs] -= row[rhs];
+			basis[i] = columns + i;
+		}
+		if (!iterate(columns + rows)) {
+			return GAVE_UP;
+		}
+		if (-objective[rhs] > FEASIBILITY) {
+			return INFEASIBLE;
+		}
+
+		// Drive the artificial variables out of the basis where a real one can take their place
+		for (int i = 0; i < rows; i++) {
+			if (basis[i] < columns) {
+				continue;
+			}
+			for (int j = 0; j < columns; j++) {
+				if (Math.abs(tableau[i][j]) > EPSILON) {
+					pivot(i, j);
+					break;
+				}
+			}
+		}
+
+		// Phase two: the real costs, reduced by the current basis
+		Arrays.fill(objective, 0);
+		System.arraycopy(c, 0, objective, 0, columns);
+		for (int i = 0; i < rows; i++) {
+			if (basis[i] < columns && c[basis[i]] != 0) {
+				double factor = c[basis[i]];
+				double[] row = tableau[i];
+				for (int j = 0; j <= rhs; j++) {
+					objective[j] -= factor * row[j];
+				}
+			}
+		}
+		if (!iterate(columns)) {
+			return GAVE_UP;
+		}
+		warm = true;
+		return optimal(x);
+	}
+
+	private int optimal(double[] x) {
+		int rhs = columns + rows;
+		Arrays.fill(x, 0, columns, 0);
+		for (int i = 0; i < rows; i++) {
+			if (basis[i] < columns) {
+				x[basis[i]] = tableau[i][rhs];
+			}
+		}
+		value = -tableau[rows][rhs];
+		return OPTIMAL;
+	}
+
+	/**
+	 * Whether x solves A x = b; pivots from an old basis pile up rounding errors.
+	 */
+	private boolean satisfies(double[] b, double[] x) {
+		for (int i = 0; i < rows; i++) {
+			double[] row = a[i];
+			double sum = 0;
+			for (int j = 0; j < columns; j++) {
+				if (x[j] != 0) {
+					sum += row[j] * x[j];
+				}
+			}
+			if (Math.abs(sum - b[i]) > FEASIBILITY) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Dual simplex from the last optimal basis for a new right hand side. Returns {@link #OPTIMAL},
+	 * {@link #INFEASIBLE} or {@link #COLD} if the problem has to be solved from scratch.
+	 */
+	private int resolve(double[] b) {
+		int rhs = columns + rows;
+		// The artificial columns hold the inverse of the basis
+		double objectiveValue = 0;
+		for (int i = 0; i < rows; i++) {
+			double[] row = tableau[i];
+			double valueOfRow = 0;
+			for (int k = 0; k < rows; k++) {
+				double inverse = row[columns + k];
+				if (inverse != 0) {
+					valueOfRow += inverse * sign[k] * b[k];
+				}
+			}
+			if (basis[i] >= columns && Math.abs(valueOfRow) > FEASIBILITY) {
+				// A redundant row that no longer agrees with the others
+				return COLD;
+			}
+			row[rhs] = valueOfRow;
+			if (basis[i] < columns) {
+				objectiveValue += c[basis[i]] * valueOfRow;
+			}
+		}
+		double[] objective = tableau[rows];
+		objective[rhs] = -objectiveValue;
+
+		for (int iteration = 0; iteration < maxIterations; iteration++) {
+			int leaving = -1;
+			for (int i = 0; i < rows; i++) {
+				if (tableau[i][rhs] < -FEASIBILITY && (leaving < 0 || basis[i] < basis[leaving])) {
+					leaving = i;
+				}
+			}
+			if (leaving < 0) {
+				return OPTIMAL;
+			}
+
+			// Keep the reduced costs non negative: the smallest ratio among the columns that can enter
+			double[] row = tableau[leaving];
+			int entering = -1;
+			double bestRatio = Double.POSITIVE_INFINITY;
+			for (int j = 0; j < columns; j++) {
+				if (row[j] < -EPSILON) {
+					double ratio = objective[j] / -row[j];
+					if (ratio < bestRatio - EPSILON) {
+						bestRatio = ratio;
+						entering = j;
+					}
+				}
+			}
+			if (entering < 0) {
+				// The row is a sum of non negative terms that must come out negative
+				return INFEASIBLE;
+			}
+			pivot(leaving, entering);
+		}
+		return COLD;
+	}
+
+	/**
+	 * Objective value of the last optimal solve.
+	 */
+	double getValue() {
+		return value;
+	}
+
+	/**
+	 * Pivots until no column below the limit has a negative reduced cost. Returns false at the iteration limit.
+	 */
+	private boolean iterate(int columnLimit) {
+		int rhs = columns + rows;
+		double[] objective = tableau[rows];
+		for (int iteration = 0; iteration < maxIterations; iteration++) {
+			// Bland: the first improving column, then the lowest basic variable among the tightest rows
+			int entering = -1;
+			for (int j = 0; j < columnLimit; j++) {
+				if (objective[j] < -EPSILON) {
+					entering = j;
+					break;
+				}
+			}
+			if (entering < 0) {
+				return true;
+			}
+
+			int leaving = -1;
+			double bestRatio = Double.POSITIVE_INFINITY;
+			for (int i = 0; i < rows; i++) {
+				double coefficient = tableau[i][entering];
+				if (coefficient > EPSILON) {
+					double ratio = tableau[i][rhs] / coefficient;
+					if (ratio < bestRatio - EPSILON
+							|| (ratio < bestRatio + EPSILON && basis[i] < basis[leaving])) {
+						bestRatio = ratio;
+						leaving = i;
+					}
+				}
+			}
+			if (leaving < 0) {
+				// Unbounded; costs are not negative, so this only happens through rounding
+				return false;
+			}
+			pivot(leaving, entering);
+		}
+		return false;
+	}
+
+	private void pivot(int row, int column) {
+		int width = columns + rows + 1;
+		double[] pivotRow = tableau[row];
+		double scale = pivotRow[column];
+		for (int j = 0; j < width; j++) {
+			pivotRow[j] /= scale;
+		}
+		pivotRow[column] = 1;
+		for (int i = 0; i <= rows; i++) {
+			if (i == row) {
+				continue;
+			}
+			double[] other = tableau[i];
+			double factor = other[column];
+			if (factor == 0) {
+				continue;
+			}
+			for (int j = 0; j < width; j++) {
+				other[j] -= factor * pivotRow[j];
+			}
+			other[column] = 0;
+		}
+		basis[row] = column;
+	}
+}
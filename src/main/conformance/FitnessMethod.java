@@ -0,0 +1,45 @@
+package main.conformance;
+
+/**
+ * How a {@link ConformanceSession} computes fitness and precision. Only {@link #ALIGNMENT} aligns the whole
+ * log; the quick methods take precision from token replay (escaping edges), so they never pay for a full
+ * alignment.
+ */
+public enum FitnessMethod {
+	ALIGNMENT("Alignments", "Fitness %", "Precision %"),
+	TOKEN_REPLAY("Token replay", "Token fitness %", "Token precision %"),
+	/**
+	 * Token replay, with alignments for the traces where token replay is ambiguous. The fitness mixes the two
+	 * kinds of trace fitness, and says so in its column.
+	 */
+	AUTO("Auto", "Mixed fitness %", "Token precision %");
+
+	private final String label;
+	private final String fitnessColumn;
+	private final String precisionColumn;
+
+	FitnessMethod(String label, String fitnessColumn, String precisionColumn) {
+		this.label = label;
+		this.fitnessColumn = fitnessColumn;
+		this.precisionColumn = precisionColumn;
+	}
+
+	/**
+	 * Column header for the fitness values this method gives.
+	 */
+	public String getFitnessColumn() {
+		return fitnessColumn;
+	}
+
+	/**
+	 * Column header for the precision values this method gives.
+	 */
+	public String getPrecisionColumn() {
+		return precisionColumn;
+	}
+
+	@Override
+	public String toString() {
+		return label;
+	}
+}
@@ -0,0 +1,169 @@
+package main.conformance;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The marking equation of the synchronous product of a net and the rest of a trace, solved over the reals as a
+ * lower bound on the cost of aligning the rest of the trace from a marking.
+ *
+ * Every transition has a model move variable and, if it has an activity, a synchronous move variable; every
+ * activity has a log move variable. The moves must take the marking to the final marking (m + C(x + y) = m_f) and
+ * consume the remaining events of every activity exactly once (sum of y_t over its transitions + z_a = count).
+ * The cheapest real solution is a lower bound on every alignment of the rest, and adding one move to a solution
+ * gives a solution for the state before it, so the bound is consistent. Without any solution the final marking
+ * cannot be reached from the marking at all.
+ *
+ * The linear programs are solved with {@link DenseSimplex}, which runs wherever the application does. One
+ * instance per aligner; not thread safe.
+ */
+class MarkingEquation {
+
+	/** Returned when no sequence of moves reaches the final marking. */
+	static final int INFEASIBLE = -1;
+	/** Returned when the solver gave up; the caller keeps its own bound. */
+	static final int UNKNOWN = -2;
+
+	private static final double EPSILON = 1e-6;
+	private static final int MAX_ITERATIONS = 10000;
+
+	private final int transitionCount;
+	private final int activityCount;
+	private final int[] syncVariable;
+	private final int[] finalMarking;
+	private final int variableCount;
+	// Constraint row of every place, or -1 for places no transition touches
+	private final int[] placeRow;
+	private final double[] rightHandSide;
+	private final DenseSimplex simplex;
+
+	/**
+	 * @param net                the compiled net with its final marking
+	 * @param transitionActivity for every transition the activity it synchronises with, or -1
+	 * @param modelMoveCost      cost of a move on model for every transition
+	 * @param logMoveCost        cost of a move on log for every activity
+	 */
+	MarkingEquation(CompiledNet net, int[] transitionActivity, int[] modelMoveCost, int[] logMoveCost) {
+		transitionCount = net.getTransitionCount();
+		activityCount = logMoveCost.length;
+		finalMarking = net.getFinalMarking();
+
+		// Variables: model moves, then synchronous moves, then log moves
+		syncVariable = new int[transitionCount];
+		int variables = transitionCount;
+		for (int t = 0; t < transitionCount; t++) {
+			int activity = transitionActivity[t];
+			syncVariable[t] = activity >= 0 && activity < activityCount ? variables++ : -1;
+		}
+		variableCount = variables + activityCount;
+
+		double[] costs = new double[variableCount];
+		for (int t = 0; t < transitionCount; t++) {
+			costs[t] = modelMoveCost[t];
+		}
+		for (int a = 0; a < activityCount; a++) {
+			costs[logVariable(a)] = logMoveCost[a];
+		}
+
+		int placeCount = net.getPlaceCount();
+		double[][] incidence = new double[placeCount][variableCount];
+		for (int t = 0; t < transitionCount; t++) {
+			int[] inputs = net.getInputPlaces(t);
+			int[] inputWeights = net.getInputWeights(t);
+			for (int i = 0; i < inputs.length; i++) {
+				addFiring(incidence[inputs[i]], t, -inputWeights[i]);
+			}
+			int[] outputs = net.getOutputPlaces(t);
+			int[] outputWeights = net.getOutputWeights(t);
+			for (int i = 0; i < outputs.length; i++) {
+				addFiring(incidence[outputs[i]], t, outputWeights[i]);
+			}
+		}
+		List<double[]> rows = new ArrayList<>();
+		placeRow = new int[placeCount];
+		for (int p = 0; p < placeCount; p++) {
+			placeRow[p] = -1;
+			for (double tokens : incidence[p]) {
+				if (tokens != 0) {
+					placeRow[p] = rows.size();
+					rows.add(incidence[p]);
+					break;
+				}
+			}
+		}
+		for (int a = 0; a < activityCount; a++) {
+			double[] row = new double[variableCount];
+			for (int t = 0; t < transitionCount; t++) {
+				if (transitionActivity[t] == a) {
+					row[syncVariable[t]] = 1;
+				}
+			}
+			row[logVariable(a)] = 1;
+			rows.add(row);
+		}
+		rightHandSide = new double[rows.size()];
+		simplex = new DenseSimplex(rows.toArray(new double[0][]), costs, MAX_ITERATIONS);
+	}
+
+	private void addFiring(double[] row, int transition, int tokens) {
+		row[transition] += tokens;
+		if (syncVariable[transition] >= 0) {
+			row[syncVariable[transition]] += tokens;
+		}
+	}
+
+	int getVariableCount() {
+		return variableCount;
+	}
+
+	int modelVariable(int transition) {
+		return transition;
+	}
+
+	/**
+	 * Variable of the synchronous move on the transition, or -1 if it has no activity.
+	 */
+	int syncVariable(int transition) {
+		return syncVariable[transition];
+	}
+
+	/**
+	 * Variable of the log move of the activity, or -1 for activities the net does not know.
+	 */
+	int logVariable(int activity) {
+		return activity >= 0 && activity < activityCount ? variableCount - activityCount + activity : -1;
+	}
+
+	/**
+	 * Cost of the cheapest real solution from the marking with the given events left, rounded up, or
+	 * {@link #INFEASIBLE} or {@link #UNKNOWN}. The values of the variables are written to the solution, which must
+	 * have {@link #getVariableCount()} entries.
+	 */
+	int solve(int[] marking, int[] remaining, double[] solution) {
+		for (int p = 0; p < placeRow.length; p++) {
+			int change = finalMarking[p] - marking[p];
+			if (placeRow[p] < 0) {
+				// No transition touches the place, its tokens never change
+				if (change != 0) {
+					return INFEASIBLE;
+				}
+				continue;
+			}
+			rightHandSide[placeRow[p]] = change;
+		}
+		int firstActivityRow = rightHandSide.length - activityCount;
+		for (int a = 0; a < activityCount; a++) {
+			rightHandSide[firstActivityRow + a] = remaining[a];
+		}
+
+		switch (simplex.minimize(rightHandSide, solution)) {
+		case DenseSimplex.OPTIMAL:
+			return (int) Math.ceil(simplex.getValue() - EPSILON);
+		case DenseSimplex.INFEASIBLE:
+			return INFEASIBLE;
+		default:
+			// Too many pivots or rounding trouble; the search still has its own bound
+			return UNKNOWN;
+		}
+	}
+}
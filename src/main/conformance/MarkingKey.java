@@ -0,0 +1,26 @@
+package main.conformance;
+
+import java.util.Arrays;
+
+/**
+ * Int encoded marking usable as a hash key. The array must not be modified while the key is in use.
+ */
+class MarkingKey {
+	private final int[] marking;
+	private final int hash;
+
+	MarkingKey(int[] marking) {
+		this.marking = marking;
+		this.hash = Arrays.hashCode(marking);
+	}
+
+	@Override
+	public boolean equals(Object other) {
+		return other instanceof MarkingKey && Arrays.equals(marking, ((MarkingKey) other).marking);
+	}
+
+	@Override
+	public int hashCode() {
+		return hash;
+	}
+}
@@ -0,0 +1,251 @@
+package main.conformance;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import org.deckfour.xes.classification.XEventClass;
+import org.processmining.models.graphbased.directed.petrinet.elements.Transition;
+import org.processmining.plugins.petrinet.replayresult.PNRepResult;
+import org.processmining.plugins.petrinet.replayresult.PNRepResultImpl;
+import org.processmining.plugins.petrinet.replayresult.StepTypes;
+import org.processmining.plugins.replayer.replayresult.SyncReplayResult;
+
+import main.log.VariantIndex;
+import nl.tue.astar.AStarThread.Canceller;
+
+/**
+ * Replays the variants of a log with {@link AStarAligner} and reports the outcome in the same
+ * {@link PNRepResult} form and with the same info keys as the ProM replayer, so fitness and
+ * MultiETC precision are computed from it unchanged.
+ * The caller maps the results back from variants to traces.
+ * Variants are aligned in parallel on a work stealing pool, by default the common pool.
+ * A trace that exceeds its state budget is reported unreliable, with the cost lower bound the search
+ * reached as its raw cost, so its trace fitness is an upper bound.
+ */
+class NativeReplayer {
+
+	private final CompiledNet net;
+	private final ActivityEncoding encoding;
+	private final int[] modelMoveCost;
+	private final int[] logMoveCost;
+	private final ForkJoinPool pool;
+
+	NativeReplayer(ActivityEncoding encoding, Map<Transition, Integer> transitions2costs,
+			Map<XEventClass, Integer> events2costs) {
+		this(encoding, transitions2costs, events2costs, ForkJoinPool.commonPool());
+	}
+
+	NativeReplayer(ActivityEncoding encoding, Map<Transition, Integer> transitions2costs,
+			Map<XEventClass, Integer> events2costs, ForkJoinPool pool) {
+		this.net = encoding.getNet();
+		this.encoding = encoding;
+		this.pool = pool;
+
+		logMoveCost = new int[encoding.getActivityCount()];
+		for (int a = 0; a < logMoveCost.length; a++) {
+			Integer cost = events2costs.get(encoding.getActivity(a));
+			logMoveCost[a] = cost != null ? cost : 1;
+		}
+
+		modelMoveCost = new int[net.getTransitionCount()];
+		for (int t = 0; t < modelMoveCost.length; t++) {
+			Transition transition = net.getTransition(t);
+			Integer cost = transitions2costs.get(transition);
+			modelMoveCost[t] = cost != null ? cost : (transition.isInvisible() ? 0 : 1);
+		}
+	}
+
+	int getParallelism() {
+		return pool.getParallelism();
+	}
+
+	/**
+	 * Aligns the selected variants. Result i refers to the i-th selected variant.
+	 */
+	PNRepResult replay(VariantIndex variants, List<Integer> selection, AlignmentBudget budget, Canceller canceller) {
+		int minModelMoveCost = minModelMoveCost(budget, canceller);
+
+		// Variants are independent; a batch borrows an idle aligner and its search arrays, and all of them
+		// are dropped when the call returns rather than living on in the pool's threads
+		Queue<AStarAligner> aligners = new ConcurrentLinkedQueue<>();
+		SyncReplayResult[] results = new SyncReplayResult[selection.size()];
+		pool.invoke(new AlignTask(variants, selection, budget, aligners, canceller, results, minModelMoveCost, 0,
+				results.length));
+
+		// Merge in selection order so the outcome does not depend on the scheduling
+		return new PNRepResultImpl(Arrays.asList(results));
+	}
+
+	/**
+	 * Cheapest way through the model without any events, the upper bound of the model moves.
+	 */
+	int minModelMoveCost(AlignmentBudget budget, Canceller canceller) {
+		AStarAligner aligner = newAligner(canceller);
+		aligner.setMaxStates(budget.getMaxStates(0));
+		AStarAligner.Result empty = aligner.align(new int[0]);
+		return empty.isReliable() ? empty.getCost() : 0;
+	}
+
+	/**
+	 * Upper bound on the fitness of a trace, from the lowest cost the search has left after the given
+	 * number of states. Used for traces another replayer could not align within the budget.
+	 */
+	double boundFitness(int[] trace, int maxStates, double maxCost, Canceller canceller) {
+		AStarAligner aligner = newAligner(canceller);
+		aligner.setMaxStates(maxStates);
+		return fitnessBound(aligner.align(trace).getLowerBound(), maxCost);
+	}
+
+	private static double fitnessBound(double costLowerBound, double maxCost) {
+		return maxCost > 0 ? Math.max(0.0, Math.min(1.0, 1 - costLowerBound / maxCost)) : 1.0;
+	}
+
+	private class AlignTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+		private static final int THRESHOLD = 4;
+
+		private final VariantIndex variants;
+		private final List<Integer> selection;
+		private final AlignmentBudget budget;
+		private final Queue<AStarAligner> aligners;
+		private final Canceller canceller;
+		private final SyncReplayResult[] results;
+		private final int minModelMoveCost;
+		private final int from;
+		private final int to;
+
+		AlignTask(VariantIndex variants, List<Integer> selection, AlignmentBudget budget,
+				Queue<AStarAligner> aligners, Canceller canceller, SyncReplayResult[] results, int minModelMoveCost,
+				int from, int to) {
+			this.variants = variants;
+			this.selection = selection;
+			this.budget = budget;
+			this.aligners = aligners;
+			this.canceller = canceller;
+			this.results = results;
+			this.minModelMoveCost = minModelMoveCost;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from <= THRESHOLD) {
+				AStarAligner aligner = aligners.poll();
+				if (aligner == null) {
+					aligner = newAligner(canceller);
+				}
+				try {
+					for (int i = from; i < to; i++) {
+						int[] trace = encoding.encode(variants.getVariant(selection.get(i)).getActivities());
+						aligner.setMaxStates(budget.getMaxStates(trace.length));
+						results[i] = toSyncReplayResult(aligner.align(trace), trace, i, minModelMoveCost);
+					}
+				} finally {
+					aligners.offer(aligner);
+				}
+				return;
+			}
+			int middle = (from + to) >>> 1;
+			invokeAll(
+					new AlignTask(variants, selection, budget, aligners, canceller, results, minModelMoveCost, from,
+							middle),
+					new AlignTask(variants, selection, budget, aligners, canceller, results, minModelMoveCost, middle,
+							to));
+		}
+	}
+
+	AStarAligner newAligner(Canceller canceller) {
+		AStarAligner aligner = new AStarAligner(net, encoding.getTransitionActivities(), modelMoveCost, logMoveCost);
+		aligner.setCanceller(canceller);
+		return aligner;
+	}
+
+	SyncReplayResult toSyncReplayResult(AStarAligner.Result alignment, int[] trace, int traceIndex,
+			int minModelMoveCost) {
+		List<Object> nodeInstance = new ArrayList<>();
+		List<StepTypes> stepTypes = new ArrayList<>();
+		double mmCost = 0;
+		double mlCost = 0;
+		double mmUpper = 0;
+		double mlUpper = 0;
+
+		for (int activity : trace) {
+			mlUpper += logCost(activity);
+		}
+
+		if (alignment.isReliable()) {
+			for (int i = 0; i < alignment.size(); i++) {
+				int move = alignment.getMove(i);
+				switch (alignment.getMoveType(i)) {
+				case AStarAligner.SYNC_MOVE:
+					stepTypes.add(StepTypes.LMGOOD);
+					nodeInstance.add(net.getTransition(move));
+					mmUpper += modelMoveCost[move];
+					break;
+				case AStarAligner.LOG_MOVE:
+					stepTypes.add(StepTypes.L);
+					nodeInstance.add(eventClass(trace[move]));
+					mlCost += logCost(trace[move]);
+					break;
+				default:
+					Transition t = net.getTransition(move);
+					stepTypes.add(t.isInvisible() ? StepTypes.MINVI : StepTypes.MREAL);
+					nodeInstance.add(t);
+					mmCost += modelMoveCost[move];
+					mmUpper += modelMoveCost[move];
+					break;
+				}
+			}
+		} else {
+			// No alignment found within the budget: report every event as a move on log
+			for (int activity : trace) {
+				stepTypes.add(StepTypes.L);
+				nodeInstance.add(eventClass(activity));
+			}
+			mlCost = mlUpper;
+			mmCost = minModelMoveCost;
+		}
+
+		SyncReplayResult result = new SyncReplayResult(nodeInstance, stepTypes, traceIndex);
+		result.setReliable(alignment.isReliable());
+
+		// Without an alignment only a lower bound on the cost is known
+		double rawCost = alignment.isReliable() ? mmCost + mlCost : alignment.getLowerBound();
+
+		Map<String, Double> info = new HashMap<>();
+		info.put(PNRepResult.RAWFITNESSCOST, rawCost);
+		info.put(PNRepResult.MAXFITNESSCOST, mlUpper + minModelMoveCost);
+		info.put(PNRepResult.MAXMOVELOGCOST, mlUpper);
+		info.put(PNRepResult.MOVELOGFITNESS, mlCost > 0 ? 1 - (mlCost / mlUpper) : 1.0);
+		info.put(PNRepResult.MOVEMODELFITNESS, mmCost > 0 && mmUpper > 0 ? 1 - (mmCost / mmUpper) : 1.0);
+		info.put(PNRepResult.NUMSTATEGENERATED, (double) alignment.getStates());
+		info.put(PNRepResult.QUEUEDSTATE, (double) alignment.getQueued());
+		info.put(PNRepResult.TRAVERSEDARCS, (double) alignment.getTraversedArcs());
+		if (rawCost > 0) {
+			info.put(PNRepResult.TRACEFITNESS, fitnessBound(rawCost, mlUpper + minModelMoveCost));
+		} else {
+			info.put(PNRepResult.TRACEFITNESS, 1.0);
+		}
+		info.put(PNRepResult.TIME, (double) alignment.getMilliseconds());
+		info.put(PNRepResult.ORIGTRACELENGTH, (double) trace.length);
+		result.setInfo(info);
+		return result;
+	}
+
+	private int logCost(int activity) {
+		return activity >= 0 ? logMoveCost[activity] : 1;
+	}
+
+	private XEventClass eventClass(int activity) {
+		return encoding.getActivity(activity);
+	}
+}
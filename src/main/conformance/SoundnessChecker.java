@@ -0,0 +1,498 @@
+package main.conformance;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import nl.tue.astar.AStarThread.Canceller;
+import org.processmining.models.graphbased.directed.petrinet.elements.Transition;
+
+/**
+ * Soundness check of a workflow net on a {@link CompiledNet}, in two steps.
+ *
+ * The structural step runs in linear time: the net needs exactly one source and one sink place, and every
+ * node must lie on a path from the source to the sink, which is the same as the net being strongly connected
+ * once a transition from sink back to source is added.
+ *
+ * The behavioural step explores the reachability graph breadth first, up to a state limit. It finds
+ * unboundedness (a marking strictly covering one of its last {@value #MAX_ANCESTORS} ancestors), markings that
+ * cannot reach the final marking, markings that strictly cover the final marking and transitions that never fire.
+ * When the limit is hit or the check is cancelled before the graph is complete, only what was proven so far is
+ * reported.
+ */
+public class SoundnessChecker {
+
+	public static final int DEFAULT_MAX_STATES = 100_000;
+
+	// Number of node names listed in a structural problem
+	private static final int MAX_NAMES = 3;
+	// Ancestors compared with every new marking; a pump longer than this runs into the state limit instead
+	static final int MAX_ANCESTORS = 1000;
+
+	private int maxStates = DEFAULT_MAX_STATES;
+
+	public void setMaxStates(int maxStates) {
+		this.maxStates = maxStates;
+	}
+
+	public Report check(CompiledNet net) {
+		return check(net, () -> false);
+	}
+
+	/**
+	 * Checks the net, stopping the exploration early when the canceller fires or the thread is interrupted.
+	 */
+	public Report check(CompiledNet net, Canceller canceller) {
+		Report report = new Report();
+		checkStructure(net, report);
+		if (net.getInitialMarking() != null) {
+			explore(net, report, canceller);
+		} else {
+			report.explorationComplete = false;
+		}
+		return report;
+	}
+
+	private void checkStructure(CompiledNet net, Report report) {
+		int places = net.getPlaceCount();
+		int transitions = net.getTransitionCount();
+
+		// Arcs by place, transitions already have them
+		List<List<Integer>> producers = new ArrayList<>();
+		List<List<Integer>> consumers = new ArrayList<>();
+		for (int p = 0; p < places; p++) {
+			producers.add(new ArrayList<>());
+			consumers.add(new ArrayList<>());
+		}
+		for (int t = 0; t < transitions; t++) {
+			for (int p : net.getInputPlaces(t)) {
+				consumers.get(p).add(t);
+			}
+			for (int p : net.getOutputPlaces(t)) {
+				producers.get(p).add(t);
+			}
+		}
+
+		List<Integer> sources = new ArrayList<>();
+		List<Integer> sinks = new ArrayList<>();
+		for (int p = 0; p < places; p++) {
+			if (producers.get(p).isEmpty()) {
+				sources.add(p);
+			}
+			if (consumers.get(p).isEmpty()) {
+				sinks.add(p);
+			}
+		}
+		if (sources.size() != 1) {
+			report.structuralProblems.add(sources.size() + " source places" + placeNames(net, sources));
+		}
+		if (sinks.size() != 1) {
+			report.structuralProblems.add(sinks.size() + " sink places" + placeNames(net, sinks));
+		}
+		if (sources.size() != 1 || sinks.size() != 1) {
+			return;
+		}
+		int source = sources.get(0);
+		int sink = sinks.get(0);
+
+		// Nodes are numbered places first, then transitions
+		boolean[] fromSource = new boolean[places + transitions];
+		ArrayDeque<Integer> queue = new ArrayDeque<>();
+		fromSource[source] = true;
+		queue.add(source);
+		while (!queue.isEmpty()) {
+			int node = queue.poll();
+			if (node < places) {
+				for (int t : consumers.get(node)) {
+					visit(fromSource, places + t, queue);
+				}
+			} else {
+				for (int p : net.getOutputPlaces(node - places)) {
+					visit(fromSource, p, queue);
+				}
+			}
+		}
+
+		boolean[] toSink = new boolean[places + transitions];
+		toSink[sink] = true;
+		queue.add(sink);
+		while (!queue.isEmpty()) {
+			int node = queue.poll();
+			if (node < places) {
+				for (int t : producers.get(node)) {
+					visit(toSink, places + t, queue);
+				}
+			} else {
+				for (int p : net.getInputPlaces(node - places)) {
+					visit(toSink, p, queue);
+				}
+			}
+		}
+
+		List<String> unreachable = new ArrayList<>();
+		List<String> deadEnds = new ArrayList<>();
+		for (int node = 0; node < places + transitions; node++) {
+			String name = node < places ? net.getPlace(node).getLabel() : net.getTransition(node - places).getLabel();
+			if (!fromSource[node]) {
+				unreachable.add(name);
+			}
+			if (!toSink[node]) {
+				deadEnds.add(name);
+			}
+		}
+		if (!unreachable.isEmpty()) {
+			report.structuralProblems.add(unreachable.size() + " nodes not reachable from the source" + names(unreachable));
+		}
+		if (!deadEnds.isEmpty()) {
+			report.structuralProblems.add(deadEnds.size() + " nodes cannot reach the sink" + names(deadEnds));
+		}
+
+		int[] initial = net.getInitialMarking();
+		if (initial != null && !isSingleToken(initial, source)) {
+			report.structuralProblems.add("initial marking is not one token on the source place");
+		}
+		int[] fin = net.getFinalMarking();
+		if (fin != null && !isSingleToken(fin, sink)) {
+			report.structuralProblems.add("final marking is not one token on the sink place");
+		}
+	}
+
+	private static void visit(boolean[] visited, int node, ArrayDeque<Integer> queue) {
+		if (!visited[node]) {
+			visited[node] = true;
+			queue.add(node);
+		}
+	}
+
+	private static boolean isSingleToken(int[] marking, int place) {
+		for (int p = 0; p < marking.length; p++) {
+			if (marking[p] != (p == place ? 1 : 0)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static String placeNames(CompiledNet net, List<Integer> places) {
+		List<String> names = new ArrayList<>();
+		for (int p : places) {
+			names.add(net.getPlace(p).getLabel());
+		}
+		return names(names);
+	}
+
+	private static String names(List<String> names) {
+		if (names.isEmpty()) {
+			return "";
+		}
+		String listed = String.join(", ", names.subList(0, Math.min(MAX_NAMES, names.size())));
+		return " (" + listed + (names.size() > MAX_NAMES ? ", ..." : "") + ")";
+	}
+
+	/**
+	 * Breadth first exploration of the reachability graph. Markings are stored once; the parent of each
+	 * marking is kept for the coverage test and the edges for the backward search from the final marking.
+	 */
+	private void explore(CompiledNet net, Report report, Canceller canceller) {
+		int transitions = net.getTransitionCount();
+		int[] fin = net.getFinalMarking();
+
+		List<int[]> markings = new ArrayList<>();
+		List<Integer> parents = new ArrayList<>();
+		List<Integer> tokens = new ArrayList<>();
+		List<Long> supports = new ArrayList<>();
+		Map<MarkingKey, Integer> seen = new HashMap<>();
+		int[] edgeFrom = new int[64];
+		int[] edgeTo = new int[64];
+		int edges = 0;
+		boolean[] fired = new boolean[transitions];
+
+		int[] initial = net.getInitialMarking().clone();
+		markings.add(initial);
+		parents.add(-1);
+		tokens.add(sum(initial));
+		supports.add(support(initial));
+		seen.put(new MarkingKey(initial), 0);
+
+		boolean complete = true;
+		exploration:
+		for (int node = 0; node < markings.size(); node++) {
+			if (canceller.isCancelled() || Thread.currentThread().isInterrupted()) {
+				complete = false;
+				break;
+			}
+			int[] marking = markings.get(node);
+			boolean enabled = false;
+			for (int t = 0; t < transitions; t++) {
+				if (!net.isEnabled(marking, t)) {
+					continue;
+				}
+				enabled = true;
+				fired[t] = true;
+				int[] next = marking.clone();
+				net.fire(next, t);
+
+				MarkingKey key = new MarkingKey(next);
+				Integer child = seen.get(key);
+				if (child == null) {
+					int nextTokens = sum(next);
+					long nextSupport = support(next);
+					if (coversAncestor(next, nextTokens, nextSupport, node, markings, parents, tokens, supports)) {
+						report.bounded = false;
+						complete = false;
+						break exploration;
+					}
+					if (markings.size() >= maxStates) {
+						complete = false;
+						break exploration;
+					}
+					child = markings.size();
+					markings.add(next);
+					parents.add(node);
+					tokens.add(nextTokens);
+					supports.add(nextSupport);
+					seen.put(key, child);
+
+					if (fin != null && covers(next, fin) && !Arrays.equals(next, fin)) {
+						report.properCompletion = false;
+					}
+				}
+
+				if (edges == edgeFrom.length) {
+					edgeFrom = Arrays.copyOf(edgeFrom, edges * 2);
+					edgeTo = Arrays.copyOf(edgeTo, edges * 2);
+				}
+				edgeFrom[edges] = node;
+				edgeTo[edges] = child;
+				edges++;
+			}
+			if (!enabled && (fin == null || !Arrays.equals(marking, fin))) {
+				report.deadlocks++;
+			}
+		}
+
+		report.stateCount = markings.size();
+		report.explorationComplete = complete;
+
+		if (fin != null) {
+			report.finalMarkingKnown = true;
+			Integer goal = seen.get(new MarkingKey(fin));
+			report.finalMarkingReachable = goal != null;
+			if (complete) {
+				report.optionToComplete = goal != null && allReach(goal, markings.size(), edgeFrom, edgeTo, edges);
+			}
+		}
+		if (complete) {
+			for (int t = 0; t < transitions; t++) {
+				if (!fired[t]) {
+					report.deadTransitions.add(net.getTransition(t));
+				}
+			}
+		}
+	}
+
+	/**
+	 * True when the marking strictly covers one of the last {@link #MAX_ANCESTORS} markings on its firing
+	 * sequence from the initial marking, so the rest of that sequence can be repeated to pump tokens without
+	 * bound. Ancestors with a place marked that the marking leaves empty are ruled out by their support.
+	 */
+	private static boolean coversAncestor(int[] marking, int markingTokens, long markingSupport, int parent,
+			List<int[]> markings, List<Integer> parents, List<Integer> tokens, List<Long> supports) {
+		int depth = 0;
+		for (int node = parent; node >= 0 && depth < MAX_ANCESTORS; node = parents.get(node), depth++) {
+			if (tokens.get(node) < markingTokens && (supports.get(node) & ~markingSupport) == 0
+					&& covers(marking, markings.get(node))) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * The marked places folded into 64 bits; a marking can only cover another if it has all of its bits.
+	 */
+	private static long support(int[] marking) {
+		long bits = 0;
+		for (int p = 0; p < marking.length; p++) {
+			if (marking[p] > 0) {
+				bits |= 1L << (p & 63);
+			}
+		}
+		return bits;
+	}
+
+	private static boolean covers(int[] marking, int[] other) {
+		for (int p = 0; p < marking.length; p++) {
+			if (marking[p] < other[p]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Backward search from the goal state over the reversed edges; true when every state was reached.
+	 */
+	private static boolean allReach(int goal, int states, int[] edgeFrom, int[] edgeTo, int edges) {
+		// Reverse adjacency in compressed form: predecessors of s are pred[start[s] .. start[s + 1])
+		int[] start = new int[states + 1];
+		for (int e = 0; e < edges; e++) {
+			start[edgeTo[e] + 1]++;
+		}
+		for (int s = 0; s < states; s++) {
+			start[s + 1] += start[s];
+		}
+		int[] pred = new int[edges];
+		int[] fill = Arrays.copyOf(start, states);
+		for (int e = 0; e < edges; e++) {
+			pred[fill[edgeTo[e]]++] = edgeFrom[e];
+		}
+
+		boolean[] reaches = new boolean[states];
+		ArrayDeque<Integer> queue = new ArrayDeque<>();
+		reaches[goal] = true;
+		queue.add(goal);
+		int reached = 1;
+		while (!queue.isEmpty()) {
+			int s = queue.poll();
+			for (int i = start[s]; i < start[s + 1]; i++) {
+				if (!reaches[pred[i]]) {
+					reaches[pred[i]] = true;
+					reached++;
+					queue.add(pred[i]);
+				}
+			}
+		}
+		return reached == states;
+	}
+
+	private static int sum(int[] marking) {
+		int total = 0;
+		for (int tokens : marking) {
+			total += tokens;
+		}
+		return total;
+	}
+
+	public enum Verdict {
+		SOUND, UNSOUND, UNKNOWN
+	}
+
+	/**
+	 * Outcome of a check. Properties of the reachability graph are only definite when
+	 * {@link #isExplorationComplete()} is true, except for unboundedness and improper completion which are
+	 * proven by a single witness.
+	 */
+	public static class Report {
+		private final List<String> structuralProblems = new ArrayList<>();
+		private final List<Transition> deadTransitions = new ArrayList<>();
+		private boolean explorationComplete;
+		private boolean bounded = true;
+		private boolean finalMarkingKnown;
+		private boolean finalMarkingReachable;
+		private boolean optionToComplete;
+		private boolean properCompletion = true;
+		private int deadlocks;
+		private int stateCount;
+
+		public boolean isWorkflowNet() {
+			return structuralProblems.isEmpty();
+		}
+
+		public List<String> getStructuralProblems() {
+			return structuralProblems;
+		}
+
+		public boolean isExplorationComplete() {
+			return explorationComplete;
+		}
+
+		public int getStateCount() {
+			return stateCount;
+		}
+
+		/** False only when unboundedness was proven. */
+		public boolean isBounded() {
+			return bounded;
+		}
+
+		public boolean isFinalMarkingReachable() {
+			return finalMarkingReachable;
+		}
+
+		public boolean hasOptionToComplete() {
+			return optionToComplete;
+		}
+
+		public boolean hasProperCompletion() {
+			return properCompletion;
+		}
+
+		/** Reachable markings without enabled transitions other than the final marking. */
+		public int getDeadlocks() {
+			return deadlocks;
+		}
+
+		public List<Transition> getDeadTransitions() {
+			return deadTransitions;
+		}
+
+		public Verdict getVerdict() {
+			if (!isWorkflowNet() || !bounded || !properCompletion) {
+				return Verdict.UNSOUND;
+			}
+			if (!explorationComplete) {
+				return Verdict.UNKNOWN;
+			}
+			if (!finalMarkingKnown) {
+				return Verdict.UNKNOWN;
+			}
+			return optionToComplete && deadTransitions.isEmpty() ? Verdict.SOUND : Verdict.UNSOUND;
+		}
+
+		public boolean isSound() {
+			return getVerdict() == Verdict.SOUND;
+		}
+
+		/**
+		 * False when the final marking was proven unreachable, so no alignment exists and an aligner would
+		 * only exhaust its budget before giving up.
+		 */
+		public boolean canAlign() {
+			return finalMarkingReachable || !finalMarkingKnown || !explorationComplete;
+		}
+
+		public String getSummary() {
+			List<String> parts = new ArrayList<>();
+			if (!isWorkflowNet()) {
+				parts.add("Not a WF-net: " + String.join(", ", structuralProblems));
+			}
+			if (!bounded) {
+				parts.add("Unbounded");
+			}
+			if (!canAlign()) {
+				parts.add("Final marking unreachable");
+			} else if (finalMarkingKnown && explorationComplete && !optionToComplete) {
+				parts.add("No option to complete" + (deadlocks > 0 ? " (" + deadlocks + " deadlocks)" : ""));
+			}
+			if (!properCompletion) {
+				parts.add("Improper completion");
+			}
+			if (!deadTransitions.isEmpty()) {
+				parts.add(deadTransitions.size() + " dead transitions");
+			}
+			if (parts.isEmpty()) {
+				return explorationComplete ? "Sound" : "Unknown (over " + stateCount + " states)";
+			}
+			return String.join("; ", parts);
+		}
+
+		@Override
+		public String toString() {
+			return getSummary();
+		}
+	}
+}
@@ -0,0 +1,298 @@
+package main.conformance;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Token-based replay of traces on a {@link CompiledNet}, counting produced, consumed, missing and
+ * remaining tokens. Transitions without an activity are silent; when the transition of an event is
+ * not enabled, the shortest sequence of silent transitions that enables it is fired first.
+ *
+ * A replay is flagged ambiguous when the outcome depends on a choice the token game cannot make
+ * reliably: several transitions share the label of an event, or different shortest silent sequences
+ * lead to different markings. Those traces need an alignment for an exact fitness value.
+ */
+class TokenReplayer {
+
+	// Bound on the markings visited while searching for silent sequences
+	private static final int MAX_SILENT_SEARCH = 1000;
+
+	private final CompiledNet net;
+	private final int[] transitionActivity;
+	private final int[][] transitionsByActivity;
+	private final int[] silentTransitions;
+
+	TokenReplayer(ActivityEncoding encoding) {
+		this.net = encoding.getNet();
+		this.transitionActivity = encoding.getTransitionActivities();
+
+		List<List<Integer>> byActivity = new ArrayList<>();
+		for (int a = 0; a < encoding.getActivityCount(); a++) {
+			byActivity.add(new ArrayList<>());
+		}
+		List<Integer> silent = new ArrayList<>();
+		for (int t = 0; t < transitionActivity.length; t++) {
+			if (transitionActivity[t] >= 0) {
+				byActivity.get(transitionActivity[t]).add(t);
+			} else {
+				silent.add(t);
+			}
+		}
+
+		transitionsByActivity = new int[byActivity.size()][];
+		for (int a = 0; a < transitionsByActivity.length; a++) {
+			transitionsByActivity[a] = toArray(byActivity.get(a));
+		}
+		silentTransitions = toArray(silent);
+	}
+
+	private static int[] toArray(List<Integer> list) {
+		int[] result = new int[list.size()];
+		for (int i = 0; i < result.length; i++) {
+			result[i] = list.get(i);
+		}
+		return result;
+	}
+
+	Result replay(int[] trace) {
+		return replay(trace, null);
+	}
+
+	/**
+	 * Replays a trace and shows the visitor the marking before every event and, at position trace.length,
+	 * the marking after the last one. The marking changes as the replay goes on; copy it to keep it.
+	 */
+	Result replay(int[] trace, MarkingVisitor visitor) {
+		Result result = new Result();
+		int[] marking = net.getInitialMarking().clone();
+		int[] finalMarking = net.getFinalMarking();
+		result.produced += sum(marking);
+
+		for (int position = 0; position < trace.length; position++) {
+			if (visitor != null) {
+				visitor.visit(position, marking);
+			}
+			int activity = trace[position];
+			int[] candidates = activity >= 0 ? transitionsByActivity[activity] : new int[0];
+
+			if (candidates.length == 0) {
+				// The model cannot produce this event at all
+				result.missing++;
+				result.consumed++;
+				result.produced++;
+				result.remaining++;
+				continue;
+			}
+			if (candidates.length > 1) {
+				result.ambiguous = true;
+			}
+
+			int transition = firstEnabled(marking, candidates);
+			if (transition < 0) {
+				int[] silentPath = findSilentPath(marking, candidates, null, result);
+				if (silentPath != null) {
+					for (int t : silentPath) {
+						fire(marking, t, result);
+					}
+					transition = firstEnabled(marking, candidates);
+				}
+			}
+			if (transition < 0) {
+				// Create the missing tokens and fire anyway
+				transition = candidates[0];
+				int[] in = net.getInputPlaces(transition);
+				int[] w = net.getInputWeights(transition);
+				for (int i = 0; i < in.length; i++) {
+					if (marking[in[i]] < w[i]) {
+						result.missing += w[i] - marking[in[i]];
+						marking[in[i]] = w[i];
+					}
+				}
+			}
+			fire(marking, transition, result);
+		}
+
+		if (visitor != null) {
+			visitor.visit(trace.length, marking);
+		}
+
+		// Let silent transitions finish the case if that reaches the final marking
+		if (!Arrays.equals(marking, finalMarking)) {
+			int[] silentPath = findSilentPath(marking, null, finalMarking, result);
+			if (silentPath != null) {
+				for (int t : silentPath) {
+					fire(marking, t, result);
+				}
+			}
+		}
+
+		for (int p = 0; p < marking.length; p++) {
+			result.consumed += finalMarking[p];
+			if (marking[p] < finalMarking[p]) {
+				result.missing += finalMarking[p] - marking[p];
+			} else {
+				result.remaining += marking[p] - finalMarking[p];
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Adds the activities the model can do next from the marking, directly or after silent transitions.
+	 */
+	void addEnabledActivities(int[] marking, BitSet activities) {
+		List<int[]> markings = new ArrayList<>();
+		Map<MarkingKey, Integer> seen = new HashMap<>();
+		markings.add(marking.clone());
+		seen.put(new MarkingKey(marking), 0);
+
+		for (int node = 0; node < markings.size() && markings.size() < MAX_SILENT_SEARCH; node++) {
+			int[] current = markings.get(node);
+			for (int t = 0; t < transitionActivity.length; t++) {
+				if (!net.isEnabled(current, t)) {
+					continue;
+				}
+				if (transitionActivity[t] >= 0) {
+					activities.set(transitionActivity[t]);
+					continue;
+				}
+				int[] next = current.clone();
+				net.fire(next, t);
+				MarkingKey key = new MarkingKey(next);
+				if (!seen.containsKey(key)) {
+					seen.put(key, markings.size());
+					markings.add(next);
+				}
+			}
+		}
+	}
+
+	private int firstEnabled(int[] marking, int[] candidates) {
+		for (int t : candidates) {
+			if (net.isEnabled(marking, t)) {
+				return t;
+			}
+		}
+		return -1;
+	}
+
+	private void fire(int[] marking, int transition, Result result) {
+		for (int w : net.getInputWeights(transition)) {
+			result.consumed += w;
+		}
+		for (int w : net.getOutputWeights(transition)) {
+			result.produced += w;
+		}
+		net.fire(marking, transition);
+	}
+
+	private static int sum(int[] marking) {
+		int total = 0;
+		for (int tokens : marking) {
+			total += tokens;
+		}
+		return total;
+	}
+
+	/**
+	 * Breadth first search over silent transitions for the shortest sequence that either enables one of the
+	 * target transitions or reaches the target marking. Marks the result ambiguous when another sequence of
+	 * the same length ends in a different marking.
+	 */
+	private int[] findSilentPath(int[] start, int[] targets, int[] targetMarking, Result result) {
+		if (silentTransitions.length == 0) {
+			return null;
+		}
+
+		List<int[]> markings = new ArrayList<>();
+		List<Integer> parents = new ArrayList<>();
+		List<Integer> moves = new ArrayList<>();
+		List<Integer> depths = new ArrayList<>();
+		Map<MarkingKey, Integer> seen = new HashMap<>();
+		ArrayDeque<Integer> queue = new ArrayDeque<>();
+
+		markings.add(start.clone());
+		parents.add(-1);
+		moves.add(-1);
+		depths.add(0);
+		seen.put(new MarkingKey(start), 0);
+		queue.add(0);
+
+		int found = -1;
+		while (!queue.isEmpty() && markings.size() < MAX_SILENT_SEARCH) {
+			int node = queue.poll();
+			if (found >= 0 && depths.get(node) >= depths.get(found)) {
+				break;
+			}
+
+			int[] marking = markings.get(node);
+			for (int t : silentTransitions) {
+				if (!net.isEnabled(marking, t)) {
+					continue;
+				}
+				int[] next = marking.clone();
+				net.fire(next, t);
+				MarkingKey key = new MarkingKey(next);
+				if (seen.containsKey(key)) {
+					continue;
+				}
+
+				int child = markings.size();
+				markings.add(next);
+				parents.add(node);
+				moves.add(t);
+				depths.add(depths.get(node) + 1);
+				seen.put(key, child);
+
+				boolean reached = targets != null ? firstEnabled(next, targets) >= 0 : Arrays.equals(next, targetMarking);
+				if (reached) {
+					if (found < 0) {
+						found = child;
+					} else if (depths.get(child).equals(depths.get(found))) {
+						// Two shortest silent sequences with different results
+						result.ambiguous = true;
+					}
+				} else if (found < 0) {
+					queue.add(child);
+				}
+			}
+		}
+
+		if (found < 0) {
+			return null;
+		}
+
+		int length = depths.get(found);
+		int[] path = new int[length];
+		for (int node = found; parents.get(node) >= 0; node = parents.get(node)) {
+			path[--length] = moves.get(node);
+		}
+		return path;
+	}
+
+	interface MarkingVisitor {
+		void visit(int position, int[] marking);
+	}
+
+	/**
+	 * Token counts of one replayed trace.
+	 */
+	static class Result {
+		long produced;
+		long consumed;
+		long missing;
+		long remaining;
+		boolean ambiguous;
+
+		double getFitness() {
+			double missingPart = consumed > 0 ? 1.0 - (double) missing / consumed : 1.0;
+			double remainingPart = produced > 0 ? 1.0 - (double) remaining / produced : 1.0;
+			return 0.5 * missingPart + 0.5 * remainingPart;
+		}
+	}
+}
@@ -0,0 +1,26 @@
+package main.conformance;
+
+/**
+ * How fitness treats traces whose alignment was not completed, because the search hit its state budget
+ * or was cancelled. Such traces carry an approximate fitness: the best value the search could still
+ * have reached, derived from the lowest cost left in its queue.
+ */
+public enum UnreliableTracePolicy {
+	/** Count the approximate fitness of the trace. */
+	BOUND("Use bound"),
+	/** Leave the trace out of the mean. */
+	EXCLUDE("Exclude"),
+	/** Report no fitness as soon as one trace is unreliable. */
+	FAIL("Fail");
+
+	private final String label;
+
+	UnreliableTracePolicy(String label) {
+		this.label = label;
+	}
+
+	@Override
+	public String toString() {
+		return label;
+	}
+}
@@ -4,14 +4,15 @@ import javafx.fxml.FXML;
 import javafx.scene.control.ListView;
 import javafx.scene.control.TextArea;
 import javafx.scene.control.Button;
+import main.log.CompactLog;
+import main.log.VariantIndex;
 import main.utils.ExportController;
-import org.deckfour.xes.model.XLog;
-import org.deckfour.xes.model.XTrace;
 import java.io.File;
 
 /**
  * Controller class for the Log Explorer UI.
- * Manages the display and interaction with event logs.
+ * Manages the display and interaction with event logs. The log is shown one row per variant, so the list stays
+ * small however many traces the log has.
  */
 public class LogExplorerController {
 	@FXML
@@ -21,12 +22,16 @@ public class LogExplorerController {
 	@FXML
 	private Button exportTxtButton;
 
-	private XLog log;
+	private static final int MAX_LISTED_TRACES = 100;
+
+	private CompactLog log;
+	private VariantIndex variants;
 	private File currentPnmlFile;
 	private String miningAlgorithm;
 
-	public void setLog(XLog log) {
+	public void setLog(CompactLog log) {
 		this.log = log;
+		this.variants = log.getVariantIndex();
 		populateTraceList();
 	}
 
@@ -40,8 +45,10 @@ public class LogExplorerController {
 
 	private void populateTraceList() {
 		traceListView.getItems().clear();
-		for (int i = 0; i < log.size(); i++) {
-			traceListView.getItems().add("Trace " + (i + 1) + " (" + log.get(i).size() + " events)");
+		for (int v = 0; v < variants.size(); v++) {
+			VariantIndex.Variant variant = variants.getVariant(v);
+			traceListView.getItems().add("Variant " + (v + 1) + " (" + variant.getCount() + " traces, "
+					+ variant.getActivities().size() + " events)");
 		}
 
 		traceListView.getSelectionModel().selectedItemProperty().addListener((obs, oldVal, newVal) -> {
@@ -52,17 +59,28 @@ public class LogExplorerController {
 		});
 	}
 
-	private void showTraceDetails(int traceIndex) {
-		XTrace trace = log.get(traceIndex);
+	private void showTraceDetails(int variantIndex) {
+		VariantIndex.Variant variant = variants.getVariant(variantIndex);
 		StringBuilder sb = new StringBuilder();
 
-		sb.append("Trace ").append(traceIndex + 1).append(":\n");
-		sb.append("Number of events: ").append(trace.size()).append("\n\n");
+		sb.append("Variant ").append(variantIndex + 1).append(":\n");
+		sb.append("Number of traces: ").append(variant.getCount()).append(String.format(" (%.1f%%)\n",
+				100.0 * variant.getCount() / variants.getTraceCount()));
+		sb.append("Number of events: ").append(variant.getActivities().size()).append("\n\n");
+
+		for (int i = 0; i < variant.getActivities().size(); i++) {
+			sb.append(i + 1).append(". ").append(variant.getActivities().get(i)).append("\n");
+		}
 
-		for (int i = 0; i < trace.size(); i++) {
-			String eventName = trace.get(i).getAttributes().get("concept:name").toString();
-			sb.append(i + 1).append(". ").append(eventName).append("\n");
+		sb.append("\nTraces: ");
+		int listed = Math.min(variant.getCount(), MAX_LISTED_TRACES);
+		for (int i = 0; i < listed; i++) {
+			sb.append(i > 0 ? ", " : "").append(log.getTraceName(variant.getTraceIndex(i)));
+		}
+		if (listed < variant.getCount()) {
+			sb.append(" and ").append(variant.getCount() - listed).append(" more");
 		}
+		sb.append("\n");
 
 		traceDetailsTextArea.setText(sb.toString());
 	}
@@ -9,25 +9,30 @@ import javafx.scene.layout.HBox;
 import javafx.scene.layout.Region;
 import javafx.scene.layout.VBox;
 import javafx.scene.web.WebView;
+import javafx.stage.FileChooser;
 import javafx.stage.Stage;
 import main.PnmlToModelConverter;
 import org.processmining.models.graphbased.directed.petrinet.Petrinet;
 import java.io.File;
 import main.algorithms.MiningAlgorithm;
 import main.algorithms.MiningAlgorithmSelector;
+import main.io.XesReader;
+import main.log.CompactLog;
+import main.model.AcceptingPetriNet;
 import main.utils.ExportController;
 import main.utils.FileHandler;
 import main.utils.MurataReduction;
 import main.utils.VisualisationController;
 import org.deckfour.xes.model.XLog;
 import java.io.IOException;
-import java.util.HashSet;
-import java.util.Set;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 
 import main.utils.Utils;
 import org.processmining.contexts.uitopia.UIContext;
 import org.processmining.contexts.uitopia.UIPluginContext;
-import org.processmining.models.semantics.petrinet.Marking;
 
 /**
  * Controller for the main mining application UI.
@@ -40,6 +45,7 @@ public class MiningController {
 	@FXML private TextArea miningResultsTextArea;
 	@FXML private Button loadPetriNetButton;
 	@FXML private Button generateLogButton;
+	@FXML private Button generateLogToXesButton;
 	@FXML private Button mineModelButton;
 	@FXML private Button clearResultsButton;
 	@FXML private Button exportLogXesButton;
@@ -64,11 +70,12 @@ public class MiningController {
 	@FXML private ProgressIndicator progressIndicator;
 
 	private final PnmlToModelConverter converter = new PnmlToModelConverter();
-	private Petrinet originalModel;
+	private AcceptingPetriNet originalModel;
 	private XLog generatedLog;
+	private CompactLog generatedCompactLog;
 	private File currentPnmlFile;
-	private Petrinet discoveredModel;
-	private Petrinet reducedModelCache = null;
+	private AcceptingPetriNet discoveredModel;
+	private AcceptingPetriNet reducedModelCache = null;
 	private final VisualisationController visualisationController = new VisualisationController();
 	
 	private enum FileType {
@@ -87,10 +94,10 @@ public class MiningController {
 	@FXML private Button mineFromXesButton;
 	@FXML private Button exportXesPnmlButton;
 	@FXML private XLog importedXesLog;
+	private CompactLog importedCompactLog;
 	
 	private MurataReduction silentTransitionRemover;
 	private UIPluginContext pluginContext;
-	private Marking initialMarking;
 
 	@FXML
 	private void initialize() {
@@ -118,7 +125,7 @@ public class MiningController {
 	
 	private void updateButtonStates() {
 	    boolean hasLog = (generatedLog != null && !generatedLog.isEmpty())
-	            || (importedXesLog != null && !importedXesLog.isEmpty());
+	            || (importedCompactLog != null && importedCompactLog.getTraceCount() > 0);
 	    boolean hasDiscoveredModel = discoveredModel != null;
 	    boolean hasAlgorithmSelected = miningAlgorithmComboBox.getValue() != null
 	            && !miningAlgorithmComboBox.getValue().isEmpty();
@@ -147,8 +154,9 @@ public class MiningController {
 			int maxTraceLength = Utils.parseIntWithDefault(maxTraceLengthField.getText(), 50);
 
 			// Generate log with parameters using the stored PNML file
-			generatedLog = converter.generateLogFromPnml(originalModel, currentPnmlFile, numberOfTraces,
+			generatedCompactLog = converter.generateCompactLogFromPnml(originalModel, numberOfTraces,
 					maxTraceLength);
+			generatedLog = generatedCompactLog.toXLog();
 
 			displayGeneratedLogInformation();
 			updateButtonStates();
@@ -162,6 +170,57 @@ public class MiningController {
 		}
 	}
 
+	/**
+	 * Generates the log straight into an XES file chosen by the user, without keeping it in memory,
+	 * for logs too large to generate in the application.
+	 */
+	@FXML
+	private void handleGenerateLogToXes() {
+		if (originalModel == null) {
+			Utils.showErrorMessage(applicationStatusLabel, miningResultsTextArea,
+					"No Petri net loaded to generate log from.", null);
+			return;
+		}
+
+		FileChooser fileChooser = new FileChooser();
+		fileChooser.setTitle("Generate Event Log to XES");
+		fileChooser.getExtensionFilters().addAll(new FileChooser.ExtensionFilter("XES Files", "*.xes"),
+				new FileChooser.ExtensionFilter("Compressed XES Files", "*.xes.gz"));
+		fileChooser.setInitialFileName(ExportController.getSuggestedFileName(currentPnmlFile, null, "xes"));
+		File file = fileChooser.showSaveDialog(generateLogToXesButton.getScene().getWindow());
+		if (file == null) {
+			return;
+		}
+		File outputFile = ExportController.toXesFile(file);
+
+		int numberOfTraces = Utils.parseIntWithDefault(traceCountField.getText(), 1000);
+		int maxTraceLength = Utils.parseIntWithDefault(maxTraceLengthField.getText(), 50);
+		AcceptingPetriNet model = originalModel;
+
+		progressIndicator.setVisible(true);
+		generateLogToXesButton.setDisable(true);
+		updateApplicationStatus("Generating " + numberOfTraces + " traces to " + outputFile.getName() + "...");
+
+		new Thread(() -> {
+			try {
+				long written = converter.generateLogToXes(model, numberOfTraces, maxTraceLength, outputFile);
+				javafx.application.Platform.runLater(() -> {
+					updateApplicationStatus("Event log with " + written + " traces written to " + outputFile.getName());
+					miningResultsTextArea.appendText("\nEvent log with " + written + " traces written to "
+							+ outputFile.getAbsolutePath() + "\n");
+				});
+			} catch (Exception e) {
+				javafx.application.Platform.runLater(() -> Utils.showErrorMessage(applicationStatusLabel,
+						miningResultsTextArea, "Failed to generate event log", e));
+			} finally {
+				javafx.application.Platform.runLater(() -> {
+					progressIndicator.setVisible(false);
+					generateLogToXesButton.setDisable(originalModel == null);
+				});
+			}
+		}, "log-generation").start();
+	}
+
 	@FXML
 	private void handleClearResults() {
 		// Reset all values to defaults
@@ -172,10 +231,12 @@ public class MiningController {
 
 		// Clear data and UI
 		generatedLog = null;
+		generatedCompactLog = null;
 		discoveredModel = null;
 		originalModel = null;
 		currentPnmlFile = null;
 		importedXesLog = null;
+		importedCompactLog = null;
 		silentTransitionRemover = null; // Use default constructor
 		reducedModelCache = null; // Clear the cache
 
@@ -203,8 +264,10 @@ public class MiningController {
 
 		// Clear existing data
 		generatedLog = null;
+		generatedCompactLog = null;
 		discoveredModel = null;
 		importedXesLog = null;
+		importedCompactLog = null;
 
 		// Clear visualisations
 		visualisationController.clearWebView(originalModelWebView);
@@ -219,6 +282,7 @@ public class MiningController {
 
 		// Reset& Disable buttons
 		generateLogButton.setDisable(false);
+		generateLogToXesButton.setDisable(false);
 		mineModelButton.setDisable(true);
 		updateButtonStates();
 
@@ -232,9 +296,10 @@ public class MiningController {
 
 	private void displayLoadedModelInformation(File modelFile) {
 		String modelName = modelFile.getName();
-		int places = originalModel.getPlaces().size();
-		int transitions = originalModel.getTransitions().size();
-		int arcs = originalModel.getEdges().size();
+		Petrinet net = originalModel.getNet();
+		int places = net.getPlaces().size();
+		int transitions = net.getTransitions().size();
+		int arcs = net.getEdges().size();
 
 		updateApplicationStatus(
 				String.format("Loaded %s (%d places, %d transitions, %d arcs)", modelName, places, transitions, arcs));
@@ -245,11 +310,13 @@ public class MiningController {
 	}
 
 	private void displayGeneratedLogInformation() {
-		int traceCount = generatedLog.size();
-		int eventCount = generatedLog.stream().mapToInt(trace -> trace.size()).sum();
+		int traceCount = generatedCompactLog.getTraceCount();
+		int eventCount = generatedCompactLog.getEventCount();
+		// Built here once and shared by the explorer, export and conformance
+		int variantCount = generatedCompactLog.getVariantIndex().size();
 
-		miningResultsTextArea.appendText(String.format(
-				"\nGenerated event log:\n" + "- Traces: %d\n" + "- Total events: %d\n\n", traceCount, eventCount));
+		miningResultsTextArea.appendText(String.format("\nGenerated event log:\n" + "- Traces: %d\n"
+				+ "- Variants: %d\n" + "- Total events: %d\n\n", traceCount, variantCount, eventCount));
 	}
 
 	private void displayMiningResults(String algorithmName, String result) {
@@ -267,6 +334,7 @@ public class MiningController {
 		miningResultsTextArea.appendText("Details: " + e.getMessage() + "\n");
 		originalModel = null;
 		generateLogButton.setDisable(true);
+		generateLogToXesButton.setDisable(true);
 		mineModelButton.setDisable(true);
 		e.printStackTrace();
 	}
@@ -291,7 +359,7 @@ public class MiningController {
 	
 	@FXML
 	private void handleExportPnml() {
-	    Petrinet modelToExport = discoveredModel;
+	    AcceptingPetriNet modelToExport = discoveredModel;
 	    boolean isReduced = false;
 	    
 	    // Use reduced model if checkbox is checked and reduced model is available
@@ -324,7 +392,8 @@ public class MiningController {
 
 	@FXML
 	private void handleShowTraceBrowser() {
-		if (generatedLog == null) {
+		CompactLog logToShow = (currentFileType == FileType.XES) ? importedCompactLog : generatedCompactLog;
+		if (logToShow == null) {
 			Utils.showErrorMessage(applicationStatusLabel, miningResultsTextArea, "No event log generated to view.",
 					null);
 			return;
@@ -335,7 +404,7 @@ public class MiningController {
 			Parent root = loader.load();
 
 			LogExplorerController controller = loader.getController();
-			controller.setLog(generatedLog);
+			controller.setLog(logToShow);
 
 			controller.setOriginalFile(currentPnmlFile);
 			controller.setMiningAlgorithm(miningAlgorithmComboBox.getValue());
@@ -358,16 +427,17 @@ public class MiningController {
 				resetUIForNewModel();
 
 				currentPnmlFile = selectedFile;
-				originalModel = converter.loadPetriNetFromPnml(selectedFile);
+				originalModel = converter.loadAcceptingPetriNetFromPnml(selectedFile);
 
 				// Display the original model
-				visualisationController.displayModelInWebView(originalModelWebView, originalModel, "Original Model");
+				visualisationController.displayModelInWebView(originalModelWebView, originalModel.getNet(), "Original Model");
 
-				System.out.println("Petri net loaded with: " + originalModel.getPlaces().size() + " places, "
-						+ originalModel.getTransitions().size() + " transitions");
+				System.out.println("Petri net loaded with: " + originalModel.getNet().getPlaces().size() + " places, "
+						+ originalModel.getNet().getTransitions().size() + " transitions");
 
 				displayLoadedModelInformation(selectedFile);
 				generateLogButton.setDisable(false);
+				generateLogToXesButton.setDisable(false);
 			} catch (Exception e) {
 				handleModelLoadingError(e);
 			}
@@ -385,7 +455,7 @@ public class MiningController {
 	    removeSilentTransitionsCheckbox.setSelected(false);
 	    applicationStatusLabel.getStyleClass().removeAll("status-removing-silent", "status-silent-removed");
 	    
-	    XLog logToMine = (currentFileType == FileType.XES) ? importedXesLog : generatedLog;
+	    XLog logToMine = (currentFileType == FileType.XES) ? getImportedXesLog() : generatedLog;
 	    if (logToMine == null) {
 	        Utils.showErrorMessage(applicationStatusLabel, miningResultsTextArea,
 	                "No event log available to mine a model from. Please generate or import a log first.", null);
@@ -409,10 +479,6 @@ public class MiningController {
 	        // Mine the model using the algorithm
 	        System.out.println("[DEBUG] Starting mining process...");
 	        discoveredModel = algorithm.mine(pluginContext, logToMine);
-	        
-	        // Create an empty marking for now
-	        initialMarking = new Marking();
-	        System.out.println("[DEBUG] Using empty initial marking");
 
 	        if (discoveredModel == null) {
 	            System.err.println("[ERROR] Mining algorithm returned null model");
@@ -421,22 +487,23 @@ public class MiningController {
 	            return;
 	        }
 
+	        Petrinet discoveredNet = discoveredModel.getNet();
 	        System.out.printf("[DEBUG] Discovered model stats - Places: %d, Transitions: %d, Edges: %d\n",
-	                discoveredModel.getPlaces().size(), discoveredModel.getTransitions().size(),
-	                discoveredModel.getEdges().size());
+	                discoveredNet.getPlaces().size(), discoveredNet.getTransitions().size(),
+	                discoveredNet.getEdges().size());
 
 	        // Initialise the silent transition remover with the algorithm's context
 	        silentTransitionRemover = new MurataReduction(pluginContext);
 
 	        // Display the model
 	        System.out.println("[DEBUG] Attempting to display discovered model");
-	        visualisationController.displayModelInWebView(discoveredModelWebView, discoveredModel,
+	        visualisationController.displayModelInWebView(discoveredModelWebView, discoveredNet,
 	                currentFileType == FileType.XES ? "Discovered Model (from XES)" : "Discovered Model");
 
 	        // Different output based on workflow
 	        if (currentFileType == FileType.PNML) {
 	            // PNML workflow - compare with original model
-	            String comparisonResult = converter.compareModels(originalModel, discoveredModel);
+	            String comparisonResult = converter.compareModels(originalModel.getNet(), discoveredNet);
 	            displayMiningResults(selectedAlgorithm, comparisonResult);
 	        } else {
 	            // XES workflow - show mining statistics
@@ -487,7 +554,7 @@ public class MiningController {
 				String filename = selectedFile.getName().toLowerCase();
 				if (filename.endsWith(".pnml")) {
 					loadPnmlFile(selectedFile);
-				} else if (filename.endsWith(".xes")) {
+				} else if (filename.endsWith(".xes") || filename.endsWith(".xes.gz")) {
 					loadXesFile(selectedFile);
 				} else {
 					Utils.showErrorMessage(applicationStatusLabel, miningResultsTextArea,
@@ -512,8 +579,8 @@ public class MiningController {
 		logExplorerButton.setVisible(true);
 
 		currentPnmlFile = pnmlFile;
-		originalModel = converter.loadPetriNetFromPnml(pnmlFile);
-		visualisationController.displayModelInWebView(originalModelWebView, originalModel, "Original Model");
+		originalModel = converter.loadAcceptingPetriNetFromPnml(pnmlFile);
+		visualisationController.displayModelInWebView(originalModelWebView, originalModel.getNet(), "Original Model");
 
 		// Update UI state
 		currentFileType = FileType.PNML;
@@ -526,11 +593,61 @@ public class MiningController {
 		resetUIForNewModel();
 		pnmlWorkflowBox.setVisible(false);
 
+		String classifier = chooseXesClassifier(xesFile);
+
+		// Large logs take a while, so the log is read in the background with the progress shown
+		progressIndicator.setProgress(0);
+		progressIndicator.setVisible(true);
+		importFileButton.setDisable(true);
+		updateApplicationStatus("Loading " + xesFile.getName() + "...");
+
+		new Thread(() -> {
+			try {
+				CompactLog log = converter.importCompactXesLog(xesFile, classifier,
+						fraction -> javafx.application.Platform.runLater(() -> progressIndicator.setProgress(fraction)));
+				javafx.application.Platform.runLater(() -> showImportedXesLog(xesFile, log));
+			} catch (Exception e) {
+				javafx.application.Platform.runLater(() -> Utils.showErrorMessage(applicationStatusLabel,
+						miningResultsTextArea, "Failed to import file", e));
+			} finally {
+				javafx.application.Platform.runLater(() -> {
+					progressIndicator.setVisible(false);
+					progressIndicator.setProgress(ProgressIndicator.INDETERMINATE_PROGRESS);
+					importFileButton.setDisable(false);
+				});
+			}
+		}, "xes-import").start();
+	}
+
+	/**
+	 * Lets the user pick one of the classifiers the log declares; null, for concept:name, when it declares none.
+	 */
+	private String chooseXesClassifier(File xesFile) throws Exception {
+		Map<String, List<String>> classifiers = converter.readXesClassifiers(xesFile);
+		if (classifiers.isEmpty()) {
+			return null;
+		}
+		List<String> names = new ArrayList<>(classifiers.keySet());
+		String preselected = names.get(0);
+		for (Map.Entry<String, List<String>> classifier : classifiers.entrySet()) {
+			if (classifier.getValue().equals(Collections.singletonList(XesReader.DEFAULT_CLASSIFIER))) {
+				preselected = classifier.getKey();
+				break;
+			}
+		}
+		ChoiceDialog<String> dialog = new ChoiceDialog<>(preselected, names);
+		dialog.setTitle("Event Classifier");
+		dialog.setHeaderText("Choose how events of " + xesFile.getName() + " are mapped to activities");
+		dialog.setContentText("Classifier:");
+		return dialog.showAndWait().orElse(preselected);
+	}
+
+	private void showImportedXesLog(File xesFile, CompactLog log) {
 		// Show mining controls
 		miningSectionBox.setVisible(true);
 
-		// Load the log
-		importedXesLog = converter.importXesLog(xesFile);
+		importedCompactLog = log;
+		importedXesLog = null;
 		currentPnmlFile = xesFile;
 		
 		// Display log information in text area
@@ -539,7 +656,7 @@ public class MiningController {
 		// Update UI state
 		currentFileType = FileType.XES;
 		updateUIForFileType();
-		updateApplicationStatus("Loaded XES log with " + importedXesLog.size() + " traces");
+		updateApplicationStatus("Loaded XES log with " + log.getTraceCount() + " traces");
 
 		// Enable controls
 		mineModelButton.setDisable(false);
@@ -556,6 +673,17 @@ public class MiningController {
 		miningSectionBox.getStyleClass().add("xes-workflow");
 	}
 
+	/**
+	 * OpenXES log the plugins mine, built from the imported log the first time it is needed; it takes many times
+	 * the memory of the compact log.
+	 */
+	private XLog getImportedXesLog() {
+		if (importedXesLog == null && importedCompactLog != null) {
+			importedXesLog = converter.toMiningLog(importedCompactLog);
+		}
+		return importedXesLog;
+	}
+
 	private void updateUIForFileType() {
 		switch (currentFileType) {
 		case PNML:
@@ -598,9 +726,10 @@ public class MiningController {
 			dialog.setDialogPane(dialogPane);
 			dialog.setTitle(miningAlgorithmComboBox.getValue() + " Settings");
 
-			XLog currentLog = (currentFileType == FileType.XES) ? importedXesLog : generatedLog;
+			XLog currentLog = (currentFileType == FileType.XES) ? getImportedXesLog() : generatedLog;
 
 			// Initialise with current settings
+			parametersController.setLog(currentLog);
 			parametersController.setAlgorithm(algorithm, dialog, this);
 
 			// Show dialog and wait for response
@@ -635,13 +764,17 @@ public class MiningController {
 		return currentPnmlFile;
 	}
 
-	public Petrinet getOriginalModel() {
+	public AcceptingPetriNet getOriginalModel() {
 		return originalModel;
 	}
 
 	public XLog getGeneratedLog() {
 		return generatedLog;
 	}
+
+	public CompactLog getGeneratedCompactLog() {
+		return generatedCompactLog;
+	}
 	
 	public UIPluginContext getPluginContext() {
 	    return this.pluginContext;
@@ -667,23 +800,25 @@ public class MiningController {
 	            }
 	            
 	            // Count silent transitions before removal
-	            int originalSilentCount = Utils.countSilentTransitions(discoveredModel);
+	            int originalSilentCount = Utils.countSilentTransitions(discoveredModel.getNet());
 	            miningResultsTextArea.appendText("\n=== Murata Silent Transition Reduction ===\n");
 	            miningResultsTextArea.appendText("Found " + originalSilentCount + " silent transitions\n");
 	            
 	            
 	         // Apply Murata reduction and cache the result
-	            reducedModelCache = silentTransitionRemover.removeSilentTransitions(discoveredModel, initialMarking);
+	            reducedModelCache = silentTransitionRemover.removeSilentTransitions(discoveredModel);
 	            
 	            if (reducedModelCache != null) {
 	                // Display the reduced model
-	                visualisationController.displayModelInWebView(discoveredModelWebView, reducedModelCache,
+	                visualisationController.displayModelInWebView(discoveredModelWebView, reducedModelCache.getNet(),
 	                        currentFileType == FileType.XES ? 
 	                        "Discovered Model (Murata Reduced)" : 
 	                        "Discovered Model (Murata Reduced)");
 	                
 	                // Add statistics to results
-	                String stats = silentTransitionRemover.getStatistics(originalModel, discoveredModel, reducedModelCache);
+	                String stats = silentTransitionRemover.getStatistics(
+	                		originalModel != null ? originalModel.getNet() : null, discoveredModel.getNet(),
+	                		reducedModelCache.getNet());
 	                updateApplicationStatus("Murata reduction completed successfully");
 	                applicationStatusLabel.getStyleClass().remove("status-removing-silent");
 	                applicationStatusLabel.getStyleClass().add("status-silent-removed");
@@ -701,7 +836,7 @@ public class MiningController {
 	        } else {
 	            // Restore the original discovered model
 	        	reducedModelCache = null; // Clear cache
-	            visualisationController.displayModelInWebView(discoveredModelWebView, discoveredModel,
+	            visualisationController.displayModelInWebView(discoveredModelWebView, discoveredModel.getNet(),
 	                    currentFileType == FileType.XES ? "Discovered Model (from XES)" : "Discovered Model");
 	            
 	            updateApplicationStatus("Original model restored");
@@ -752,38 +887,31 @@ public class MiningController {
 	        return;
 	    }
 	    
-	    StatisticsController.showStatisticsWindow(currentPnmlFile, originalModel, generatedLog, this);
+	    StatisticsController.showStatisticsWindow(currentPnmlFile, originalModel.getNet(), generatedLog, generatedCompactLog,
+	            this);
 	}
 	
 	private void displayImportedXesLogInformation(File xesFile) {
-	    if (importedXesLog == null) {
+	    if (importedCompactLog == null) {
 	        return;
 	    }
 	    
 	    String logName = xesFile.getName();
-	    int traceCount = importedXesLog.size();
-	    int eventCount = importedXesLog.stream().mapToInt(trace -> trace.size()).sum();
-	    
-	    // Calculate unique activities
-	    Set<String> uniqueActivities = new HashSet<>();
-	    for (org.deckfour.xes.model.XTrace trace : importedXesLog) {
-	        for (org.deckfour.xes.model.XEvent event : trace) {
-	            String activityName = converter.getEventName(event);
-	            if (activityName != null) {
-	                uniqueActivities.add(activityName);
-	            }
-	        }
-	    }
+	    int traceCount = importedCompactLog.getTraceCount();
+	    int eventCount = importedCompactLog.getEventCount();
+	    int activityCount = importedCompactLog.getActivityCount();
+	    int variantCount = importedCompactLog.getVariantIndex().size();
 	    
-	    updateApplicationStatus(String.format("Loaded %s (%d traces, %d events, %d unique activities)", 
-	            logName, traceCount, eventCount, uniqueActivities.size()));
+	    updateApplicationStatus(String.format("Loaded %s (%d traces, %d variants, %d events, %d unique activities)", 
+	            logName, traceCount, variantCount, eventCount, activityCount));
 
 	    miningResultsTextArea.appendText(String.format("Successfully imported XES log:\n" + 
 	            "- File: %s\n" + 
 	            "- Traces: %d\n" + 
+	            "- Variants: %d\n" + 
 	            "- Total events: %d\n" + 
 	            "- Unique activities: %d\n\n", 
-	            logName, traceCount, eventCount, uniqueActivities.size()));
+	            logName, traceCount, variantCount, eventCount, activityCount));
 	    clearResultsButton.setDisable(false);
 	}
 	
@@ -5,18 +5,27 @@ import javafx.fxml.FXML;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Node;
 import javafx.scene.control.*;
+import javafx.scene.control.cell.PropertyValueFactory;
 import javafx.scene.layout.VBox;
 import main.algorithms.*;
+import main.comparison.ComparisonPipeline;
+import main.comparison.ComparisonScheduler;
+import main.conformance.AlignmentBackend;
 import main.controller.settings.HeuristicMinerSettingsController;
 import main.controller.settings.InductiveMinerSettingsController;
 import main.controller.settings.SplitMinerSettingsController;
 import main.controller.settings.ETMParameterStorage;
 import main.controller.settings.EvolutionaryTreeMinerSettingsController;
 import java.io.IOException;
+import java.util.List;
 import java.util.Map;
+import org.deckfour.xes.model.XLog;
 import org.processmining.plugins.InductiveMiner.mining.MiningParameters;
 import org.processmining.plugins.heuristicsnet.miner.heuristics.miner.settings.HeuristicsMinerSettings;
 
+import main.sweep.ParameterSpace;
+import main.sweep.ParameterSweep;
+import main.sweep.SweepPoint;
 import main.utils.Utils;
 
 /**
@@ -30,10 +39,35 @@ public class ParametersSettingsController {
 	@FXML private ButtonType saveAndMineButton;
 	@FXML private ButtonType resetButton;
 
+	@FXML private TitledPane sweepPane;
+	@FXML private ComboBox<String> sweepModeComboBox;
+	@FXML private TextField sweepSamplesField;
+	@FXML private Button runSweepButton;
+	@FXML private Button applySweepButton;
+	@FXML private ProgressIndicator sweepProgress;
+	@FXML private Label sweepStatusLabel;
+	@FXML private TableView<SweepPoint> sweepTableView;
+	@FXML private TableColumn<SweepPoint, String> sweepParametersColumn;
+	@FXML private TableColumn<SweepPoint, Double> sweepFitnessColumn;
+	@FXML private TableColumn<SweepPoint, Double> sweepPrecisionColumn;
+	@FXML private TableColumn<SweepPoint, Long> sweepTimeColumn;
+
+	// Random search points are reproducible between sweeps
+	private static final long SWEEP_SEED = 42;
+
 	private MiningAlgorithm currentAlgorithm;
 	private Dialog<ButtonType> dialog;
 	private MiningController miningController;
 	private Object currentSettingsController;
+	private XLog log;
+	private volatile ComparisonScheduler sweepScheduler;
+
+	/**
+	 * The log the parameter sweep mines from. Without a log the sweep is disabled.
+	 */
+	public void setLog(XLog log) {
+		this.log = log;
+	}
 
 	public void setAlgorithm(MiningAlgorithm algorithm, Dialog<ButtonType> dialog, MiningController miningController) {
 		this.currentAlgorithm = algorithm;
@@ -60,21 +94,7 @@ public class ParametersSettingsController {
 
 			// Initialise controller
 			Object controller = loader.getController();
-			if (controller instanceof HeuristicMinerSettingsController) {
-				((HeuristicMinerSettingsController) controller)
-						.initialize((HeuristicsMinerSettings) algorithm.getParameters());
-			} else if (controller instanceof InductiveMinerSettingsController) {
-				((InductiveMinerSettingsController) controller)
-						.initialize((MiningParameters) algorithm.getParameters());
-			} else if (controller instanceof EvolutionaryTreeMinerSettingsController) {
-				// Get the parameter storage from the algorithm
-				ETMParameterStorage storage = ((EvolutionaryTreeMinerAlgorithm) algorithm).getParameterStorage();
-
-				// Initialise the controller with the storage
-				((EvolutionaryTreeMinerSettingsController) controller).initialize(storage);
-			} else if (controller instanceof SplitMinerSettingsController) {
-				((SplitMinerSettingsController) controller).initialize((Map<String, Object>) algorithm.getParameters());
-			} else {
+			if (!initializeSettingsController(controller)) {
 				Utils.showErrorMessage(miningController.getStatusLabel(), miningController.getMiningResultsTextArea(),
 						"Unknown algorithm settings controller", null);
 				return;
@@ -84,6 +104,7 @@ public class ParametersSettingsController {
 
 			// Configure buttons
 			configureDialogButtons();
+			setupSweep();
 
 		} catch (IOException e) {
 			e.printStackTrace();
@@ -92,6 +113,128 @@ public class ParametersSettingsController {
 		}
 	}
 
+	/**
+	 * Shows the current parameters of the algorithm in the settings controller.
+	 */
+	private boolean initializeSettingsController(Object controller) {
+		MiningAlgorithm algorithm = currentAlgorithm;
+		if (controller instanceof HeuristicMinerSettingsController) {
+			((HeuristicMinerSettingsController) controller)
+					.initialize((HeuristicsMinerSettings) algorithm.getParameters());
+		} else if (controller instanceof InductiveMinerSettingsController) {
+			((InductiveMinerSettingsController) controller)
+					.initialize((MiningParameters) algorithm.getParameters());
+		} else if (controller instanceof EvolutionaryTreeMinerSettingsController) {
+			// Get the parameter storage from the algorithm
+			ETMParameterStorage storage = ((EvolutionaryTreeMinerAlgorithm) algorithm).getParameterStorage();
+
+			// Initialise the controller with the storage
+			((EvolutionaryTreeMinerSettingsController) controller).initialize(storage);
+		} else if (controller instanceof SplitMinerSettingsController) {
+			((SplitMinerSettingsController) controller).initialize((Map<String, Object>) algorithm.getParameters());
+		} else {
+			return false;
+		}
+		return true;
+	}
+
+	private void setupSweep() {
+		ParameterSpace space = ParameterSpace.defaultFor(currentAlgorithm.getAlgorithmName());
+		sweepModeComboBox.getItems().setAll("Grid", "Random");
+		sweepModeComboBox.setValue("Grid");
+		sweepParametersColumn.setCellValueFactory(new PropertyValueFactory<>("parameterSummary"));
+		sweepFitnessColumn.setCellValueFactory(new PropertyValueFactory<>("fitness"));
+		sweepPrecisionColumn.setCellValueFactory(new PropertyValueFactory<>("precision"));
+		sweepTimeColumn.setCellValueFactory(new PropertyValueFactory<>("executionTime"));
+		sweepTableView.getSelectionModel().selectedItemProperty()
+				.addListener((obs, oldPoint, newPoint) -> applySweepButton.setDisable(newPoint == null));
+
+		if (space == null) {
+			sweepPane.setDisable(true);
+			sweepStatusLabel.setText("No sweep parameters for " + currentAlgorithm.getAlgorithmName());
+		} else if (log == null || log.isEmpty()) {
+			runSweepButton.setDisable(true);
+			sweepStatusLabel.setText("Load or generate a log to run a sweep");
+		}
+
+		// Stop a running sweep with the dialog
+		dialog.setOnHidden(event -> {
+			ComparisonScheduler scheduler = sweepScheduler;
+			if (scheduler != null) {
+				scheduler.cancel();
+			}
+		});
+	}
+
+	@FXML
+	private void handleRunSweep() {
+		ParameterSpace space = ParameterSpace.defaultFor(currentAlgorithm.getAlgorithmName());
+		if (space == null || log == null) {
+			return;
+		}
+		List<Map<String, Double>> configurations = "Random".equals(sweepModeComboBox.getValue())
+				? space.random(Math.max(1, Utils.parseIntWithDefault(sweepSamplesField.getText().trim(), 20)), SWEEP_SEED)
+				: space.grid();
+
+		runSweepButton.setDisable(true);
+		applySweepButton.setDisable(true);
+		sweepProgress.setVisible(true);
+		sweepTableView.getItems().clear();
+		sweepStatusLabel.setText("Running " + configurations.size() + " configurations...");
+		// Set before the thread starts, so closing the dialog right away cancels the sweep
+		ComparisonScheduler scheduler = new ComparisonScheduler(ComparisonScheduler.defaultParallelism());
+		sweepScheduler = scheduler;
+
+		new Thread(() -> {
+			try {
+				// The built-in alignments give the same fitness as ProM in a fraction of the time
+				ComparisonPipeline pipeline = new ComparisonPipeline(log, false);
+				pipeline.setAlignmentBackend(AlignmentBackend.NATIVE);
+
+				int[] finished = { 0 };
+				List<SweepPoint> points = new ParameterSweep(pipeline, scheduler).run(space, configurations,
+						point -> {
+							finished[0]++;
+							String progress = "Finished " + finished[0] + " of " + configurations.size();
+							javafx.application.Platform.runLater(() -> sweepStatusLabel.setText(progress));
+						});
+				List<SweepPoint> front = ParameterSweep.paretoFront(points);
+				long failed = points.stream().filter(p -> !p.isComplete()).count();
+
+				javafx.application.Platform.runLater(() -> {
+					sweepTableView.getItems().setAll(front);
+					sweepStatusLabel.setText(front.size() + " of " + points.size() + " configurations on the Pareto front"
+							+ (failed > 0 ? ", " + failed + " failed" : ""));
+				});
+			} catch (Exception e) {
+				e.printStackTrace();
+				javafx.application.Platform.runLater(() -> sweepStatusLabel.setText("Sweep failed: " + e.getMessage()));
+			} finally {
+				if (sweepScheduler == scheduler) {
+					sweepScheduler = null;
+				}
+				javafx.application.Platform.runLater(() -> {
+					sweepProgress.setVisible(false);
+					runSweepButton.setDisable(false);
+				});
+			}
+		}).start();
+	}
+
+	/**
+	 * Applies the selected point to the algorithm and shows it in the settings above.
+	 */
+	@FXML
+	private void handleApplySweepPoint() {
+		SweepPoint point = sweepTableView.getSelectionModel().getSelectedItem();
+		if (point == null) {
+			return;
+		}
+		ParameterSweep.apply(currentAlgorithm, point.getValues());
+		initializeSettingsController(currentSettingsController);
+		sweepStatusLabel.setText("Applied " + point.getParameterSummary());
+	}
+
 	private void updateSettings() {
 		if (currentSettingsController instanceof InductiveMinerSettingsController) {
 			InductiveMinerSettingsController controller = (InductiveMinerSettingsController) currentSettingsController;
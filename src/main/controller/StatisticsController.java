@@ -9,47 +9,28 @@ import javafx.scene.control.cell.PropertyValueFactory;
 import javafx.scene.layout.HBox;
 import javafx.scene.layout.VBox;
 import javafx.stage.Stage;
-import main.algorithms.MiningAlgorithm;
 import main.algorithms.MiningAlgorithmSelector;
-import main.utils.MurataReduction;
+import main.cache.ResultCache;
+import main.comparison.AlgorithmResult;
+import main.comparison.ComparisonPipeline;
+import main.comparison.ComparisonScheduler;
+import main.comparison.StageDeadlines;
+import main.conformance.AlignmentBackend;
+import main.conformance.FitnessMethod;
+import main.conformance.UnreliableTracePolicy;
+import main.log.CompactLog;
 import main.utils.Utils;
-import nl.tue.astar.AStarException;
 
 import org.deckfour.xes.model.XLog;
-import org.processmining.contexts.uitopia.UIContext;
-import org.processmining.contexts.uitopia.UIPluginContext;
 import org.processmining.models.graphbased.directed.petrinet.Petrinet;
-import org.processmining.models.semantics.petrinet.Marking;
 import java.io.File;
-import java.io.OutputStream;
-import java.io.PrintStream;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.EnumMap;
 import java.util.List;
 import java.util.Map;
 import javafx.util.Callback;
-import org.deckfour.xes.classification.XEventClass;
-import org.deckfour.xes.classification.XEventClassifier;
-import org.deckfour.xes.classification.XEventNameClassifier;
-import org.deckfour.xes.info.XLogInfo;
-import org.deckfour.xes.info.XLogInfoFactory;
-import org.eclipse.collections.impl.map.mutable.UnifiedMap;
-import org.processmining.models.connections.petrinets.behavioral.FinalMarkingConnection;
-import org.processmining.plugins.astar.petrinet.PetrinetReplayerWithILP;
-import org.processmining.plugins.connectionfactories.logpetrinet.TransEvClassMapping;
-import org.processmining.plugins.petrinet.replayer.algorithms.IPNReplayParameter;
-import org.processmining.plugins.petrinet.replayer.algorithms.costbasedcomplete.CostBasedCompleteParam;
-import org.processmining.plugins.petrinet.replayresult.PNRepResult;
-import org.processmining.plugins.replayer.replayresult.SyncReplayResult;
-import com.raffaeleconforti.wrapper.PetrinetWithMarking;
-import com.raffaeleconforti.marking.MarkingDiscoverer;
 //import au.edu.qut.bpmn.metrics.ComplexityCalculator;
-//import au.edu.qut.petrinet.tools.SoundnessChecker;
-import org.processmining.framework.plugin.PluginContext;
-import org.processmining.plugins.multietc.plugins.MultiETCPlugin;
-import org.processmining.plugins.multietc.res.MultiETCResult;
-import org.processmining.plugins.multietc.sett.MultiETCSettings;
-import org.processmining.models.graphbased.directed.petrinet.elements.Transition;
 
 
 /**
@@ -58,15 +39,26 @@ import org.processmining.models.graphbased.directed.petrinet.elements.Transition
  */
 public class StatisticsController {
 
+    private static final String ALL_ALGORITHMS = "All algorithms";
+
     @FXML private TableView<AlgorithmResult> resultsTableView;
     @FXML private TableColumn<AlgorithmResult, String> algorithmColumn;
     @FXML private TableColumn<AlgorithmResult, Long> timeColumn;
+    @FXML private TableColumn<AlgorithmResult, Long> p90TimeColumn;
+    @FXML private TableColumn<AlgorithmResult, String> timeStdDevColumn;
     @FXML private TableColumn<AlgorithmResult, Integer> placesColumn;
     @FXML private TableColumn<AlgorithmResult, Integer> transitionsColumn;
     @FXML private TableColumn<AlgorithmResult, Integer> arcsColumn;
     @FXML private TableColumn<AlgorithmResult, Integer> fitnessColumn;
     @FXML private TableColumn<AlgorithmResult, Integer> precisionColumn;
     @FXML private TableColumn<AlgorithmResult, Integer> fMeasureColumn;
+    @FXML private TableColumn<AlgorithmResult, Integer> degradedColumn;
+    @FXML private TableColumn<AlgorithmResult, String> soundnessColumn;
+    @FXML private TableColumn<AlgorithmResult, Long> cpuTimeColumn;
+    @FXML private TableColumn<AlgorithmResult, Long> allocatedColumn;
+    @FXML private TableColumn<AlgorithmResult, String> gcColumn;
+    @FXML private TableColumn<AlgorithmResult, String> peakHeapColumn;
+    @FXML private TextArea resourceDetailsArea;
     @FXML private TableColumn<AlgorithmResult, Double> overallScoreColumn;
     @FXML private TableColumn<AlgorithmResult, String> winnerColumn;
     
@@ -74,21 +66,41 @@ public class StatisticsController {
     @FXML private TextField precisionWeightField;
     @FXML private TextField timeWeightField;
     @FXML private TextField fMeasureWeightField;
+    @FXML private TextField parallelismField;
+    @FXML private TextField mineDeadlineField;
+    @FXML private TextField reduceDeadlineField;
+    @FXML private TextField soundnessDeadlineField;
+    @FXML private TextField alignDeadlineField;
+    @FXML private TextField precisionDeadlineField;
+    @FXML private ComboBox<String> deadlineTargetComboBox;
+    @FXML private TextField warmupRunsField;
+    @FXML private TextField measuredRunsField;
+    @FXML private Button cancelButton;
 
     @FXML private Label fileNameLabel;
     @FXML private Label fileStatsLabel;
     @FXML private Label bestAlgorithmLabel;
     @FXML private ProgressIndicator progressIndicator;
     @FXML private CheckBox removeSilentCheckbox;
+    @FXML private CheckBox requireSoundCheckbox;
+    @FXML private CheckBox useCacheCheckbox;
+    @FXML private ComboBox<AlignmentBackend> alignmentBackendComboBox;
+    @FXML private ComboBox<FitnessMethod> fitnessMethodComboBox;
+    @FXML private ComboBox<UnreliableTracePolicy> unreliablePolicyComboBox;
     @FXML private HBox buttonBox;
     @FXML private VBox weightsContainer;
     
     private File pnmlFile;
     private Petrinet originalModel;
     private XLog generatedLog;
+    private CompactLog generatedCompactLog;
     private MiningController miningController;
     private List<AlgorithmResult> algorithmResults = new ArrayList<>();
-    private UIPluginContext pluginContext;
+    private StageDeadlines stageDeadlines = new StageDeadlines();
+    // Stage budget fields and the algorithm they currently edit, or ALL_ALGORITHMS for the defaults
+    private final Map<StageDeadlines.Stage, TextField> deadlineFields = new EnumMap<>(StageDeadlines.Stage.class);
+    private String deadlineTarget = ALL_ALGORITHMS;
+    private volatile ComparisonScheduler activeScheduler;
     
     private double fitnessWeight = 0.4;
     private double precisionWeight = 0.4;
@@ -99,9 +111,31 @@ public class StatisticsController {
         setupTableView();
         
         resultsTableView.setSelectionModel(null); // Disable row selection
-    
-        UIContext uiContext = new UIContext();
-        pluginContext = uiContext.getMainPluginContext();
+        
+        parallelismField.setText(String.valueOf(ComparisonScheduler.defaultParallelism()));
+        
+        alignmentBackendComboBox.getItems().setAll(AlignmentBackend.values());
+        alignmentBackendComboBox.setValue(AlignmentBackend.PROM_ILP);
+        fitnessMethodComboBox.getItems().setAll(FitnessMethod.values());
+        fitnessMethodComboBox.setValue(FitnessMethod.ALIGNMENT);
+        unreliablePolicyComboBox.getItems().setAll(UnreliableTracePolicy.values());
+        unreliablePolicyComboBox.setValue(UnreliableTracePolicy.BOUND);
+        
+        // The budget fields edit the defaults or, once an algorithm is picked, its overrides
+        deadlineFields.put(StageDeadlines.Stage.MINE, mineDeadlineField);
+        deadlineFields.put(StageDeadlines.Stage.REDUCE, reduceDeadlineField);
+        deadlineFields.put(StageDeadlines.Stage.SOUNDNESS, soundnessDeadlineField);
+        deadlineFields.put(StageDeadlines.Stage.ALIGN, alignDeadlineField);
+        deadlineFields.put(StageDeadlines.Stage.PRECISION, precisionDeadlineField);
+        deadlineTargetComboBox.getItems().add(ALL_ALGORITHMS);
+        deadlineTargetComboBox.getItems().addAll(MiningAlgorithmSelector.getAvailableAlgorithms());
+        deadlineTargetComboBox.setValue(ALL_ALGORITHMS);
+        deadlineTargetComboBox.setOnAction(event -> {
+            applyDeadlines();
+            deadlineTarget = deadlineTargetComboBox.getValue();
+            showDeadlines();
+        });
+        showDeadlines();
     }
 
     private void setupTableView() {
@@ -114,6 +148,14 @@ public class StatisticsController {
         timeColumn.setMinWidth(60);
         timeColumn.setMaxWidth(80);
         
+        p90TimeColumn.setCellValueFactory(new PropertyValueFactory<>("p90Time"));
+        p90TimeColumn.setMinWidth(60);
+        p90TimeColumn.setMaxWidth(80);
+        
+        timeStdDevColumn.setCellValueFactory(new PropertyValueFactory<>("formattedTimeStdDev"));
+        timeStdDevColumn.setMinWidth(60);
+        timeStdDevColumn.setMaxWidth(80);
+        
         placesColumn.setCellValueFactory(new PropertyValueFactory<>("placesCount"));
         placesColumn.setMinWidth(60);
         placesColumn.setMaxWidth(80);
@@ -138,6 +180,33 @@ public class StatisticsController {
         fMeasureColumn.setMinWidth(100);
         fMeasureColumn.setMaxWidth(120);
         
+        // Traces whose alignment ran out of states and only have an approximate fitness
+        degradedColumn.setCellValueFactory(new PropertyValueFactory<>("degradedTraces"));
+        degradedColumn.setMinWidth(70);
+        degradedColumn.setMaxWidth(90);
+        
+        // Outcome of the soundness check that gates conformance
+        soundnessColumn.setCellValueFactory(new PropertyValueFactory<>("soundness"));
+        soundnessColumn.setMinWidth(90);
+        soundnessColumn.setMaxWidth(220);
+        
+        // Resource figures summed over the stages, the per stage breakdown is in the details area
+        cpuTimeColumn.setCellValueFactory(new PropertyValueFactory<>("cpuTime"));
+        cpuTimeColumn.setMinWidth(60);
+        cpuTimeColumn.setMaxWidth(80);
+        
+        allocatedColumn.setCellValueFactory(new PropertyValueFactory<>("allocatedMb"));
+        allocatedColumn.setMinWidth(70);
+        allocatedColumn.setMaxWidth(90);
+        
+        gcColumn.setCellValueFactory(new PropertyValueFactory<>("formattedGc"));
+        gcColumn.setMinWidth(70);
+        gcColumn.setMaxWidth(100);
+        
+        peakHeapColumn.setCellValueFactory(new PropertyValueFactory<>("formattedPeakHeap"));
+        peakHeapColumn.setMinWidth(70);
+        peakHeapColumn.setMaxWidth(100);
+        
         overallScoreColumn.setCellValueFactory(new PropertyValueFactory<>("overallScore"));
         overallScoreColumn.setMinWidth(100);
         overallScoreColumn.setMaxWidth(130);
@@ -178,6 +247,8 @@ public class StatisticsController {
                     setText(item);
                     if ("WINNER".equals(item)) {
                         setStyle("-fx-background-color: #4CAF50; -fx-text-fill: white; -fx-font-weight: bold;");
+                    } else if ("TIMED OUT".equals(item)) {
+                        setStyle("-fx-background-color: #f59e0b; -fx-text-fill: white; -fx-font-weight: bold;");
                     } else {
                         setStyle("");
                     }
@@ -189,10 +260,12 @@ public class StatisticsController {
         resultsTableView.setFixedCellSize(35);
     }
 
-    public void setData(File pnmlFile, Petrinet originalModel, XLog generatedLog, MiningController miningController) {
+    public void setData(File pnmlFile, Petrinet originalModel, XLog generatedLog, CompactLog generatedCompactLog,
+            MiningController miningController) {
         this.pnmlFile = pnmlFile;
         this.originalModel = originalModel;
         this.generatedLog = generatedLog;
+        this.generatedCompactLog = generatedCompactLog;
         this.miningController = miningController;
         
         
@@ -208,7 +281,12 @@ public class StatisticsController {
                 int places = originalModel.getPlaces().size();
                 int transitions = originalModel.getTransitions().size();
                 int arcs = originalModel.getEdges().size();
-                fileStatsLabel.setText(String.format("Model: %d Places, %d Transitions, %d Arcs", places, transitions, arcs));
+                String stats = String.format("Model: %d Places, %d Transitions, %d Arcs", places, transitions, arcs);
+                if (generatedCompactLog != null) {
+                    stats += String.format(" | Log: %d Traces, %d Variants", generatedCompactLog.getTraceCount(),
+                            generatedCompactLog.getVariantIndex().size());
+                }
+                fileStatsLabel.setText(stats);
             }
         }
     }
@@ -249,41 +327,77 @@ public class StatisticsController {
             return;
         }
 
+        applyDeadlines();
+
         progressIndicator.setVisible(true);
         buttonBox.setDisable(true);
+        cancelButton.setDisable(false);
         algorithmResults.clear();
         resultsTableView.getItems().clear();
+        resourceDetailsArea.clear();
 
         boolean removeSilent = removeSilentCheckbox.isSelected();
+        boolean requireSound = requireSoundCheckbox.isSelected();
+        boolean useCache = useCacheCheckbox.isSelected();
+        AlignmentBackend alignmentBackend = alignmentBackendComboBox.getValue();
+        FitnessMethod fitnessMethod = fitnessMethodComboBox.getValue();
+        fitnessColumn.setText(fitnessMethod.getFitnessColumn());
+        precisionColumn.setText(fitnessMethod.getPrecisionColumn());
+        UnreliableTracePolicy unreliablePolicy = unreliablePolicyComboBox.getValue();
+        int parallelism = Utils.parseIntWithDefault(parallelismField.getText().trim(),
+                ComparisonScheduler.defaultParallelism());
+        int warmupRuns = Utils.parseIntWithDefault(warmupRunsField.getText().trim(), 0);
+        int measuredRuns = Utils.parseIntWithDefault(measuredRunsField.getText().trim(), 1);
+        // Set before the thread starts, so a Cancel clicked right away reaches the runs
+        ComparisonScheduler scheduler = new ComparisonScheduler(parallelism);
+        activeScheduler = scheduler;
         
         new Thread(() -> {
             try {
                 List<String> algorithms = MiningAlgorithmSelector.getAvailableAlgorithms();
+                ComparisonPipeline pipeline = new ComparisonPipeline(generatedLog, removeSilent, stageDeadlines);
+                pipeline.setCompactLog(generatedCompactLog);
+                pipeline.setAlignmentBackend(alignmentBackend);
+                pipeline.setFitnessMethod(fitnessMethod);
+                pipeline.setUnreliablePolicy(unreliablePolicy);
+                pipeline.setRequireSound(requireSound);
+                pipeline.setCache(useCache ? ResultCache.getDefault() : null);
+                pipeline.setRuns(warmupRuns, measuredRuns);
                 
-                for (String algorithmName : algorithms) {
-                    AlgorithmResult result = runAlgorithmComparison(algorithmName, removeSilent);
+                // Rows are added as soon as each algorithm finishes
+                scheduler.runAll(algorithms, pipeline, result -> {
                     algorithmResults.add(result);
                     
                     // Update UI on JavaFX thread
                     javafx.application.Platform.runLater(() -> {
                         resultsTableView.getItems().add(result);
+                        resourceDetailsArea.appendText(result.getAlgorithmName() + "\n" + result.getResourceDetails());
                     });
-                }
+                });
                 
                 // Determine winner
                 AlgorithmResult winner = determineWinner();
+                int abandoned = ComparisonPipeline.getAbandonedStages();
                 
                 javafx.application.Platform.runLater(() -> {
                     if (winner != null) {
                         bestAlgorithmLabel.setText("Best: " + winner.getAlgorithmName());
                         // Highlight winner in table
                         for (AlgorithmResult result : algorithmResults) {
-                            result.setWinnerStatus(result.equals(winner) ? "WINNER" : "");
+                            if (!result.isTimedOut()) {
+                                result.setWinnerStatus(result.equals(winner) ? "WINNER" : "");
+                            }
                         }
                         resultsTableView.refresh();
                     }
+                    if (abandoned > 0) {
+                        resourceDetailsArea.appendText("Note: " + abandoned + " cancelled or timed out stage(s) ignore "
+                                + "interrupts and keep running in the background until the plugin returns; "
+                                + "their results are discarded.\n");
+                    }
                     progressIndicator.setVisible(false);
                     buttonBox.setDisable(false);
+                    cancelButton.setDisable(true);
                 });
                 
             } catch (Exception e) {
@@ -291,153 +405,58 @@ public class StatisticsController {
                     Utils.showErrorMessage(null,null,"Error during comparison: " + e.getMessage(), e);
                     progressIndicator.setVisible(false);
                     buttonBox.setDisable(false);
+                    cancelButton.setDisable(true);
                 });
+            } finally {
+                if (activeScheduler == scheduler) {
+                    activeScheduler = null;
+                }
             }
         }).start();
     }
 
-    private AlgorithmResult runAlgorithmComparison(String algorithmName, boolean removeSilent) {
-        AlgorithmResult result = new AlgorithmResult(algorithmName);
-        
-        try {
-            long startTime = System.currentTimeMillis();
-            
-            // Get algorithm and mine model
-            MiningAlgorithm algorithm = MiningAlgorithmSelector.getAlgorithm(algorithmName);
-            Petrinet discoveredModel = algorithm.mine(pluginContext, generatedLog);
-            
-            // Apply silent transition removal if requested
-            if (removeSilent && discoveredModel != null) {
-                MurataReduction reducer = new MurataReduction(pluginContext);
-                Marking initialMarking = new Marking(); // Empty marking for simplicity
-                Petrinet reducedModel = reducer.removeSilentTransitions(discoveredModel, initialMarking);
-                if (reducedModel != null) {
-                    discoveredModel = reducedModel;
-                    result.setReduced(true);
-                }
-            }
-            
-            long endTime = System.currentTimeMillis();
-            result.setExecutionTime(endTime - startTime);
-            
-            if (discoveredModel != null) {
-                // Set individual counts
-                result.setPlacesCount(discoveredModel.getPlaces().size());
-                //result.setTransitionsCount(discoveredModel.getTransitions().size());
-                // Exclude invisible transitions from count
-                int visibleTransitions = 0;
-                for (Transition t : discoveredModel.getTransitions()) {
-					if (!t.isInvisible()) visibleTransitions++;
-				}
-                result.setTransitionsCount(visibleTransitions);
-                result.setArcsCount(discoveredModel.getEdges().size());
-                
-                // Calculate all metrics
-                double fitness = calculateFitness(discoveredModel);
-                double precision = calculatePrecision(discoveredModel);
-                double fMeasure = calculateFMeasure(discoveredModel);
-//                double sizeComplexity = calculateSizeComplexity(discoveredModel);
-                
-                result.setFitnessScore((int) (fitness * 100));
-                result.setPrecisionScore((int) (precision * 100));
-                result.setFMeasureScore((int) (fMeasure * 100));
-                //result.setSizeComplexityScore(sizeComplexity);
-            }
-            
-        } catch (Exception e) {
-            result.setError(e.getMessage());
+    @FXML
+    private void handleCancelComparison() {
+        ComparisonScheduler scheduler = activeScheduler;
+        if (scheduler != null) {
+            scheduler.cancel();
+            cancelButton.setDisable(true);
         }
-        
-        return result;
     }
-    
 
-    private double calculateFMeasure(Petrinet discoveredModel) {
-        try {
-        	PetrinetWithMarking petrinetWithMarking = getPetrinetWithMarking(discoveredModel);
-            if (petrinetWithMarking == null) {
-                return Double.NaN;
-            }
-            
-//            if (!isSound(petrinetWithMarking)) {
-//                return Double.NaN;
-//            }
-            
-            // Compute fitness and precision
-            double fitness = calculateFitness(discoveredModel);
-            double precision = calculatePrecision(discoveredModel);
-            
-            // Check for NaN values
-            if (Double.isNaN(fitness) || Double.isNaN(precision)) {
-                return Double.NaN;
-            }
-            
-            // Calculate F-measure (harmonic mean of fitness and precision)
-            if (fitness + precision == 0) {
-                return 0.0; // Avoid division by zero
-            }
-            
-            return (2 * (fitness * precision)) / (fitness + precision);
-            
-        } catch (Exception e) {
-            e.printStackTrace();
-            return Double.NaN;
+    /** Budget of the stage for the algorithm the fields edit, in ms. */
+    private long currentDeadline(StageDeadlines.Stage stage) {
+        return ALL_ALGORITHMS.equals(deadlineTarget) ? stageDeadlines.getDefault(stage)
+                : stageDeadlines.getDeadline(deadlineTarget, stage);
+    }
+
+    /** Shows the budgets of the algorithm the fields edit, in seconds. */
+    private void showDeadlines() {
+        for (Map.Entry<StageDeadlines.Stage, TextField> entry : deadlineFields.entrySet()) {
+            entry.getValue().setText(String.valueOf(currentDeadline(entry.getKey()) / 1000));
         }
     }
-	
-	private double calculateFitness(Petrinet discoveredModel) {
-        try {
-        	PetrinetWithMarking petrinetWithMarking = getPetrinetWithMarking(discoveredModel);
-            if (petrinetWithMarking == null) {
-                return Double.NaN;
+
+    /**
+     * Stores the budgets in the fields as defaults, or as overrides of the selected algorithm. An algorithm only
+     * gets an override for the stages whose field was changed; set back to the default, the override is dropped.
+     */
+    private void applyDeadlines() {
+        for (Map.Entry<StageDeadlines.Stage, TextField> entry : deadlineFields.entrySet()) {
+            StageDeadlines.Stage stage = entry.getKey();
+            long current = currentDeadline(stage);
+            long millis = Utils.parseIntWithDefault(entry.getValue().getText().trim(), (int) (current / 1000)) * 1000L;
+            if (ALL_ALGORITHMS.equals(deadlineTarget)) {
+                stageDeadlines.setDefault(stage, millis);
+            } else if (millis == stageDeadlines.getDefault(stage)) {
+                stageDeadlines.removeDeadline(deadlineTarget, stage);
+            } else if (millis != current) {
+                stageDeadlines.setDeadline(deadlineTarget, stage, millis);
             }
-            
-//            if (!isSound(petrinetWithMarking)) {
-//                return Double.NaN;
-//            }
-            
-            XEventClassifier xEventClassifier = new XEventNameClassifier();
-            PNRepResult pnRepResult = computeAlignment(pluginContext, xEventClassifier, petrinetWithMarking, generatedLog);
-            
-            double fitness = getAlignmentValue(pnRepResult);
-            return fitness;
-        } catch (Exception e) {
-            e.printStackTrace();
-            return Double.NaN;
         }
     }
+    
 
-	private double calculatePrecision(Petrinet discoveredModel) {
-	    try {
-	    	PetrinetWithMarking petrinetWithMarking = getPetrinetWithMarking(discoveredModel);
-	        if (petrinetWithMarking == null) {
-	            return Double.NaN;
-	        }
-	        
-//            if (!isSound(petrinetWithMarking)) {
-//                return Double.NaN;
-//            }
-	        
-	        XEventClassifier xEventClassifier = new XEventNameClassifier();
-	        PNRepResult pnRepResult = computeAlignment(pluginContext, xEventClassifier, petrinetWithMarking, generatedLog);
-	        
-	        MultiETCPlugin multiETCPlugin = new MultiETCPlugin();
-	        MultiETCSettings settings = new MultiETCSettings();
-	        settings.put(MultiETCSettings.ALGORITHM, MultiETCSettings.Algorithm.ALIGN_1);
-	        settings.put(MultiETCSettings.REPRESENTATION, MultiETCSettings.Representation.ORDERED);
-
-	        Object[] res = multiETCPlugin.checkMultiETCAlign1(pluginContext, generatedLog, discoveredModel, settings, pnRepResult);
-	        MultiETCResult multiETCResult = (MultiETCResult) res[0];
-	        
-	        double precision = (Double) multiETCResult.getAttribute(MultiETCResult.PRECISION);
-	        return precision;
-	        
-	    } catch (Exception e) {
-	        e.printStackTrace();
-	        return Double.NaN;
-	    }
-	}
-	
 //	private double calculateSizeComplexity(Petrinet discoveredModel) {
 //			PetrinetWithMarking petrinetWithMarking = getPetrinetWithMarking(discoveredModel);
 //		    if (petrinetWithMarking == null) {
@@ -467,45 +486,23 @@ public class StatisticsController {
 //	}
 	
 	
-	private double getAlignmentValue(PNRepResult pnRepResult) {
-	    int unreliable = 0;
-	    if (pnRepResult == null) return Double.NaN;
-	    
-	    for (SyncReplayResult srp : pnRepResult) {
-	        if (!srp.isReliable()) {
-	            unreliable += srp.getTraceIndex().size();
-	        }
-	    }
-	    
-	    if (unreliable > pnRepResult.size() / 2) {
-	        return Double.NaN;
-	    } else {
-	        return (Double) pnRepResult.getInfo().get(PNRepResult.TRACEFITNESS);
-	    }
-	}
-	
-//	  private boolean isSound(PetrinetWithMarking petrinetWithMarking) {
-//	  if (petrinetWithMarking == null) return false;
-//	  AcceptingPetriNet acceptingPetriNet = getAcceptingPetriNet(petrinetWithMarking);
-//	  try {
-//	      SoundnessChecker checker = new SoundnessChecker();
-//	      return checker.isSound(acceptingPetriNet);
-//	      
-//	  } catch (Exception e) {
-//	      return false;
-//	  }
-//	}
-//	
 
 	private AlgorithmResult determineWinner() {
         if (algorithmResults.isEmpty()) return null;
         
-        AlgorithmResult best = algorithmResults.get(0);
+        // Runs that timed out or were cancelled cannot win
+        List<AlgorithmResult> candidates = new ArrayList<>();
+        for (AlgorithmResult result : algorithmResults) {
+            if (!result.isTimedOut() && !result.isCancelled()) candidates.add(result);
+        }
+        if (candidates.isEmpty()) return null;
+        
+        AlgorithmResult best = candidates.get(0);
         double bestScore = calculateOverallScore(best, true); // Debug for first
 		
         
-        for (int i = 1; i < algorithmResults.size(); i++) {
-            AlgorithmResult current = algorithmResults.get(i);
+        for (int i = 1; i < candidates.size(); i++) {
+            AlgorithmResult current = candidates.get(i);
             double currentScore = calculateOverallScore(current, false);
             
             if (currentScore > bestScore) {
@@ -617,14 +614,14 @@ public class StatisticsController {
    
     
 
-    public static void showStatisticsWindow(File pnmlFile, Petrinet originalModel, XLog generatedLog, 
-            MiningController miningController) {
+    public static void showStatisticsWindow(File pnmlFile, Petrinet originalModel, XLog generatedLog,
+            CompactLog generatedCompactLog, MiningController miningController) {
         try {
             FXMLLoader loader = new FXMLLoader(StatisticsController.class.getResource("/view/statistics.fxml"));
             Parent root = loader.load();
             
             StatisticsController controller = loader.getController();
-            controller.setData(pnmlFile, originalModel, generatedLog, miningController);
+            controller.setData(pnmlFile, originalModel, generatedLog, generatedCompactLog, miningController);
             
             Stage stage = new Stage();
             stage.setTitle("Algorithm Performance Statistics");
@@ -642,218 +639,6 @@ public class StatisticsController {
     }
     
 
-    public static class AlgorithmResult {
-        private String algorithmName;
-        private long executionTime;
-        private int placesCount;
-        private int transitionsCount;
-        private int arcsCount;
-        private int fitnessScore;
-        private int precisionScore;
-        private int fMeasureScore;
-//        private double sizeComplexityScore;
-        private String formattedOverallScore;
-        private double overallScore;
-        private String winnerStatus;
-        private String error;
-        private boolean reduced;
-
-        public AlgorithmResult(String algorithmName) {
-            this.algorithmName = algorithmName;
-            this.winnerStatus = "";
-            this.reduced = false;
-//            this.sizeComplexityScore = -1; // Initialize as -1 for invalid
-        }
-
-        // Getters and setters
-        public String getAlgorithmName() { 
-            return algorithmName + (reduced ? " (Reduced)" : ""); 
-        }
-        
-        public void setAlgorithmName(String algorithmName) { this.algorithmName = algorithmName; }
-        
-        public long getExecutionTime() { return executionTime; }
-        public void setExecutionTime(long executionTime) { this.executionTime = executionTime; }
-        
-        public int getPlacesCount() { return placesCount; }
-        public void setPlacesCount(int placesCount) { this.placesCount = placesCount; }
-        
-        public int getTransitionsCount() { return transitionsCount; }
-        public void setTransitionsCount(int transitionsCount) { this.transitionsCount = transitionsCount; }
-        
-        public int getArcsCount() { return arcsCount; }
-        public void setArcsCount(int arcsCount) { this.arcsCount = arcsCount; }
-        
-        public int getFitnessScore() { return fitnessScore; }
-        public void setFitnessScore(int fitnessScore) { this.fitnessScore = fitnessScore; }
-        
-        public int getPrecisionScore() { return precisionScore; }
-        public void setPrecisionScore(int precisionScore) { this.precisionScore = precisionScore; }
-        
-        public int getFMeasureScore() { return fMeasureScore; }
-        public void setFMeasureScore(int fMeasureScore) { this.fMeasureScore = fMeasureScore; }
-        
-//        public double getSizeComplexityScore() { return sizeComplexityScore; }
-//        public void setSizeComplexityScore(double sizeComplexityScore) { this.sizeComplexityScore = sizeComplexityScore; }
-//        public double getOverallScore() { return overallScore; }
-
-        
-        public double getOverallScore() { return overallScore; }
-        
-        public void setOverallScore(double overallScore) { 
-            this.overallScore = overallScore;
-            this.formattedOverallScore = String.format("%.2f", overallScore);
-        }
-        
-        public String getFormattedOverallScore() {
-            return formattedOverallScore;
-        }
-        
-        public String getWinnerStatus() { return winnerStatus; }
-        public void setWinnerStatus(String winnerStatus) { this.winnerStatus = winnerStatus; }
-        
-        public String getError() { return error; }
-        public void setError(String error) { this.error = error; }
-        
-        public boolean isReduced() { return reduced; }
-        public void setReduced(boolean reduced) { this.reduced = reduced; }
-        
-        
-    }
-    
-    
-    private PNRepResult computeAlignment(PluginContext pluginContext, XEventClassifier xEventClassifier, 
-                                       PetrinetWithMarking petrinetWithMarking, XLog log) {
-        if (petrinetWithMarking == null) return null;
-
-        // Suppress output during computation
-        PrintStream originalOut = System.out;
-        System.setOut(new PrintStream(new OutputStream() {
-            @Override
-            public void write(int b) {}
-        }));
-
-        try {
-            Petrinet petrinet = petrinetWithMarking.getPetrinet();
-            Marking initialMarking = petrinetWithMarking.getInitialMarking();
-            Marking finalMarking = petrinetWithMarking.getFinalMarking();
-
-            pluginContext.addConnection(new FinalMarkingConnection(petrinet, finalMarking));
-
-            PetrinetReplayerWithILP replayer = new PetrinetReplayerWithILP();
-            XEventClass dummyEvClass = new XEventClass("DUMMY", 99999);
-
-            Map<Transition, Integer> transitions2costs = constructTTCMap(petrinet);
-            Map<XEventClass, Integer> events2costs = constructETCMap(petrinet, xEventClassifier, log, dummyEvClass);
-
-            IPNReplayParameter parameters = constructParameters(transitions2costs, events2costs, petrinet, initialMarking, finalMarking);
-            TransEvClassMapping mapping = constructMapping(petrinet, xEventClassifier, log, dummyEvClass);
-
-            // Restore output for the actual computation
-            System.setOut(originalOut);
-            
-            return replayer.replayLog(pluginContext, petrinet, log, mapping, parameters);
-        } catch (ArrayIndexOutOfBoundsException | AStarException e) {
-            e.printStackTrace();
-        } finally {
-            // Always restore output
-            System.setOut(originalOut);
-        }
-
-        return null;
-    }
-
-    private Map<Transition, Integer> constructTTCMap(Petrinet petrinet) {
-        Map<Transition, Integer> transitions2costs = new UnifiedMap<Transition, Integer>();
-
-        for (Transition t : petrinet.getTransitions()) {
-            if (t.isInvisible()) {
-                transitions2costs.put(t, 0);
-            } else {
-                transitions2costs.put(t, 1);
-            }
-        }
-        return transitions2costs;
-    }
-
-    private Map<XEventClass, Integer> constructETCMap(Petrinet petrinet, XEventClassifier xEventClassifier, 
-                                                     XLog log, XEventClass dummyEvClass) {
-        Map<XEventClass, Integer> costMOT = new UnifiedMap<XEventClass, Integer>();
-        XLogInfo summary = XLogInfoFactory.createLogInfo(log, xEventClassifier);
-
-        for (XEventClass evClass : summary.getEventClasses().getClasses()) {
-            int value = 1;
-            for (Transition t : petrinet.getTransitions()) {
-                if (t.getLabel().equals(evClass.getId())) {
-                    value = 1;
-                    break;
-                }
-            }
-            costMOT.put(evClass, value);
-        }
-
-        costMOT.put(dummyEvClass, 1);
-        return costMOT;
-    }
-
-    private IPNReplayParameter constructParameters(Map<Transition, Integer> transitions2costs, 
-                                                  Map<XEventClass, Integer> events2costs, 
-                                                  Petrinet petrinet, Marking initialMarking, 
-                                                  Marking finalMarking) {
-        IPNReplayParameter parameters = new CostBasedCompleteParam(events2costs, transitions2costs);
-
-        parameters.setInitialMarking(initialMarking);
-        parameters.setFinalMarkings(finalMarking);
-        parameters.setGUIMode(false);
-        parameters.setCreateConn(false);
-        ((CostBasedCompleteParam) parameters).setMaxNumOfStates(Integer.MAX_VALUE);
-
-        return parameters;
-    }
-
-    private TransEvClassMapping constructMapping(Petrinet net, XEventClassifier xEventClassifier, 
-                                                XLog log, XEventClass dummyEvClass) {
-        TransEvClassMapping mapping = new TransEvClassMapping(xEventClassifier, dummyEvClass);
-        XLogInfo summary = XLogInfoFactory.createLogInfo(log, xEventClassifier);
-
-        for (Transition t : net.getTransitions()) {
-            boolean mapped = false;
-
-            for (XEventClass evClass : summary.getEventClasses().getClasses()) {
-                String id = evClass.getId();
-
-                if (t.getLabel().equals(id)) {
-                    mapping.put(t, evClass);
-                    mapped = true;
-                    break;
-                }
-            }
-
-            if (!mapped) {
-                mapping.put(t, dummyEvClass);
-            }
-        }
-
-        return mapping;
-    }
-    
-    private PetrinetWithMarking getPetrinetWithMarking(Petrinet discoveredModel) {
-        try {
-            Marking initialMarking = MarkingDiscoverer.constructInitialMarking(pluginContext, discoveredModel);
-            Marking finalMarking = MarkingDiscoverer.constructFinalMarking(pluginContext, discoveredModel);
-            
-            if (initialMarking == null || finalMarking == null || initialMarking.isEmpty() || finalMarking.isEmpty()) {
-                return null;
-            }
-            
-            return new PetrinetWithMarking(discoveredModel, initialMarking, finalMarking);
-        } catch (Exception e) {
-            e.printStackTrace();
-            return null;
-        }
-    }
-    
-
     @FXML
     private void handleResetWeights() {
         fitnessWeightField.setText("0.4");
@@ -0,0 +1,370 @@
+package main.io;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.processmining.models.graphbased.directed.petrinet.Petrinet;
+import org.processmining.models.graphbased.directed.petrinet.PetrinetNode;
+import org.processmining.models.graphbased.directed.petrinet.elements.Place;
+import org.processmining.models.graphbased.directed.petrinet.elements.Transition;
+import org.processmining.models.graphbased.directed.petrinet.impl.PetrinetImpl;
+import org.processmining.models.semantics.petrinet.Marking;
+
+import main.model.AcceptingPetriNet;
+
+/**
+ * Reads a Petri net from a PNML file with a streaming XML parser, so the layout of the file does not matter
+ * and memory use only depends on the size of the net.
+ *
+ * The first net of the file is read with the places, transitions and arcs of all its pages; reference places
+ * and transitions are resolved to the nodes they point to. Transitions marked {@code $invisible$} by ProM
+ * become invisible, and arc inscriptions become arc weights. The initial marking comes from the
+ * initialMarking of the places. The final marking is the first non-empty marking of the net's finalmarkings,
+ * otherwise the finalMarking of the places; an all-zero marking, which ProM writes for nets without one, counts
+ * as none. Markings the file does not give are derived from the structure of the net, see
+ * {@link AcceptingPetriNet}.
+ */
+public class PnmlReader {
+
+	private static final String INVISIBLE = "$invisible$";
+
+	private final XMLInputFactory factory;
+
+	public PnmlReader() {
+		factory = XMLInputFactory.newInstance();
+		factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+		factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+		factory.setProperty(XMLInputFactory.IS_COALESCING, true);
+	}
+
+	public AcceptingPetriNet read(File file) throws IOException {
+		try (InputStream in = new BufferedInputStream(new FileInputStream(file), 64 * 1024)) {
+			return read(in, file.getName());
+		}
+	}
+
+	/**
+	 * Reads the net from the stream, labelling it with the given name.
+	 */
+	public AcceptingPetriNet read(InputStream in, String label) throws IOException {
+		XMLStreamReader xml = null;
+		try {
+			xml = factory.createXMLStreamReader(in);
+			return new Parse(xml).run(label);
+		} catch (XMLStreamException e) {
+			throw new IOException("Malformed PNML: " + e.getMessage(), e);
+		} finally {
+			if (xml != null) {
+				try {
+					xml.close();
+				} catch (XMLStreamException e) {
+					// The stream is closed by the caller
+				}
+			}
+		}
+	}
+
+	/**
+	 * State of one read. Nodes are created when their element ends, arcs and markings once the net is complete,
+	 * because PNML allows them to refer to nodes that come later in the file.
+	 */
+	private static class Parse {
+		private final XMLStreamReader xml;
+		// Local names of the open elements
+		private String[] path = new String[16];
+		private int depth;
+		private int nets;
+		private boolean inNet;
+
+		private final Map<String, NodeInfo> nodes = new LinkedHashMap<>();
+		private final Map<String, String> references = new HashMap<>();
+		private final List<ArcInfo> arcs = new ArrayList<>();
+		private final List<Map<String, Integer>> finalMarkings = new ArrayList<>();
+		private NodeInfo node;
+		private ArcInfo arc;
+		private Map<String, Integer> marking;
+		private String markingPlace;
+
+		Parse(XMLStreamReader xml) {
+			this.xml = xml;
+		}
+
+		AcceptingPetriNet run(String label) throws XMLStreamException {
+			while (xml.hasNext()) {
+				switch (xml.next()) {
+				case XMLStreamConstants.START_ELEMENT:
+					// getElementText consumes the end tag, so text is handled without pushing it
+					if ("text".equals(xml.getLocalName()) || "value".equals(xml.getLocalName())) {
+						text(xml.getElementText().trim());
+					} else {
+						push(xml.getLocalName());
+						start();
+					}
+					break;
+				case XMLStreamConstants.END_ELEMENT:
+					end();
+					depth--;
+					break;
+				default:
+					break;
+				}
+			}
+			return build(label);
+		}
+
+		private void push(String name) {
+			if (depth == path.length) {
+				path = Arrays.copyOf(path, depth * 2);
+			}
+			path[depth++] = name;
+		}
+
+		private String parent(int up) {
+			return depth > up ? path[depth - 1 - up] : "";
+		}
+
+		private boolean inFirstNet() {
+			return inNet && nets == 1;
+		}
+
+		private void start() {
+			String name = path[depth - 1];
+			if ("net".equals(name)) {
+				nets++;
+				inNet = true;
+				return;
+			}
+			if (!inFirstNet()) {
+				return;
+			}
+			switch (name) {
+			case "place":
+				if ("marking".equals(parent(1))) {
+					markingPlace = xml.getAttributeValue(null, "idref");
+				} else {
+					node = new NodeInfo(xml.getAttributeValue(null, "id"), true);
+				}
+				break;
+			case "transition":
+				node = new NodeInfo(xml.getAttributeValue(null, "id"), false);
+				break;
+			case "referencePlace":
+			case "referenceTransition":
+				references.put(xml.getAttributeValue(null, "id"), xml.getAttributeValue(null, "ref"));
+				break;
+			case "arc":
+				arc = new ArcInfo(xml.getAttributeValue(null, "source"), xml.getAttributeValue(null, "target"));
+				break;
+			case "marking":
+				if ("finalmarkings".equals(parent(1))) {
+					marking = new LinkedHashMap<>();
+				}
+				break;
+			case "toolspecific":
+				if (node != null && !node.place && "transition".equals(parent(1))
+						&& INVISIBLE.equals(xml.getAttributeValue(null, "activity"))) {
+					node.invisible = true;
+				}
+				break;
+			default:
+				break;
+			}
+		}
+
+		private void end() {
+			if (!inFirstNet()) {
+				return;
+			}
+			switch (path[depth - 1]) {
+			case "place":
+				if (markingPlace != null) {
+					markingPlace = null;
+				} else {
+					addNode();
+				}
+				break;
+			case "transition":
+				addNode();
+				break;
+			case "arc":
+				arcs.add(arc);
+				arc = null;
+				break;
+			case "marking":
+				if (marking != null) {
+					finalMarkings.add(marking);
+					marking = null;
+				}
+				break;
+			case "net":
+				inNet = false;
+				break;
+			default:
+				break;
+			}
+		}
+
+		private void addNode() {
+			if (node != null && node.id != null) {
+				nodes.put(node.id, node);
+			}
+			node = null;
+		}
+
+		/**
+		 * Content of a text or value element, used according to the two elements around it.
+		 */
+		private void text(String text) {
+			if (!inFirstNet()) {
+				return;
+			}
+			String parent = parent(0);
+			String owner = parent(1);
+			if (node != null && ("place".equals(owner) || "transition".equals(owner))) {
+				if ("name".equals(parent)) {
+					node.name = text;
+				} else if ("initialMarking".equals(parent)) {
+					node.initialTokens = parseCount(text);
+				} else if ("finalMarking".equals(parent)) {
+					node.finalTokens = parseCount(text);
+				}
+			} else if (arc != null && "inscription".equals(parent) && "arc".equals(owner)) {
+				arc.weight = Math.max(1, parseCount(text));
+			} else if (marking != null && markingPlace != null && "place".equals(parent)) {
+				marking.put(markingPlace, parseCount(text));
+			}
+		}
+
+		private static int parseCount(String text) {
+			try {
+				return text.isEmpty() ? 0 : Integer.parseInt(text);
+			} catch (NumberFormatException e) {
+				return 0;
+			}
+		}
+
+		private String resolve(String id) {
+			// Reference chains are short; the bound only guards against cycles
+			for (int i = 0; i < 64 && id != null && references.containsKey(id); i++) {
+				id = references.get(id);
+			}
+			return id;
+		}
+
+		private AcceptingPetriNet build(String label) {
+			LoadedPetrinet net = new LoadedPetrinet(label);
+			Map<String, Place> places = new HashMap<>();
+			Map<String, Transition> transitions = new HashMap<>();
+			Marking initialMarking = new Marking();
+			Marking placeFinalMarking = new Marking();
+
+			for (NodeInfo info : nodes.values()) {
+				String name = info.name != null && !info.name.isEmpty() ? info.name : info.id;
+				if (info.place) {
+					Place place = net.addPlace(name);
+					places.put(info.id, place);
+					if (info.initialTokens > 0) {
+						initialMarking.add(place, info.initialTokens);
+					}
+					if (info.finalTokens > 0) {
+						placeFinalMarking.add(place, info.finalTokens);
+					}
+				} else {
+					Transition transition = net.addTransition(name);
+					transition.setInvisible(info.invisible);
+					transitions.put(info.id, transition);
+				}
+			}
+
+			for (ArcInfo info : arcs) {
+				String source = resolve(info.source);
+				String target = resolve(info.target);
+				if (places.containsKey(source) && transitions.containsKey(target)) {
+					net.addArc(places.get(source), transitions.get(target), info.weight);
+				} else if (transitions.containsKey(source) && places.containsKey(target)) {
+					net.addArc(transitions.get(source), places.get(target), info.weight);
+				}
+			}
+			net.loaded = true;
+
+			Marking finalMarking = null;
+			for (Map<String, Integer> tokens : finalMarkings) {
+				Marking candidate = new Marking();
+				for (Map.Entry<String, Integer> entry : tokens.entrySet()) {
+					Place place = places.get(resolve(entry.getKey()));
+					if (place != null && entry.getValue() > 0) {
+						candidate.add(place, entry.getValue());
+					}
+				}
+				if (!candidate.isEmpty()) {
+					finalMarking = candidate;
+					break;
+				}
+			}
+			if (finalMarking == null && !placeFinalMarking.isEmpty()) {
+				finalMarking = placeFinalMarking;
+			}
+
+			return new AcceptingPetriNet(net, initialMarking, finalMarking);
+		}
+	}
+
+	/**
+	 * ProM checks every new arc against a fresh set of all nodes, which makes adding the arcs of a large net
+	 * quadratic. The reader only connects nodes it has just added, so the check is skipped until the net is
+	 * loaded.
+	 */
+	private static class LoadedPetrinet extends PetrinetImpl {
+		private boolean loaded;
+
+		LoadedPetrinet(String label) {
+			super(label);
+		}
+
+		@Override
+		protected void checkAddEdge(PetrinetNode source, PetrinetNode target) {
+			if (loaded) {
+				super.checkAddEdge(source, target);
+			}
+		}
+	}
+
+	private static class NodeInfo {
+		private final String id;
+		private final boolean place;
+		private String name;
+		private int initialTokens;
+		private int finalTokens;
+		private boolean invisible;
+
+		NodeInfo(String id, boolean place) {
+			this.id = id;
+			this.place = place;
+		}
+	}
+
+	private static class ArcInfo {
+		private final String source;
+		private final String target;
+		private int weight = 1;
+
+		ArcInfo(String source, String target) {
+			this.source = source;
+			this.target = target;
+		}
+	}
+}
@@ -0,0 +1,762 @@
+package main.io;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.DoubleConsumer;
+import java.util.zip.GZIPInputStream;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.deckfour.xes.util.XsDateTimeConversion;
+
+import main.log.CompactLog;
+
+/**
+ * Reads an XES file with a streaming XML parser straight into a {@link CompactLog}, without building the
+ * OpenXES object tree first. Only the activity, the timestamp and the requested attributes of each event are
+ * kept, so a log takes a fraction of the memory the OpenXES parser needs for it. Files ending in .gz are
+ * decompressed on the fly.
+ *
+ * The activity of an event is given by a classifier: the name of a classifier declared in the log, or a list of
+ * attribute keys separated by spaces. The values of the keys are joined with '+', as OpenXES classifiers do; an
+ * event without one of the keys uses the default of the event's global for it, if the log declares one.
+ * Nested attributes are skipped.
+ *
+ * Large uncompressed files are read in parts on several threads, see {@link #setParallelism(int)}. The header
+ * with the name of the log, its extensions, globals and classifiers is read once; the file is then scanned through
+ * a memory mapping for {@code <trace} tags, the traces between two of them are parsed as one part, and the parts
+ * are joined in file order, so the log is the same as when it is read on one thread. A file whose parts do not
+ * parse on their own, for instance because a tag was split inside a comment, is read on one thread instead.
+ */
+public class XesReader {
+
+	/** Classifier of the XES concept extension. */
+	public static final String DEFAULT_CLASSIFIER = "concept:name";
+
+	private static final String NAME = "concept:name";
+	private static final String TIMESTAMP = "time:timestamp";
+
+	// Files smaller than this are read on one thread
+	private static final long MIN_PARALLEL_LENGTH = 16L << 20;
+	// Bounds of the length of a part; a part is mapped in one piece
+	private static final long MIN_PART_LENGTH = 4L << 20;
+	private static final long MAX_PART_LENGTH = 256L << 20;
+	// Parts per thread, so threads that finish early take over the rest
+	private static final int PARTS_PER_THREAD = 4;
+	// Bytes mapped at a time while looking for a tag
+	private static final int SCAN_WINDOW = 1 << 20;
+	private static final byte[] TRACE_TAG = "<trace".getBytes(StandardCharsets.US_ASCII);
+	private static final byte[] LOG_TAG = "<log".getBytes(StandardCharsets.US_ASCII);
+	private static final byte[] LOG_END_TAG = "</log>".getBytes(StandardCharsets.US_ASCII);
+
+	private final XMLInputFactory factory;
+	private String classifier = DEFAULT_CLASSIFIER;
+	private final Set<String> attributeKeys = new LinkedHashSet<>();
+	private DoubleConsumer progressListener;
+	private int parallelism = 1;
+
+	public XesReader() {
+		factory = newFactory();
+	}
+
+	private static XMLInputFactory newFactory() {
+		XMLInputFactory factory = XMLInputFactory.newInstance();
+		factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+		factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+		factory.setProperty(XMLInputFactory.IS_COALESCING, true);
+		return factory;
+	}
+
+	/**
+	 * Name of a classifier declared in the log, or attribute keys separated by spaces; keys with spaces are put in
+	 * single quotes. Defaults to {@link #DEFAULT_CLASSIFIER}.
+	 */
+	public void setClassifier(String classifier) {
+		this.classifier = classifier != null && !classifier.trim().isEmpty() ? classifier.trim() : DEFAULT_CLASSIFIER;
+	}
+
+	/**
+	 * Event attributes to keep as string columns of the log.
+	 */
+	public void setAttributeKeys(Collection<String> keys) {
+		attributeKeys.clear();
+		attributeKeys.addAll(keys);
+	}
+
+	/**
+	 * Called with the fraction of the file read so far whenever another percent is done, from whichever thread
+	 * read it.
+	 */
+	public void setProgressListener(DoubleConsumer progressListener) {
+		this.progressListener = progressListener;
+	}
+
+	/**
+	 * Threads that read large uncompressed files; 1, the default, reads every file on the calling thread.
+	 */
+	public void setParallelism(int parallelism) {
+		this.parallelism = Math.max(1, parallelism);
+	}
+
+	public CompactLog read(File file) throws IOException {
+		if (parallelism > 1 && file.length() >= MIN_PARALLEL_LENGTH && !file.getName().toLowerCase().endsWith(".gz")) {
+			CompactLog log = readParallel(file);
+			if (log != null) {
+				return log;
+			}
+		}
+		try (InputStream in = new FileInputStream(file)) {
+			return read(in, file.length(), file.getName());
+		}
+	}
+
+	/**
+	 * Reads the log from the stream; the label names the log when it has no concept:name. The length of the stream
+	 * in bytes is used for progress only and may be 0 when it is not known.
+	 */
+	public CompactLog read(InputStream in, long length, String label) throws IOException {
+		Progress progress = new Progress(length, progressListener);
+		XMLStreamReader xml = null;
+		try {
+			xml = factory.createXMLStreamReader(open(new CountingInputStream(in, progress), label));
+			CompactLog log = new Parse(xml, classifier, attributeKeys, new Header(), Parse.FULL).run(label);
+			progress.finish();
+			return log;
+		} catch (XMLStreamException e) {
+			throw new IOException("Malformed XES: " + e.getMessage(), e);
+		} finally {
+			close(xml);
+		}
+	}
+
+	/**
+	 * Classifiers declared in the header of the log, by name, with their attribute keys. Reading stops at the first
+	 * trace.
+	 */
+	public Map<String, List<String>> readClassifiers(File file) throws IOException {
+		XMLStreamReader xml = null;
+		try (InputStream in = new FileInputStream(file)) {
+			xml = factory.createXMLStreamReader(open(in, file.getName()));
+			Header header = new Header();
+			new Parse(xml, DEFAULT_CLASSIFIER, Collections.<String>emptySet(), header, Parse.HEADER).run(file.getName());
+			return header.classifiers;
+		} catch (XMLStreamException e) {
+			throw new IOException("Malformed XES: " + e.getMessage(), e);
+		} finally {
+			close(xml);
+		}
+	}
+
+	/**
+	 * Reads the file in parts on {@link #parallelism} threads; returns null when the file has to be read on one
+	 * thread: it has no traces, its encoding is not ASCII compatible, or a part does not parse on its own.
+	 */
+	private CompactLog readParallel(File file) throws IOException {
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			long length = channel.size();
+			long firstTrace = find(channel, TRACE_TAG, 0, length);
+			long logEnd = findLast(channel, LOG_END_TAG);
+			if (firstTrace < 0 || logEnd < firstTrace) {
+				return null;
+			}
+
+			// The header is read once; every part is parsed as the traces of a log with the same start tag
+			Header header = new Header();
+			String encoding;
+			XMLStreamReader xml = null;
+			try (InputStream in = new FileInputStream(file)) {
+				xml = factory.createXMLStreamReader(new BufferedInputStream(in, 64 * 1024));
+				new Parse(xml, classifier, attributeKeys, header, Parse.HEADER).run(file.getName());
+				encoding = xml.getEncoding() != null ? xml.getEncoding() : "UTF-8";
+			} catch (XMLStreamException e) {
+				throw new IOException("Malformed XES: " + e.getMessage(), e);
+			} finally {
+				close(xml);
+			}
+			byte[] logTag = logStartTag(map(channel, 0, firstTrace));
+			if (logTag == null || !asciiCompatible(encoding)) {
+				return null;
+			}
+			ByteArrayOutputStream declaration = new ByteArrayOutputStream();
+			declaration.write(("<?xml version=\"1.0\" encoding=\"" + encoding + "\"?>").getBytes(StandardCharsets.US_ASCII));
+			declaration.write(logTag);
+			byte[] prefix = declaration.toByteArray();
+
+			List<long[]> parts = split(channel, firstTrace, logEnd);
+			Progress progress = new Progress(length, progressListener);
+			progress.advance(firstTrace + length - logEnd);
+			CompactLog.Builder builder = new CompactLog.Builder(header.logName != null ? header.logName : file.getName(),
+					true);
+			for (String key : attributeKeys) {
+				builder.addAttributeColumn(key);
+			}
+
+			ExecutorService executor = Executors.newFixedThreadPool(Math.min(parallelism, parts.size()), r -> {
+				Thread thread = new Thread(r, "xes-import");
+				thread.setDaemon(true);
+				return thread;
+			});
+			try {
+				ArrayDeque<Future<CompactLog>> pending = new ArrayDeque<>();
+				int window = 2 * parallelism;
+				int submitted = 0;
+				while (submitted < parts.size() || !pending.isEmpty()) {
+					while (submitted < parts.size() && pending.size() < window) {
+						long[] part = parts.get(submitted);
+						pending.add(executor.submit(() -> readPart(channel, part[0], part[1], prefix,
+								header, progress, file.getName())));
+						submitted++;
+					}
+					builder.append(pending.poll().get());
+				}
+			} catch (ExecutionException e) {
+				Throwable cause = e.getCause();
+				if (cause instanceof XMLStreamException) {
+					System.err.println("[XES] Reading " + file.getName() + " on one thread: " + cause.getMessage());
+					return null;
+				}
+				throw cause instanceof IOException ? (IOException) cause : new IOException(cause.toString(), cause);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IOException("Interrupted while reading " + file.getName(), e);
+			} finally {
+				executor.shutdownNow();
+			}
+			progress.finish();
+			return builder.build();
+		}
+	}
+
+	/**
+	 * Parses the traces between the two offsets of the file.
+	 */
+	private CompactLog readPart(FileChannel channel, long start, long end, byte[] prefix, Header header,
+			Progress progress, String label) throws IOException, XMLStreamException {
+		InputStream in = new SequenceInputStream(Collections.enumeration(Arrays.asList(
+				new ByteArrayInputStream(prefix),
+				new CountingInputStream(new BufferInputStream(map(channel, start, end - start)), progress),
+				new ByteArrayInputStream(LOG_END_TAG))));
+		// Factories are not safe to share between threads
+		XMLStreamReader xml = newFactory().createXMLStreamReader(in);
+		try {
+			return new Parse(xml, classifier, attributeKeys, header, Parse.PART).run(label);
+		} finally {
+			close(xml);
+		}
+	}
+
+	/**
+	 * Offsets of the parts between the first trace and the end tag of the log, each starting at a trace.
+	 */
+	private List<long[]> split(FileChannel channel, long firstTrace, long logEnd) throws IOException {
+		long partLength = Math.max(MIN_PART_LENGTH,
+				Math.min(MAX_PART_LENGTH, (logEnd - firstTrace) / (parallelism * PARTS_PER_THREAD)));
+		List<long[]> parts = new ArrayList<>();
+		long start = firstTrace;
+		while (start < logEnd) {
+			long next = start + partLength < logEnd ? find(channel, TRACE_TAG, start + partLength, logEnd) : -1;
+			long end = next >= 0 ? next : logEnd;
+			parts.add(new long[] { start, end });
+			start = end;
+		}
+		return parts;
+	}
+
+	private static ByteBuffer map(FileChannel channel, long position, long size) throws IOException {
+		return channel.map(FileChannel.MapMode.READ_ONLY, position, size);
+	}
+
+	/**
+	 * Offset of the first start tag with the given name at or after the offset, or -1.
+	 */
+	private static long find(FileChannel channel, byte[] tag, long from, long limit) throws IOException {
+		for (long position = from; position < limit; position += SCAN_WINDOW - tag.length) {
+			ByteBuffer window = map(channel, position, Math.min(SCAN_WINDOW, limit - position));
+			for (int i = 0; i + tag.length < window.limit(); i++) {
+				if (matches(window, i, tag) && endsName(window.get(i + tag.length))) {
+					return position + i;
+				}
+			}
+			if (position + window.limit() >= limit) {
+				break;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Offset of the last occurrence of the bytes near the end of the file, or -1.
+	 */
+	private static long findLast(FileChannel channel, byte[] bytes) throws IOException {
+		long size = Math.min(channel.size(), 64 * 1024);
+		long position = channel.size() - size;
+		ByteBuffer tail = map(channel, position, size);
+		for (int i = tail.limit() - bytes.length; i >= 0; i--) {
+			if (matches(tail, i, bytes)) {
+				return position + i;
+			}
+		}
+		return -1;
+	}
+
+	private static boolean matches(ByteBuffer buffer, int index, byte[] bytes) {
+		for (int j = 0; j < bytes.length; j++) {
+			if (buffer.get(index + j) != bytes[j]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static boolean endsName(byte b) {
+		return b == ' ' || b == '\t' || b == '\r' || b == '\n' || b == '>' || b == '/';
+	}
+
+	/**
+	 * The start tag of the log element in the header, with its namespace declarations, or null.
+	 */
+	private static byte[] logStartTag(ByteBuffer header) {
+		for (int i = 0; i + LOG_TAG.length < header.limit(); i++) {
+			if (matches(header, i, LOG_TAG) && endsName(header.get(i + LOG_TAG.length))) {
+				byte quote = 0;
+				for (int j = i + LOG_TAG.length; j < header.limit(); j++) {
+					byte b = header.get(j);
+					if (quote != 0) {
+						quote = b == quote ? 0 : quote;
+					} else if (b == '"' || b == '\'') {
+						quote = b;
+					} else if (b == '>') {
+						byte[] tag = new byte[j + 1 - i];
+						header.position(i);
+						header.get(tag);
+						return tag;
+					}
+				}
+				return null;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Whether tags are plain ASCII bytes in the encoding, so they can be found without decoding the file.
+	 */
+	private static boolean asciiCompatible(String encoding) {
+		try {
+			byte[] tag = "<trace>".getBytes(Charset.forName(encoding));
+			return Arrays.equals(tag, "<trace>".getBytes(StandardCharsets.US_ASCII));
+		} catch (IllegalArgumentException e) {
+			return false;
+		}
+	}
+
+	private static InputStream open(InputStream in, String label) throws IOException {
+		InputStream buffered = new BufferedInputStream(in, 64 * 1024);
+		return label.toLowerCase().endsWith(".gz") ? new BufferedInputStream(new GZIPInputStream(buffered, 64 * 1024))
+				: buffered;
+	}
+
+	private static void close(XMLStreamReader xml) {
+		if (xml != null) {
+			try {
+				xml.close();
+			} catch (XMLStreamException e) {
+				// The stream is closed by the caller
+			}
+		}
+	}
+
+	/**
+	 * Splits the keys of a classifier: words separated by spaces, or in single quotes when they contain spaces.
+	 */
+	static List<String> parseKeys(String keys) {
+		List<String> result = new ArrayList<>();
+		int i = 0;
+		while (i < keys.length()) {
+			char c = keys.charAt(i);
+			if (Character.isWhitespace(c)) {
+				i++;
+			} else if (c == '\'') {
+				int end = keys.indexOf('\'', i + 1);
+				end = end < 0 ? keys.length() : end;
+				result.add(keys.substring(i + 1, end));
+				i = end + 1;
+			} else {
+				int end = i;
+				while (end < keys.length() && !Character.isWhitespace(keys.charAt(end))) {
+					end++;
+				}
+				result.add(keys.substring(i, end));
+				i = end;
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * What the header of a log declares. Filled while the header is read and only read afterwards, so the parts of
+	 * a file can share it.
+	 */
+	private static class Header {
+		private final Map<String, List<String>> classifiers = new LinkedHashMap<>();
+		private final Map<String, String> eventDefaults = new HashMap<>();
+		private String logName;
+	}
+
+	/**
+	 * State of one read of a whole log, of its header, or of a part of its traces. The builder is created at the
+	 * first trace, once the header has been read.
+	 */
+	private static class Parse {
+		private static final int FULL = 0;
+		private static final int HEADER = 1;
+		private static final int PART = 2;
+
+		private static final int LOG = 1;
+		private static final int TRACE = 2;
+		private static final int EVENT = 3;
+		private static final int GLOBAL = 4;
+
+		private final XMLStreamReader xml;
+		private final String classifier;
+		private final Set<String> attributeKeys;
+		private final Header header;
+		private final int mode;
+		private final XsDateTimeConversion dates = new XsDateTimeConversion();
+
+		private CompactLog.Builder builder;
+		private String label;
+		private String[] keys;
+		private String[] keyValues;
+		private Map<String, String> attributes;
+		private long timestamp;
+		private String traceName;
+
+		// Element the attributes being read belong to, and the depth of nested attributes below it
+		private int scope;
+		private boolean eventScope;
+		private int nested;
+
+		Parse(XMLStreamReader xml, String classifier, Set<String> attributeKeys, Header header, int mode) {
+			this.xml = xml;
+			this.classifier = classifier;
+			this.attributeKeys = attributeKeys;
+			this.header = header;
+			this.mode = mode;
+		}
+
+		CompactLog run(String label) throws XMLStreamException {
+			this.label = label;
+			while (xml.hasNext()) {
+				switch (xml.next()) {
+				case XMLStreamConstants.START_ELEMENT:
+					if (!start(xml.getLocalName())) {
+						return null;
+					}
+					break;
+				case XMLStreamConstants.END_ELEMENT:
+					end(xml.getLocalName());
+					break;
+				default:
+					break;
+				}
+			}
+			if (mode == HEADER) {
+				return null;
+			}
+			return builder().build();
+		}
+
+		/**
+		 * Handles a start tag; returns false when reading should stop.
+		 */
+		private boolean start(String name) {
+			if (nested > 0) {
+				nested++;
+				return true;
+			}
+			switch (name) {
+			case "log":
+				scope = LOG;
+				break;
+			case "trace":
+				if (mode == HEADER) {
+					return false;
+				}
+				builder();
+				scope = TRACE;
+				traceName = null;
+				break;
+			case "event":
+				if (scope == TRACE) {
+					scope = EVENT;
+					timestamp = CompactLog.NO_TIMESTAMP;
+					keyValues = new String[keys.length];
+					attributes = attributeKeys.isEmpty() ? null : new HashMap<>();
+				}
+				break;
+			case "global":
+				scope = GLOBAL;
+				eventScope = "event".equals(xml.getAttributeValue(null, "scope"));
+				break;
+			case "classifier":
+				String classifierName = xml.getAttributeValue(null, "name");
+				String classifierKeys = xml.getAttributeValue(null, "keys");
+				if (classifierName != null && classifierKeys != null && mode != PART) {
+					header.classifiers.put(classifierName, parseKeys(classifierKeys));
+				}
+				break;
+			case "extension":
+				break;
+			default:
+				attribute(xml.getAttributeValue(null, "key"), name, xml.getAttributeValue(null, "value"));
+				nested = 1;
+				break;
+			}
+			return true;
+		}
+
+		private void end(String name) {
+			if (nested > 0) {
+				nested--;
+				return;
+			}
+			switch (name) {
+			case "event":
+				if (scope == EVENT) {
+					endEvent();
+					scope = TRACE;
+				}
+				break;
+			case "trace":
+				builder.endTrace(traceName);
+				scope = LOG;
+				break;
+			case "global":
+				scope = LOG;
+				break;
+			default:
+				break;
+			}
+		}
+
+		/**
+		 * An attribute directly below the log, a trace, an event or a global.
+		 */
+		private void attribute(String key, String type, String value) {
+			if (key == null || value == null) {
+				return;
+			}
+			switch (scope) {
+			case LOG:
+				// Parts share the header, which was read before them
+				if (NAME.equals(key) && mode != PART) {
+					header.logName = value;
+				}
+				break;
+			case GLOBAL:
+				if (eventScope && mode != PART) {
+					header.eventDefaults.put(key, value);
+				}
+				break;
+			case TRACE:
+				if (NAME.equals(key)) {
+					traceName = value;
+				}
+				break;
+			case EVENT:
+				for (int i = 0; i < keys.length; i++) {
+					if (keys[i].equals(key)) {
+						keyValues[i] = value;
+					}
+				}
+				if (TIMESTAMP.equals(key) && "date".equals(type)) {
+					Date date = dates.parseXsDateTime(value);
+					if (date != null) {
+						timestamp = date.getTime();
+					}
+				}
+				if (attributes != null && attributeKeys.contains(key)) {
+					attributes.put(key, value);
+				}
+				break;
+			default:
+				break;
+			}
+		}
+
+		private void endEvent() {
+			String activity;
+			if (keys.length == 1) {
+				activity = valueOf(0);
+			} else {
+				StringBuilder identity = new StringBuilder();
+				for (int i = 0; i < keys.length; i++) {
+					if (i > 0) {
+						identity.append('+');
+					}
+					identity.append(valueOf(i));
+				}
+				activity = identity.toString();
+			}
+			builder.addEvent(builder.addActivity(activity), timestamp);
+			if (attributes != null) {
+				for (Map.Entry<String, String> attribute : attributes.entrySet()) {
+					builder.setAttribute(attribute.getKey(), attribute.getValue());
+				}
+			}
+		}
+
+		private String valueOf(int key) {
+			String value = keyValues[key] != null ? keyValues[key] : header.eventDefaults.get(keys[key]);
+			return value != null ? value : "";
+		}
+
+		private CompactLog.Builder builder() {
+			if (builder == null) {
+				List<String> declared = header.classifiers.get(classifier);
+				keys = (declared != null ? declared : parseKeys(classifier)).toArray(new String[0]);
+				builder = new CompactLog.Builder(header.logName != null ? header.logName : label, true);
+				for (String key : attributeKeys) {
+					builder.addAttributeColumn(key);
+				}
+			}
+			return builder;
+		}
+	}
+
+	/**
+	 * Bytes of a file read so far, by any number of streams.
+	 */
+	private static class Progress {
+		private final long length;
+		private final DoubleConsumer listener;
+		private long count;
+		private int percent;
+
+		Progress(long length, DoubleConsumer listener) {
+			this.length = length;
+			this.listener = listener;
+		}
+
+		synchronized void advance(long n) {
+			count += n;
+			if (listener != null && length > 0) {
+				int now = (int) Math.min(100, count * 100 / length);
+				if (now > percent) {
+					percent = now;
+					listener.accept(now / 100.0);
+				}
+			}
+		}
+
+		synchronized void finish() {
+			if (listener != null && percent < 100) {
+				percent = 100;
+				listener.accept(1.0);
+			}
+		}
+	}
+
+	/**
+	 * Counts the bytes read from the file to report progress.
+	 */
+	private static class CountingInputStream extends FilterInputStream {
+		private final Progress progress;
+
+		CountingInputStream(InputStream in, Progress progress) {
+			super(in);
+			this.progress = progress;
+		}
+
+		@Override
+		public int read() throws IOException {
+			int b = super.read();
+			if (b >= 0) {
+				progress.advance(1);
+			}
+			return b;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			int n = super.read(b, off, len);
+			if (n > 0) {
+				progress.advance(n);
+			}
+			return n;
+		}
+
+		@Override
+		public long skip(long n) throws IOException {
+			long skipped = super.skip(n);
+			progress.advance(skipped);
+			return skipped;
+		}
+	}
+
+	/**
+	 * Reads a buffer, here a mapped part of the file.
+	 */
+	private static class BufferInputStream extends InputStream {
+		private final ByteBuffer buffer;
+
+		BufferInputStream(ByteBuffer buffer) {
+			this.buffer = buffer;
+		}
+
+		@Override
+		public int read() {
+			return buffer.hasRemaining() ? buffer.get() & 0xff : -1;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) {
+			if (len == 0) {
+				return 0;
+			}
+			if (!buffer.hasRemaining()) {
+				return -1;
+			}
+			int n = Math.min(len, buffer.remaining());
+			buffer.get(b, off, n);
+			return n;
+		}
+
+		@Override
+		public int available() {
+			return buffer.remaining();
+		}
+	}
+}
@@ -0,0 +1,263 @@
+package main.io;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.text.SimpleDateFormat;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
+import org.deckfour.xes.classification.XEventClassifier;
+import org.deckfour.xes.extension.XExtension;
+import org.deckfour.xes.extension.std.XConceptExtension;
+import org.deckfour.xes.extension.std.XLifecycleExtension;
+import org.deckfour.xes.extension.std.XTimeExtension;
+import org.deckfour.xes.factory.XFactoryRegistry;
+import org.deckfour.xes.model.XAttributable;
+import org.deckfour.xes.model.XAttribute;
+import org.deckfour.xes.model.XAttributeBoolean;
+import org.deckfour.xes.model.XAttributeCollection;
+import org.deckfour.xes.model.XAttributeContainer;
+import org.deckfour.xes.model.XAttributeContinuous;
+import org.deckfour.xes.model.XAttributeDiscrete;
+import org.deckfour.xes.model.XAttributeID;
+import org.deckfour.xes.model.XAttributeList;
+import org.deckfour.xes.model.XAttributeTimestamp;
+import org.deckfour.xes.model.XEvent;
+import org.deckfour.xes.model.XLog;
+import org.deckfour.xes.model.XTrace;
+
+/**
+ * Writes an XES document trace by trace, so a log never has to be in memory as a whole.
+ * The header comes from a log whose traces are ignored; every trace is written as soon as it is passed in
+ * and {@link #close()} ends the document. The output is buffered and gzip compressed for .gz files.
+ * The layout follows the OpenXES serializer, so files read back with the usual parsers.
+ *
+ * <pre>
+ * try (XesStreamWriter writer = XesStreamWriter.open(file)) {
+ *     writer.writeHeader(header);
+ *     for (...) writer.write(trace);
+ * }
+ * </pre>
+ */
+public class XesStreamWriter implements Closeable {
+
+	private static final int BUFFER_SIZE = 256 * 1024;
+
+	private final OutputStream stream;
+	private final XMLStreamWriter xml;
+	// SimpleDateFormat is not thread safe, one per writer
+	private final SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSSXXX");
+	private boolean headerWritten;
+	private long traces;
+
+	public XesStreamWriter(OutputStream out, boolean gzip) throws IOException {
+		OutputStream buffered = new BufferedOutputStream(out, BUFFER_SIZE);
+		this.stream = gzip ? new GZIPOutputStream(buffered, BUFFER_SIZE) : buffered;
+		try {
+			this.xml = XMLOutputFactory.newInstance().createXMLStreamWriter(stream, "UTF-8");
+		} catch (XMLStreamException e) {
+			throw new IOException(e);
+		}
+	}
+
+	/**
+	 * Opens a writer on the file, compressing when its name ends with .gz.
+	 */
+	public static XesStreamWriter open(File file) throws IOException {
+		return new XesStreamWriter(new FileOutputStream(file), file.getName().toLowerCase().endsWith(".gz"));
+	}
+
+	/**
+	 * Writes the whole log to the file.
+	 */
+	public static void write(XLog log, File file) throws IOException {
+		try (XesStreamWriter writer = open(file)) {
+			writer.writeHeader(log);
+			for (XTrace trace : log) {
+				writer.write(trace);
+			}
+		}
+	}
+
+	/**
+	 * Header for generated logs: the given name and the concept, lifecycle and time extensions.
+	 */
+	public static XLog createHeader(String name) {
+		XLog header = XFactoryRegistry.instance().currentDefault().createLog();
+		header.getExtensions().add(XConceptExtension.instance());
+		header.getExtensions().add(XLifecycleExtension.instance());
+		header.getExtensions().add(XTimeExtension.instance());
+		XConceptExtension.instance().assignName(header, name);
+		return header;
+	}
+
+	public long getTraceCount() {
+		return traces;
+	}
+
+	/**
+	 * Writes the log element with the extensions, globals, classifiers and attributes of the log.
+	 */
+	public void writeHeader(XLog log) throws IOException {
+		try {
+			xml.writeStartDocument("UTF-8", "1.0");
+			newline();
+			xml.writeStartElement("log");
+			xml.writeAttribute("xes.version", "1.0");
+			xml.writeAttribute("xes.features", "nested-attributes");
+			xml.writeDefaultNamespace("http://www.xes-standard.org/");
+			newline();
+			for (XExtension extension : log.getExtensions()) {
+				xml.writeEmptyElement("extension");
+				xml.writeAttribute("name", extension.getName());
+				xml.writeAttribute("prefix", extension.getPrefix());
+				xml.writeAttribute("uri", extension.getUri().toString());
+				newline();
+			}
+			writeGlobal("trace", log.getGlobalTraceAttributes());
+			writeGlobal("event", log.getGlobalEventAttributes());
+			for (XEventClassifier classifier : log.getClassifiers()) {
+				xml.writeEmptyElement("classifier");
+				xml.writeAttribute("name", classifier.name());
+				xml.writeAttribute("keys", String.join(" ", classifier.getDefiningAttributeKeys()));
+				newline();
+			}
+			writeAttributes(log);
+			headerWritten = true;
+		} catch (XMLStreamException e) {
+			throw new IOException(e);
+		}
+	}
+
+	public void write(XTrace trace) throws IOException {
+		if (!headerWritten) {
+			throw new IllegalStateException("writeHeader must be called before the first trace");
+		}
+		try {
+			xml.writeStartElement("trace");
+			newline();
+			writeAttributes(trace);
+			for (XEvent event : trace) {
+				xml.writeStartElement("event");
+				newline();
+				writeAttributes(event);
+				xml.writeEndElement();
+				newline();
+			}
+			xml.writeEndElement();
+			newline();
+			traces++;
+		} catch (XMLStreamException e) {
+			throw new IOException(e);
+		}
+	}
+
+	/**
+	 * Ends the document and closes the underlying stream.
+	 */
+	@Override
+	public void close() throws IOException {
+		try {
+			if (headerWritten) {
+				xml.writeEndElement();
+				newline();
+				xml.writeEndDocument();
+			}
+			xml.close();
+		} catch (XMLStreamException e) {
+			throw new IOException(e);
+		} finally {
+			stream.close();
+		}
+	}
+
+	private void writeGlobal(String scope, List<XAttribute> attributes) throws XMLStreamException {
+		if (attributes.isEmpty()) {
+			return;
+		}
+		xml.writeStartElement("global");
+		xml.writeAttribute("scope", scope);
+		newline();
+		for (XAttribute attribute : attributes) {
+			writeAttribute(attribute);
+		}
+		xml.writeEndElement();
+		newline();
+	}
+
+	private void writeAttributes(XAttributable element) throws XMLStreamException {
+		if (element.hasAttributes()) {
+			for (XAttribute attribute : element.getAttributes().values()) {
+				writeAttribute(attribute);
+			}
+		}
+	}
+
+	private void writeAttribute(XAttribute attribute) throws XMLStreamException {
+		boolean nested = attribute.hasAttributes() || attribute instanceof XAttributeCollection;
+		String element = elementName(attribute);
+		if (nested) {
+			xml.writeStartElement(element);
+		} else {
+			xml.writeEmptyElement(element);
+		}
+		xml.writeAttribute("key", attribute.getKey());
+		if (!(attribute instanceof XAttributeCollection)) {
+			xml.writeAttribute("value", value(attribute));
+		}
+		newline();
+		if (nested) {
+			writeAttributes(attribute);
+			if (attribute instanceof XAttributeList) {
+				xml.writeStartElement("values");
+				newline();
+				for (XAttribute child : ((XAttributeList) attribute).getCollection()) {
+					writeAttribute(child);
+				}
+				xml.writeEndElement();
+				newline();
+			}
+			// The children of a container are its attributes and were written above
+			xml.writeEndElement();
+			newline();
+		}
+	}
+
+	private static String elementName(XAttribute attribute) {
+		if (attribute instanceof XAttributeTimestamp) {
+			return "date";
+		} else if (attribute instanceof XAttributeDiscrete) {
+			return "int";
+		} else if (attribute instanceof XAttributeContinuous) {
+			return "float";
+		} else if (attribute instanceof XAttributeBoolean) {
+			return "boolean";
+		} else if (attribute instanceof XAttributeID) {
+			return "id";
+		} else if (attribute instanceof XAttributeList) {
+			return "list";
+		} else if (attribute instanceof XAttributeContainer) {
+			return "container";
+		}
+		return "string";
+	}
+
+	private String value(XAttribute attribute) {
+		if (attribute instanceof XAttributeTimestamp) {
+			return dateFormat.format(((XAttributeTimestamp) attribute).getValue());
+		}
+		return attribute.toString();
+	}
+
+	private void newline() throws XMLStreamException {
+		xml.writeCharacters("\n");
+	}
+}
@@ -0,0 +1,415 @@
+package main.log;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.deckfour.xes.classification.XEventClassifier;
+import org.deckfour.xes.classification.XEventNameClassifier;
+import org.deckfour.xes.extension.std.XConceptExtension;
+import org.deckfour.xes.extension.std.XLifecycleExtension;
+import org.deckfour.xes.extension.std.XTimeExtension;
+import org.deckfour.xes.factory.XFactory;
+import org.deckfour.xes.factory.XFactoryRegistry;
+import org.deckfour.xes.model.XAttribute;
+import org.deckfour.xes.model.XEvent;
+import org.deckfour.xes.model.XLog;
+import org.deckfour.xes.model.XTrace;
+
+/**
+ * Event log stored in columns: every event is an index into a dictionary of activity names, the events of all
+ * traces lie in one int array and trace t covers the range {@code [traceOffsets[t], traceOffsets[t + 1])}.
+ * Timestamps, when present, are a parallel long column in ms since the epoch; other event attributes can be
+ * kept as string columns with their own dictionary. Trace names are optional and default to the trace index.
+ *
+ * Instances are immutable; use a {@link Builder} or {@link #fromXLog(XLog)} to create one. Project code that
+ * only needs the activity sequences (variants, statistics, replay) works on this log; the ProM plugins get the
+ * OpenXES log it was built from, or {@link #toXLog()}. The {@link VariantIndex} is built on first use and kept
+ * with the log, so everything that works per variant shares one index.
+ */
+public class CompactLog {
+
+	/** Timestamp of events that have none. */
+	public static final long NO_TIMESTAMP = Long.MIN_VALUE;
+
+	private final String name;
+	private final String[] activities;
+	private final Map<String, Integer> activityIndex;
+	// Package private so VariantIndex can compare traces without copying them
+	final int[] events;
+	final int[] traceOffsets;
+	private final String[] traceNames;
+	private final long[] timestamps;
+	private final Map<String, AttributeColumn> attributes;
+	private VariantIndex variantIndex;
+
+	private CompactLog(String name, String[] activities, Map<String, Integer> activityIndex, int[] events,
+			int[] traceOffsets, String[] traceNames, long[] timestamps, Map<String, AttributeColumn> attributes) {
+		this.name = name;
+		this.activities = activities;
+		this.activityIndex = activityIndex;
+		this.events = events;
+		this.traceOffsets = traceOffsets;
+		this.traceNames = traceNames;
+		this.timestamps = timestamps;
+		this.attributes = attributes;
+	}
+
+	/**
+	 * Builds the log from an OpenXES log with events named by concept:name.
+	 */
+	public static CompactLog fromXLog(XLog log) {
+		return fromXLog(log, new XEventNameClassifier(), Collections.emptyList());
+	}
+
+	/**
+	 * Builds the log from an OpenXES log. The activity of an event is its class identity under the classifier;
+	 * timestamps are kept when any event has one, and the given event attributes are kept as string columns.
+	 */
+	public static CompactLog fromXLog(XLog log, XEventClassifier classifier, Collection<String> attributeKeys) {
+		Builder builder = new Builder(XConceptExtension.instance().extractName(log), true);
+		for (String key : attributeKeys) {
+			builder.addAttributeColumn(key);
+		}
+		for (XTrace trace : log) {
+			for (XEvent event : trace) {
+				Date timestamp = XTimeExtension.instance().extractTimestamp(event);
+				builder.addEvent(builder.addActivity(classifier.getClassIdentity(event)),
+						timestamp != null ? timestamp.getTime() : NO_TIMESTAMP);
+				for (String key : attributeKeys) {
+					XAttribute attribute = event.getAttributes().get(key);
+					if (attribute != null) {
+						builder.setAttribute(key, attribute.toString());
+					}
+				}
+			}
+			builder.endTrace(XConceptExtension.instance().extractName(trace));
+		}
+		return builder.build();
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public int getTraceCount() {
+		return traceOffsets.length - 1;
+	}
+
+	public int getEventCount() {
+		return events.length;
+	}
+
+	public int getActivityCount() {
+		return activities.length;
+	}
+
+	public String getActivityName(int activity) {
+		return activities[activity];
+	}
+
+	/**
+	 * Index of the activity with the given name, or -1 if no event has it.
+	 */
+	public int indexOf(String activity) {
+		Integer index = activityIndex.get(activity);
+		return index != null ? index : -1;
+	}
+
+	public String getTraceName(int trace) {
+		return traceNames != null && traceNames[trace] != null ? traceNames[trace] : String.valueOf(trace);
+	}
+
+	public int getTraceLength(int trace) {
+		return traceOffsets[trace + 1] - traceOffsets[trace];
+	}
+
+	/**
+	 * Activity of the i-th event of the trace.
+	 */
+	public int getActivity(int trace, int i) {
+		return events[traceOffsets[trace] + i];
+	}
+
+	/**
+	 * Activities of the events of the trace, as a new array.
+	 */
+	public int[] getActivities(int trace) {
+		return Arrays.copyOfRange(events, traceOffsets[trace], traceOffsets[trace + 1]);
+	}
+
+	public boolean hasTimestamps() {
+		return timestamps != null;
+	}
+
+	/**
+	 * Timestamp of the i-th event of the trace, or {@link #NO_TIMESTAMP}.
+	 */
+	public long getTimestamp(int trace, int i) {
+		return timestamps != null ? timestamps[traceOffsets[trace] + i] : NO_TIMESTAMP;
+	}
+
+	public Set<String> getAttributeKeys() {
+		return Collections.unmodifiableSet(attributes.keySet());
+	}
+
+	/**
+	 * Value of the attribute of the i-th event of the trace, or null if the event has none or the attribute is not
+	 * kept.
+	 */
+	public String getAttribute(String key, int trace, int i) {
+		AttributeColumn column = attributes.get(key);
+		return column != null ? column.get(traceOffsets[trace] + i) : null;
+	}
+
+	/**
+	 * Variants of the log, grouped by activity sequence. Built once, on the first call.
+	 */
+	public synchronized VariantIndex getVariantIndex() {
+		if (variantIndex == null) {
+			variantIndex = VariantIndex.build(this);
+		}
+		return variantIndex;
+	}
+
+	/**
+	 * Converts the log to an OpenXES log with the concept, lifecycle and time extensions. Events are named by
+	 * their activity and are complete events; kept attributes are added as literals.
+	 */
+	public XLog toXLog() {
+		XFactory factory = XFactoryRegistry.instance().currentDefault();
+		XLog log = factory.createLog();
+		log.getExtensions().add(XConceptExtension.instance());
+		log.getExtensions().add(XLifecycleExtension.instance());
+		log.getExtensions().add(XTimeExtension.instance());
+		if (name != null) {
+			XConceptExtension.instance().assignName(log, name);
+		}
+		for (int t = 0; t < getTraceCount(); t++) {
+			log.add(toXTrace(t, getTraceName(t), factory));
+		}
+		return log;
+	}
+
+	/**
+	 * Converts one trace to an OpenXES trace with the given name.
+	 */
+	public XTrace toXTrace(int trace, String traceName, XFactory factory) {
+		XTrace result = factory.createTrace();
+		XConceptExtension.instance().assignName(result, traceName);
+		for (int e = traceOffsets[trace]; e < traceOffsets[trace + 1]; e++) {
+			XEvent event = factory.createEvent();
+			XConceptExtension.instance().assignName(event, activities[events[e]]);
+			XLifecycleExtension.instance().assignStandardTransition(event, XLifecycleExtension.StandardModel.COMPLETE);
+			if (timestamps != null && timestamps[e] != NO_TIMESTAMP) {
+				XTimeExtension.instance().assignTimestamp(event, timestamps[e]);
+			}
+			for (Map.Entry<String, AttributeColumn> column : attributes.entrySet()) {
+				String value = column.getValue().get(e);
+				if (value != null) {
+					event.getAttributes().put(column.getKey(),
+							factory.createAttributeLiteral(column.getKey(), value, null));
+				}
+			}
+			result.add(event);
+		}
+		return result;
+	}
+
+	/**
+	 * String attribute of every event: an index into the distinct values, 0 for events without the attribute.
+	 */
+	private static class AttributeColumn {
+		private final String[] values;
+		private final int[] column;
+
+		AttributeColumn(String[] values, int[] column) {
+			this.values = values;
+			this.column = column;
+		}
+
+		String get(int event) {
+			int value = column[event];
+			return value > 0 ? values[value - 1] : null;
+		}
+	}
+
+	/**
+	 * Collects events trace by trace. Activity names and attribute values are interned, so each distinct
+	 * string is stored once.
+	 */
+	public static class Builder {
+		private final String name;
+		private final boolean withTimestamps;
+		private final List<String> activities = new ArrayList<>();
+		private final Map<String, Integer> activityIndex = new HashMap<>();
+		private final Map<String, ColumnBuilder> attributes = new LinkedHashMap<>();
+		private int[] events = new int[1024];
+		private long[] timestamps;
+		private boolean anyTimestamp;
+		private int[] traceOffsets = new int[64];
+		private String[] traceNames;
+		private int eventCount;
+		private int traceCount;
+
+		public Builder(String name, boolean withTimestamps) {
+			this.name = name;
+			this.withTimestamps = withTimestamps;
+			if (withTimestamps) {
+				timestamps = new long[events.length];
+			}
+		}
+
+		/**
+		 * Returns the index of the activity, adding it to the dictionary if it is new.
+		 */
+		public int addActivity(String activity) {
+			Integer index = activityIndex.get(activity);
+			if (index == null) {
+				index = activities.size();
+				activities.add(activity);
+				activityIndex.put(activity, index);
+			}
+			return index;
+		}
+
+		/**
+		 * Keeps the attribute with the given key; values are set per event with {@link #setAttribute}.
+		 */
+		public void addAttributeColumn(String key) {
+			attributes.putIfAbsent(key, new ColumnBuilder(events.length));
+		}
+
+		public void addEvent(int activity, long timestamp) {
+			if (eventCount == events.length) {
+				events = Arrays.copyOf(events, events.length * 2);
+				if (withTimestamps) {
+					timestamps = Arrays.copyOf(timestamps, events.length);
+				}
+				for (ColumnBuilder column : attributes.values()) {
+					column.grow(events.length);
+				}
+			}
+			events[eventCount] = activity;
+			if (withTimestamps) {
+				timestamps[eventCount] = timestamp;
+				anyTimestamp |= timestamp != NO_TIMESTAMP;
+			}
+			for (ColumnBuilder column : attributes.values()) {
+				// The slot may still hold a value of a discarded trace
+				column.column[eventCount] = 0;
+			}
+			eventCount++;
+		}
+
+		/**
+		 * Sets an attribute of the event added last. The column must have been added.
+		 */
+		public void setAttribute(String key, String value) {
+			attributes.get(key).set(eventCount - 1, value);
+		}
+
+		/**
+		 * Ends the current trace; the events added since the previous call belong to it.
+		 */
+		public void endTrace() {
+			endTrace(null);
+		}
+
+		public void endTrace(String traceName) {
+			if (traceCount + 1 == traceOffsets.length) {
+				traceOffsets = Arrays.copyOf(traceOffsets, traceOffsets.length * 2);
+			}
+			if (traceName != null && traceNames == null) {
+				traceNames = new String[traceOffsets.length];
+			}
+			if (traceNames != null) {
+				if (traceNames.length < traceOffsets.length) {
+					traceNames = Arrays.copyOf(traceNames, traceOffsets.length);
+				}
+				traceNames[traceCount] = traceName;
+			}
+			traceOffsets[++traceCount] = eventCount;
+		}
+
+		/**
+		 * Drops the events added since the last call to {@link #endTrace()}.
+		 */
+		public void discardTrace() {
+			eventCount = traceOffsets[traceCount];
+		}
+
+		/**
+		 * Adds the traces of the log after the traces added so far, with its activities, timestamps, trace names
+		 * and the attributes this builder keeps. Used to join logs that were read in parts.
+		 */
+		public void append(CompactLog log) {
+			int[] activityMap = new int[log.activities.length];
+			for (int a = 0; a < activityMap.length; a++) {
+				activityMap[a] = addActivity(log.activities[a]);
+			}
+			for (int t = 0; t < log.getTraceCount(); t++) {
+				for (int e = log.traceOffsets[t]; e < log.traceOffsets[t + 1]; e++) {
+					addEvent(activityMap[log.events[e]], log.timestamps != null ? log.timestamps[e] : NO_TIMESTAMP);
+					for (Map.Entry<String, AttributeColumn> column : log.attributes.entrySet()) {
+						String value = column.getValue().get(e);
+						if (value != null && attributes.containsKey(column.getKey())) {
+							setAttribute(column.getKey(), value);
+						}
+					}
+				}
+				endTrace(log.traceNames != null ? log.traceNames[t] : null);
+			}
+		}
+
+		public int getTraceCount() {
+			return traceCount;
+		}
+
+		public CompactLog build() {
+			Map<String, AttributeColumn> columns = new LinkedHashMap<>();
+			for (Map.Entry<String, ColumnBuilder> column : attributes.entrySet()) {
+				columns.put(column.getKey(), column.getValue().build(eventCount));
+			}
+			return new CompactLog(name, activities.toArray(new String[0]), new HashMap<>(activityIndex),
+					Arrays.copyOf(events, eventCount), Arrays.copyOf(traceOffsets, traceCount + 1),
+					traceNames != null ? Arrays.copyOf(traceNames, traceCount) : null,
+					anyTimestamp ? Arrays.copyOf(timestamps, eventCount) : null, columns);
+		}
+	}
+
+	private static class ColumnBuilder {
+		private final List<String> values = new ArrayList<>();
+		private final Map<String, Integer> valueIndex = new HashMap<>();
+		private int[] column;
+
+		ColumnBuilder(int capacity) {
+			column = new int[capacity];
+		}
+
+		void grow(int capacity) {
+			column = Arrays.copyOf(column, capacity);
+		}
+
+		void set(int event, String value) {
+			Integer index = valueIndex.get(value);
+			if (index == null) {
+				values.add(value);
+				index = values.size();
+				valueIndex.put(value, index);
+			}
+			column[event] = index;
+		}
+
+		AttributeColumn build(int eventCount) {
+			return new AttributeColumn(values.toArray(new String[0]), Arrays.copyOf(column, eventCount));
+		}
+	}
+}
@@ -0,0 +1,174 @@
+package main.log;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.deckfour.xes.classification.XEventClassifier;
+import org.deckfour.xes.extension.std.XConceptExtension;
+import org.deckfour.xes.factory.XFactory;
+import org.deckfour.xes.factory.XFactoryRegistry;
+import org.deckfour.xes.model.XLog;
+
+/**
+ * Groups the traces of a log into variants, i.e. traces with the same sequence of event classes.
+ * Variants are kept in order of their first occurrence in the log.
+ */
+public class VariantIndex {
+
+	private final CompactLog log;
+	private final List<Variant> variants;
+
+	private VariantIndex(CompactLog log, List<Variant> variants) {
+		this.log = log;
+		this.variants = variants;
+	}
+
+	public static VariantIndex build(XLog log, XEventClassifier classifier) {
+		return build(CompactLog.fromXLog(log, classifier, Collections.emptyList()));
+	}
+
+	public static VariantIndex build(CompactLog log) {
+		Map<TraceKey, Variant> byActivities = new LinkedHashMap<>();
+
+		for (int i = 0; i < log.getTraceCount(); i++) {
+			TraceKey key = new TraceKey(log.events, log.traceOffsets[i], log.traceOffsets[i + 1]);
+			Variant variant = byActivities.get(key);
+			if (variant == null) {
+				String[] activities = new String[key.end - key.start];
+				for (int e = 0; e < activities.length; e++) {
+					activities[e] = log.getActivityName(log.events[key.start + e]);
+				}
+				variant = new Variant(Collections.unmodifiableList(Arrays.asList(activities)));
+				byActivities.put(key, variant);
+			}
+			variant.addTrace(i);
+		}
+
+		return new VariantIndex(log, new ArrayList<>(byActivities.values()));
+	}
+
+	public CompactLog getLog() {
+		return log;
+	}
+
+	public List<Variant> getVariants() {
+		return Collections.unmodifiableList(variants);
+	}
+
+	public Variant getVariant(int index) {
+		return variants.get(index);
+	}
+
+	public int size() {
+		return variants.size();
+	}
+
+	public int getTraceCount() {
+		return log.getTraceCount();
+	}
+
+	/**
+	 * Creates a log with the first trace of every variant, in variant order.
+	 * Trace i of the returned log belongs to variant i.
+	 */
+	public XLog createRepresentativeLog() {
+		List<Integer> all = new ArrayList<>(variants.size());
+		for (int v = 0; v < variants.size(); v++) {
+			all.add(v);
+		}
+		return createRepresentativeLog(all);
+	}
+
+	/**
+	 * Creates a log with the first trace of each selected variant. Trace i of the returned log belongs to
+	 * variant {@code selection.get(i)}. Events carry their activity as concept:name.
+	 */
+	public XLog createRepresentativeLog(List<Integer> selection) {
+		XFactory factory = XFactoryRegistry.instance().currentDefault();
+		XLog representatives = factory.createLog();
+		representatives.getExtensions().add(XConceptExtension.instance());
+
+		for (Integer v : selection) {
+			int trace = variants.get(v).getRepresentativeTrace();
+			representatives.add(log.toXTrace(trace, log.getTraceName(trace), factory));
+		}
+		return representatives;
+	}
+
+	/**
+	 * Range of the event column, compared by content.
+	 */
+	private static class TraceKey {
+		private final int[] events;
+		private final int start;
+		private final int end;
+		private final int hash;
+
+		TraceKey(int[] events, int start, int end) {
+			this.events = events;
+			this.start = start;
+			this.end = end;
+			int h = 1;
+			for (int e = start; e < end; e++) {
+				h = 31 * h + events[e];
+			}
+			this.hash = h;
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof TraceKey)) {
+				return false;
+			}
+			TraceKey other = (TraceKey) obj;
+			return hash == other.hash && Arrays.equals(events, start, end, other.events, other.start, other.end);
+		}
+	}
+
+	/**
+	 * A distinct sequence of event classes together with the indices of the traces that follow it.
+	 */
+	public static class Variant {
+		private final List<String> activities;
+		private int[] traceIndices = new int[4];
+		private int count;
+
+		private Variant(List<String> activities) {
+			this.activities = activities;
+		}
+
+		private void addTrace(int traceIndex) {
+			if (count == traceIndices.length) {
+				int[] grown = new int[traceIndices.length * 2];
+				System.arraycopy(traceIndices, 0, grown, 0, count);
+				traceIndices = grown;
+			}
+			traceIndices[count++] = traceIndex;
+		}
+
+		public List<String> getActivities() {
+			return activities;
+		}
+
+		public int getCount() {
+			return count;
+		}
+
+		public int getTraceIndex(int i) {
+			return traceIndices[i];
+		}
+
+		public int getRepresentativeTrace() {
+			return traceIndices[0];
+		}
+	}
+}
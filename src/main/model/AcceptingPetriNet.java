@@ -0,0 +1,82 @@
+package main.model;
+
+import org.processmining.models.graphbased.directed.petrinet.Petrinet;
+import org.processmining.models.graphbased.directed.petrinet.elements.Place;
+import org.processmining.models.semantics.petrinet.Marking;
+
+/**
+ * A Petri net with the marking it starts in and the marking it has to end in. Miners and the PNML reader
+ * return their markings with the net, so nothing downstream has to guess them from the structure again.
+ *
+ * The markings are never null; a marking that is not known is derived once from the structure of the net when
+ * the accepting net is created: one token in every place without incoming arcs at the start and in every place
+ * without outgoing arcs at the end.
+ */
+public class AcceptingPetriNet {
+
+	private final Petrinet net;
+	private final Marking initialMarking;
+	private final Marking finalMarking;
+
+	public AcceptingPetriNet(Petrinet net, Marking initialMarking, Marking finalMarking) {
+		if (net == null) {
+			throw new IllegalArgumentException("Petri net cannot be null");
+		}
+		this.net = net;
+		this.initialMarking = initialMarking != null && !initialMarking.isEmpty() ? initialMarking
+				: sourceMarking(net);
+		this.finalMarking = finalMarking != null && !finalMarking.isEmpty() ? finalMarking : sinkMarking(net);
+	}
+
+	/**
+	 * Accepting net with both markings derived from the structure of the net.
+	 */
+	public static AcceptingPetriNet of(Petrinet net) {
+		return new AcceptingPetriNet(net, null, null);
+	}
+
+	public Petrinet getNet() {
+		return net;
+	}
+
+	public Marking getInitialMarking() {
+		return initialMarking;
+	}
+
+	public Marking getFinalMarking() {
+		return finalMarking;
+	}
+
+	/**
+	 * Whether both markings hold tokens; nets without source or sink places cannot be replayed.
+	 */
+	public boolean hasMarkings() {
+		return !initialMarking.isEmpty() && !finalMarking.isEmpty();
+	}
+
+	/**
+	 * One token in every place without incoming arcs.
+	 */
+	public static Marking sourceMarking(Petrinet net) {
+		Marking marking = new Marking();
+		for (Place place : net.getPlaces()) {
+			if (net.getInEdges(place).isEmpty()) {
+				marking.add(place, 1);
+			}
+		}
+		return marking;
+	}
+
+	/**
+	 * One token in every place without outgoing arcs.
+	 */
+	public static Marking sinkMarking(Petrinet net) {
+		Marking marking = new Marking();
+		for (Place place : net.getPlaces()) {
+			if (net.getOutEdges(place).isEmpty()) {
+				marking.add(place, 1);
+			}
+		}
+		return marking;
+	}
+}
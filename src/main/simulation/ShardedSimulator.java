@@ -0,0 +1,366 @@
+package main.simulation;
+
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.commons.math3.distribution.RealDistribution;
+import org.deckfour.xes.extension.std.XConceptExtension;
+import org.deckfour.xes.factory.XFactoryRegistry;
+import org.deckfour.xes.model.XLog;
+import org.deckfour.xes.model.XTrace;
+import org.processmining.models.graphbased.directed.petrinet.Petrinet;
+import org.processmining.models.graphbased.directed.petrinet.PetrinetGraph;
+import org.processmining.models.graphbased.directed.petrinet.StochasticNet;
+import org.processmining.models.graphbased.directed.petrinet.StochasticNet.TimeUnit;
+import org.processmining.models.graphbased.directed.petrinet.elements.Transition;
+import org.processmining.models.semantics.ExecutionInformation;
+import org.processmining.models.semantics.IllegalTransitionException;
+import org.processmining.models.semantics.Semantics;
+import org.processmining.models.semantics.petrinet.Marking;
+import org.processmining.plugins.stochasticpetrinet.StochasticNetUtils;
+import org.processmining.plugins.stochasticpetrinet.simulator.PNSimulator;
+import org.processmining.plugins.stochasticpetrinet.simulator.PNSimulatorConfig;
+import org.utils.datastructures.LimitedTreeMap;
+import org.utils.datastructures.Triple;
+
+import main.conformance.CompiledNet;
+import main.log.CompactLog;
+
+/**
+ * Log generation split into shards of a fixed number of traces that are simulated on a thread pool and merged
+ * in shard order. Every shard draws from its own random generator, seeded from the master seed and the shard
+ * number, so the log only depends on the master seed and the shard size, not on the number of threads.
+ *
+ * The PNSimulator keeps its random generator in a static field shared by all instances, which makes parallel
+ * runs interfere. Shards therefore use a subclass that picks transitions and arrival times with the generator
+ * of the shard; the rest of the simulation (semantics, trace and event layout) is the plugin's own.
+ * Stochastic nets with timing information sample durations from the shared generator and are simulated in one
+ * shard. The built-in {@link TokenGameSimulator} is sharded the same way, with one simulator per shard.
+ */
+public class ShardedSimulator {
+
+	public static final int DEFAULT_SHARD_SIZE = 2000;
+
+	// Matches the default seed of PNSimulatorConfig
+	public static final long DEFAULT_SEED = 1;
+
+	// 2020-01-01T00:00:00Z, first arrival of every generated log
+	public static final long DEFAULT_START_TIME = 1577836800000L;
+
+	private final int parallelism;
+	private int shardSize = DEFAULT_SHARD_SIZE;
+	private long masterSeed = DEFAULT_SEED;
+	private long startTime = DEFAULT_START_TIME;
+	private int maxTraceLength = Integer.MAX_VALUE;
+	private TraceLengthPolicy traceLengthPolicy = TraceLengthPolicy.TRUNCATE;
+
+	public ShardedSimulator(int parallelism) {
+		this.parallelism = Math.max(1, parallelism);
+	}
+
+	/**
+	 * Number of traces per shard. Changing it changes the generated log.
+	 */
+	public void setShardSize(int shardSize) {
+		this.shardSize = Math.max(1, shardSize);
+	}
+
+	public void setMasterSeed(long masterSeed) {
+		this.masterSeed = masterSeed;
+	}
+
+	/**
+	 * Time of the first arrival in ms since the epoch.
+	 */
+	public void setStartTime(long startTime) {
+		this.startTime = startTime;
+	}
+
+	/**
+	 * Maximum number of events in a trace. The simulation of a trace stops at the limit, or with
+	 * {@link TraceLengthPolicy#RETRY} the trace is simulated again if it would get longer.
+	 */
+	public void setMaxTraceLength(int maxTraceLength, TraceLengthPolicy traceLengthPolicy) {
+		this.maxTraceLength = maxTraceLength;
+		this.traceLengthPolicy = traceLengthPolicy;
+	}
+
+	/**
+	 * Receives the simulated traces in order.
+	 */
+	public interface TraceSink {
+		void accept(XTrace trace) throws Exception;
+	}
+
+	/**
+	 * Receives the shards of the built-in simulator in order.
+	 */
+	public interface ShardSink {
+		void accept(CompactLog shard) throws Exception;
+	}
+
+	// Simulation of the shard whose traces start at the given trace number
+	private interface Shard<T> {
+		T simulate(int first, int count, long seed) throws Exception;
+	}
+
+	private interface ShardConsumer<T> {
+		void accept(T shard) throws Exception;
+	}
+
+	/**
+	 * Simulates the number of traces, each ending in the final marking, in a dead marking or after
+	 * maxEventsPerTrace steps. Trace names run from 0 to numberOfTraces - 1 over all shards.
+	 */
+	public XLog simulate(Petrinet model, Marking initialMarking, Marking finalMarking, int numberOfTraces,
+			int maxEventsPerTrace) throws Exception {
+		XLog log = XFactoryRegistry.instance().currentDefault().createLog();
+		XConceptExtension.instance().assignName(log, "Simulated log (from " + model.getLabel() + ")");
+		simulate(model, initialMarking, finalMarking, numberOfTraces, maxEventsPerTrace, log::add);
+		return log;
+	}
+
+	/**
+	 * Simulates like {@link #simulate(Petrinet, Marking, Marking, int, int)} but hands every trace to the sink
+	 * instead of collecting them. Only a few shards per thread are kept ahead of the sink, so memory does not
+	 * grow with the number of traces.
+	 */
+	public void simulate(Petrinet model, Marking initialMarking, Marking finalMarking, int numberOfTraces,
+			int maxEventsPerTrace, TraceSink sink) throws Exception {
+		boolean sharedRandom = model instanceof StochasticNet
+				&& PNSimulator.transitionsContainTimingInfo(model.getTransitions());
+		int size = sharedRandom ? Math.max(1, numberOfTraces) : shardSize;
+		runShards(numberOfTraces, size,
+				(first, count, seed) -> simulateShard(model, initialMarking, finalMarking, first, count,
+						maxEventsPerTrace, seed),
+				log -> {
+					for (XTrace trace : log) {
+						sink.accept(trace);
+					}
+				});
+	}
+
+	/**
+	 * Simulates the number of traces with the built-in {@link TokenGameSimulator}, one simulator per shard, and
+	 * hands the shards to the sink in order. The net must have an initial marking; maxSteps counts invisible
+	 * steps too.
+	 */
+	public void simulate(CompiledNet net, int numberOfTraces, int maxSteps, boolean timestamps, ShardSink sink)
+			throws Exception {
+		runShards(numberOfTraces, shardSize, (first, count, seed) -> {
+			TokenGameSimulator simulator = new TokenGameSimulator(net, seed, shardStart(first));
+			simulator.setMaxSteps(maxSteps);
+			simulator.setMaxTraceLength(maxTraceLength, traceLengthPolicy);
+			simulator.setTimestamps(timestamps);
+			CompactLog.Builder shard = new CompactLog.Builder(null, timestamps);
+			simulator.simulate(count, shard);
+			return shard.build();
+		}, sink::accept);
+	}
+
+	/**
+	 * Simulates the shards on the thread pool, at most two per thread ahead of the one handed to the sink.
+	 */
+	private <T> void runShards(int numberOfTraces, int size, Shard<T> shard, ShardConsumer<T> sink)
+			throws Exception {
+		int shards = (numberOfTraces + size - 1) / size;
+		int window = 2 * parallelism;
+
+		ExecutorService executor = Executors.newFixedThreadPool(Math.min(parallelism, Math.max(1, shards)), r -> {
+			Thread thread = new Thread(r, "log-simulation");
+			thread.setDaemon(true);
+			return thread;
+		});
+		try {
+			ArrayDeque<Future<T>> pending = new ArrayDeque<>();
+			int submitted = 0;
+			while (submitted < shards || !pending.isEmpty()) {
+				while (submitted < shards && pending.size() < window) {
+					int first = submitted * size;
+					int count = Math.min(size, numberOfTraces - first);
+					long seed = shardSeed(masterSeed, submitted);
+					pending.add(executor.submit(() -> shard.simulate(first, count, seed)));
+					submitted++;
+				}
+				sink.accept(pending.poll().get());
+			}
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			throw cause instanceof Exception ? (Exception) cause : new Exception(cause.toString(), cause);
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * Expected arrival of the first trace of a shard, one trace per minute on average.
+	 */
+	private long shardStart(int first) {
+		return startTime + first * (long) TimeUnit.MINUTES.getUnitFactorToMillis();
+	}
+
+	private XLog simulateShard(Petrinet model, Marking initialMarking, Marking finalMarking, int first, int count,
+			int maxEventsPerTrace, long seed) {
+		PNSimulatorConfig config = new PNSimulatorConfig(count, TimeUnit.MINUTES, seed, 1, maxEventsPerTrace);
+		SeededSimulator simulator = new SeededSimulator(new Random(seed), first, shardStart(first), maxTraceLength,
+				traceLengthPolicy);
+		Semantics<Marking, Transition> semantics = new BoundedSemantics(StochasticNetUtils.getSemantics(model),
+				simulator);
+		return simulator.simulate(null, model, semantics, config, initialMarking, finalMarking);
+	}
+
+	/**
+	 * Seed of a shard, mixed from the master seed so neighbouring shards get unrelated sequences
+	 * (the finaliser of SplitMix64).
+	 */
+	static long shardSeed(long masterSeed, int shard) {
+		long z = masterSeed + (shard + 1) * 0x9E3779B97F4A7C15L;
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+
+	/**
+	 * PNSimulator drawing from its own generator, numbering traces from an offset and keeping its own
+	 * arrival clock.
+	 */
+	private static class SeededSimulator extends PNSimulator {
+		private final Random shardRandom;
+		private final long traceOffset;
+		private final int maxTraceLength;
+		private final TraceLengthPolicy traceLengthPolicy;
+		private long clock;
+
+		// Visible events of the trace being simulated, and whether one more was about to be added
+		private int length;
+		private boolean exceeded;
+		private boolean reject;
+
+		SeededSimulator(Random shardRandom, long traceOffset, long startTime, int maxTraceLength,
+				TraceLengthPolicy traceLengthPolicy) {
+			this.shardRandom = shardRandom;
+			this.traceOffset = traceOffset;
+			this.clock = startTime;
+			this.maxTraceLength = maxTraceLength;
+			this.traceLengthPolicy = traceLengthPolicy;
+		}
+
+		/**
+		 * Whether the trace being simulated must stop: it reached the limit, or under the retry policy it has
+		 * gone over it.
+		 */
+		boolean isStopped() {
+			return reject ? exceeded : length >= maxTraceLength;
+		}
+
+		@Override
+		public Object simulateOneTrace(PetrinetGraph petriNet, Semantics<Marking, Transition> semantics,
+				PNSimulatorConfig config, Marking initialMarking, long traceStart, long constraint, long i,
+				boolean useTimeConstraint, Marking finalMarking) {
+			for (int attempt = 1;; attempt++) {
+				reject = traceLengthPolicy == TraceLengthPolicy.RETRY && attempt < TokenGameSimulator.MAX_ATTEMPTS;
+				length = 0;
+				exceeded = false;
+				Object trace = super.simulateOneTrace(petriNet, semantics, config, initialMarking, traceStart,
+						constraint, i, useTimeConstraint, finalMarking);
+				// The plugin fires one transition after the trace is stopped, so exceeded is also set when truncating
+				if (!reject || !exceeded) {
+					return trace;
+				}
+				semantics.initialize(petriNet.getTransitions(), initialMarking);
+			}
+		}
+
+		@Override
+		public Triple<Transition, Long, Double> pickTransition(Semantics<Marking, Transition> semantics,
+				Collection<Transition> transitions, Map<Transition, Long> transitionRemainingTimes,
+				LimitedTreeMap<Integer, Map<Transition, RealDistribution>> cachedDurationDistributions,
+				PetrinetGraph petriNet, PNSimulatorConfig config, long startOfTransition, long constraint,
+				boolean usePositiveTimeContraint, boolean useOnlyPastTrainingData) {
+			if (petriNet instanceof StochasticNet && transitionsContainTimingInfo(transitions)) {
+				return super.pickTransition(semantics, transitions, transitionRemainingTimes,
+						cachedDurationDistributions, petriNet, config, startOfTransition, constraint,
+						usePositiveTimeContraint, useOnlyPastTrainingData);
+			}
+			// Uniform choice among the enabled transitions, as the plugin does for untimed nets
+			Transition t = getTransitionWithIndex(transitions, shardRandom.nextInt(transitions.size()));
+			long duration = getTransitionRemainingTime(t, config.getUnitFactor(), transitionRemainingTimes,
+					startOfTransition, 0, cachedDurationDistributions, useOnlyPastTrainingData);
+			return new Triple<>(t, duration, 1.0 / transitions.size());
+		}
+
+		@Override
+		protected Date getNextArrivalDate(Date lastTime, TimeUnit unitFactor) {
+			// Exponential inter-arrival times with rate 1; the first trace arrives at the start of the shard
+			Date arrival = new Date(clock);
+			clock += (long) (-Math.log(1 - shardRandom.nextDouble()) * unitFactor.getUnitFactorToMillis());
+			return arrival;
+		}
+
+		@Override
+		protected XTrace createTrace(long i, PNSimulatorConfig config) {
+			return super.createTrace(traceOffset + i, config);
+		}
+
+		@Override
+		protected void insertEvent(String instanceId, XTrace trace, PetrinetGraph net,
+				Triple<Transition, Long, Double> transitionAndDuration, long firingTime, PNSimulatorConfig config) {
+			if (!transitionAndDuration.getFirst().isInvisible() && length++ >= maxTraceLength) {
+				exceeded = true;
+				return;
+			}
+			super.insertEvent(String.valueOf(traceOffset + Long.parseLong(instanceId)), trace, net,
+					transitionAndDuration, firingTime, config);
+		}
+	}
+
+	/**
+	 * Semantics that reports no executable transitions once the simulator stops the current trace, which is the
+	 * only way to end a trace of the plugin's simulation loop early.
+	 */
+	private static class BoundedSemantics implements Semantics<Marking, Transition> {
+		private static final long serialVersionUID = 1L;
+
+		private final Semantics<Marking, Transition> semantics;
+		private final transient SeededSimulator simulator;
+
+		BoundedSemantics(Semantics<Marking, Transition> semantics, SeededSimulator simulator) {
+			this.semantics = semantics;
+			this.simulator = simulator;
+		}
+
+		@Override
+		public void setCurrentState(Marking state) {
+			semantics.setCurrentState(state);
+		}
+
+		@Override
+		public Marking getCurrentState() {
+			return semantics.getCurrentState();
+		}
+
+		@Override
+		public Collection<Transition> getExecutableTransitions() {
+			return simulator.isStopped() ? Collections.emptyList() : semantics.getExecutableTransitions();
+		}
+
+		@Override
+		public ExecutionInformation executeExecutableTransition(Transition transition)
+				throws IllegalTransitionException {
+			return semantics.executeExecutableTransition(transition);
+		}
+
+		@Override
+		public void initialize(Collection<Transition> transitions, Marking state) {
+			semantics.initialize(transitions, state);
+		}
+	}
+}
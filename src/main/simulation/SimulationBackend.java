@@ -0,0 +1,19 @@
+package main.simulation;
+
+/**
+ * Engines that can generate an event log from a Petri net.
+ */
+public enum SimulationBackend {
+	NATIVE("Built-in token game"), PROM("ProM stochastic simulator");
+
+	private final String label;
+
+	SimulationBackend(String label) {
+		this.label = label;
+	}
+
+	@Override
+	public String toString() {
+		return label;
+	}
+}
@@ -0,0 +1,289 @@
+package main.simulation;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.processmining.models.graphbased.directed.petrinet.elements.TimedTransition;
+import org.processmining.models.graphbased.directed.petrinet.elements.Transition;
+
+import main.conformance.CompiledNet;
+import main.log.CompactLog;
+
+/**
+ * Plays the token game on a {@link CompiledNet} and records the visible transitions as traces of a
+ * {@link CompactLog}. Markings are int arrays; after a firing only the transitions that share a place with
+ * the fired one are checked again, so a step costs a few array accesses and no allocation.
+ *
+ * In every step one enabled transition is chosen with probability proportional to its weight (the weight of a
+ * stochastic net's transition, 1 otherwise). A trace ends in the final marking, in a dead marking, after
+ * the maximum number of steps (invisible transitions count as steps but are not recorded) or when it reaches
+ * the maximum trace length, where the {@link TraceLengthPolicy} decides whether it is kept. Durations are not
+ * sampled: traces arrive with exponential inter-arrival times of one minute on average and every step takes
+ * one minute, like the ProM simulator does for nets without timing information.
+ *
+ * The simulator is single threaded and keeps its generator between calls, so simulating n traces in chunks
+ * gives the same traces as simulating them at once.
+ */
+public class TokenGameSimulator {
+
+	private static final long MINUTE = 60_000L;
+
+	// Attempts per trace under TraceLengthPolicy.RETRY, after which the last attempt is kept truncated
+	static final int MAX_ATTEMPTS = 100;
+
+	private final CompiledNet net;
+	private final double[] weights;
+	// Transitions whose enabling can change when the transition at the index fires
+	private final int[][] affected;
+	private final int[] initialMarking;
+	private final int[] finalMarking;
+
+	private final Random random;
+	private int maxSteps = Integer.MAX_VALUE;
+	private int maxTraceLength = Integer.MAX_VALUE;
+	private TraceLengthPolicy traceLengthPolicy = TraceLengthPolicy.TRUNCATE;
+	private boolean timestamps = true;
+	private long clock;
+
+	private final int[] enabled;
+	private final int[] enabledPosition;
+	private int enabledCount;
+
+	/**
+	 * Creates a simulator for the net, which must have an initial marking. Without a final marking traces only
+	 * end in dead markings or after the maximum number of steps.
+	 */
+	public TokenGameSimulator(CompiledNet net, long seed, long startTime) {
+		if (net.getInitialMarking() == null) {
+			throw new IllegalArgumentException("The net has no initial marking");
+		}
+		this.net = net;
+		this.initialMarking = net.getInitialMarking();
+		this.finalMarking = net.getFinalMarking();
+		this.random = new Random(seed);
+		this.clock = startTime;
+
+		int transitions = net.getTransitionCount();
+		weights = new double[transitions];
+		for (int t = 0; t < transitions; t++) {
+			Transition transition = net.getTransition(t);
+			weights[t] = transition instanceof TimedTransition ? ((TimedTransition) transition).getWeight() : 1;
+		}
+		affected = computeAffected(net);
+		enabled = new int[transitions];
+		enabledPosition = new int[transitions];
+	}
+
+	private static int[][] computeAffected(CompiledNet net) {
+		int places = net.getPlaceCount();
+		int transitions = net.getTransitionCount();
+
+		// Transitions consuming from each place, as lists in flat arrays
+		int[] consumerCount = new int[places];
+		for (int t = 0; t < transitions; t++) {
+			for (int p : net.getInputPlaces(t)) {
+				consumerCount[p]++;
+			}
+		}
+		int[][] consumers = new int[places][];
+		for (int p = 0; p < places; p++) {
+			consumers[p] = new int[consumerCount[p]];
+			consumerCount[p] = 0;
+		}
+		for (int t = 0; t < transitions; t++) {
+			for (int p : net.getInputPlaces(t)) {
+				consumers[p][consumerCount[p]++] = t;
+			}
+		}
+
+		int[][] result = new int[transitions][];
+		int[] seen = new int[transitions];
+		int[] buffer = new int[transitions];
+		for (int t = 0; t < transitions; t++) {
+			int size = 0;
+			for (int[] changed : new int[][] { net.getInputPlaces(t), net.getOutputPlaces(t) }) {
+				for (int p : changed) {
+					for (int c : consumers[p]) {
+						if (seen[c] != t + 1) {
+							seen[c] = t + 1;
+							buffer[size++] = c;
+						}
+					}
+				}
+			}
+			result[t] = Arrays.copyOf(buffer, size);
+		}
+		return result;
+	}
+
+	public void setWeight(int transition, double weight) {
+		weights[transition] = weight;
+	}
+
+	/**
+	 * Steps after which a trace is cut off, including invisible steps.
+	 */
+	public void setMaxSteps(int maxSteps) {
+		this.maxSteps = maxSteps;
+	}
+
+	/**
+	 * Maximum number of events in a trace.
+	 */
+	public void setMaxTraceLength(int maxTraceLength, TraceLengthPolicy traceLengthPolicy) {
+		this.maxTraceLength = maxTraceLength;
+		this.traceLengthPolicy = traceLengthPolicy;
+	}
+
+	public void setTimestamps(boolean timestamps) {
+		this.timestamps = timestamps;
+	}
+
+	public CompactLog simulate(String name, int numberOfTraces) {
+		CompactLog.Builder log = new CompactLog.Builder(name, timestamps);
+		simulate(numberOfTraces, log);
+		return log.build();
+	}
+
+	/**
+	 * Simulates the number of traces and adds them to the log.
+	 */
+	public void simulate(int numberOfTraces, CompactLog.Builder log) {
+		int[] activity = new int[net.getTransitionCount()];
+		for (int t = 0; t < activity.length; t++) {
+			Transition transition = net.getTransition(t);
+			activity[t] = transition.isInvisible() ? -1 : log.addActivity(transition.getLabel());
+		}
+
+		int[] marking = new int[initialMarking.length];
+		for (int i = 0; i < numberOfTraces; i++) {
+			System.arraycopy(initialMarking, 0, marking, 0, marking.length);
+			simulateTrace(marking, activity, log);
+			log.endTrace();
+		}
+	}
+
+	private void simulateTrace(int[] marking, int[] activity, CompactLog.Builder log) {
+		long arrival = clock;
+		clock += (long) (-Math.log(1 - random.nextDouble()) * MINUTE);
+
+		for (int attempt = 1;; attempt++) {
+			boolean retry = traceLengthPolicy == TraceLengthPolicy.RETRY && attempt < MAX_ATTEMPTS;
+			if (simulateTrace(marking, activity, arrival, retry, log)) {
+				return;
+			}
+			log.discardTrace();
+			System.arraycopy(initialMarking, 0, marking, 0, marking.length);
+		}
+	}
+
+	/**
+	 * Simulates one attempt of a trace. With reject set, returns false as soon as the trace would get more than
+	 * the maximum number of events; otherwise the trace stops when it reaches the limit.
+	 */
+	private boolean simulateTrace(int[] marking, int[] activity, long arrival, boolean reject, CompactLog.Builder log) {
+		enabledCount = 0;
+		for (int t = 0; t < enabled.length; t++) {
+			enabledPosition[t] = -1;
+			updateEnabled(marking, t);
+		}
+		int unfinished = finalMarking != null ? distance(marking) : -1;
+
+		long time = arrival;
+		int length = 0;
+		for (int step = 0; step < maxSteps && enabledCount > 0 && unfinished != 0; step++) {
+			if (!reject && length == maxTraceLength) {
+				break;
+			}
+			int t = pick();
+			if (activity[t] >= 0 && length == maxTraceLength) {
+				return false;
+			}
+			unfinished = fire(marking, t, unfinished);
+			time += MINUTE;
+			if (activity[t] >= 0) {
+				log.addEvent(activity[t], time);
+				length++;
+			}
+			for (int other : affected[t]) {
+				updateEnabled(marking, other);
+			}
+		}
+		return true;
+	}
+
+	private int pick() {
+		double total = 0;
+		for (int i = 0; i < enabledCount; i++) {
+			total += weights[enabled[i]];
+		}
+		if (total <= 0) {
+			return enabled[random.nextInt(enabledCount)];
+		}
+		double r = random.nextDouble() * total;
+		for (int i = 0; i < enabledCount - 1; i++) {
+			r -= weights[enabled[i]];
+			if (r < 0) {
+				return enabled[i];
+			}
+		}
+		return enabled[enabledCount - 1];
+	}
+
+	/**
+	 * Fires the transition and returns the number of places whose token count differs from the final marking,
+	 * or -1 when there is no final marking.
+	 */
+	private int fire(int[] marking, int t, int unfinished) {
+		int[] in = net.getInputPlaces(t);
+		int[] inW = net.getInputWeights(t);
+		int[] out = net.getOutputPlaces(t);
+		int[] outW = net.getOutputWeights(t);
+		if (finalMarking == null) {
+			for (int i = 0; i < in.length; i++) {
+				marking[in[i]] -= inW[i];
+			}
+			for (int i = 0; i < out.length; i++) {
+				marking[out[i]] += outW[i];
+			}
+			return -1;
+		}
+		for (int i = 0; i < in.length; i++) {
+			int p = in[i];
+			unfinished -= marking[p] != finalMarking[p] ? 1 : 0;
+			marking[p] -= inW[i];
+			unfinished += marking[p] != finalMarking[p] ? 1 : 0;
+		}
+		for (int i = 0; i < out.length; i++) {
+			int p = out[i];
+			unfinished -= marking[p] != finalMarking[p] ? 1 : 0;
+			marking[p] += outW[i];
+			unfinished += marking[p] != finalMarking[p] ? 1 : 0;
+		}
+		return unfinished;
+	}
+
+	private int distance(int[] marking) {
+		int count = 0;
+		for (int p = 0; p < marking.length; p++) {
+			if (marking[p] != finalMarking[p]) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	private void updateEnabled(int[] marking, int t) {
+		boolean isEnabled = net.isEnabled(marking, t);
+		int position = enabledPosition[t];
+		if (isEnabled && position < 0) {
+			enabledPosition[t] = enabledCount;
+			enabled[enabledCount++] = t;
+		} else if (!isEnabled && position >= 0) {
+			int last = enabled[--enabledCount];
+			enabled[position] = last;
+			enabledPosition[last] = position;
+			enabledPosition[t] = -1;
+		}
+	}
+}
@@ -0,0 +1,22 @@
+package main.simulation;
+
+/**
+ * What the log generators do with a trace that reaches the maximum trace length.
+ */
+public enum TraceLengthPolicy {
+	/** Stop the trace at the limit, keeping its first events. */
+	TRUNCATE("Cut off at the limit"),
+	/** Discard the trace and simulate it again, so only traces that fit are kept. */
+	RETRY("Simulate again");
+
+	private final String label;
+
+	TraceLengthPolicy(String label) {
+		this.label = label;
+	}
+
+	@Override
+	public String toString() {
+		return label;
+	}
+}
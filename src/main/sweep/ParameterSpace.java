@@ -0,0 +1,126 @@
+package main.sweep;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Numeric parameters of one mining algorithm with the range each may take in a sweep.
+ * Points are maps from parameter name to value; the names are those understood by
+ * {@link ParameterSweep#apply(main.algorithms.MiningAlgorithm, Map)}.
+ */
+public class ParameterSpace {
+
+	/**
+	 * One parameter, sampled at evenly spaced values for a grid or uniformly for a random search.
+	 */
+	public static class Dimension {
+		private final String name;
+		private final double min;
+		private final double max;
+		private final int steps;
+
+		public Dimension(String name, double min, double max, int steps) {
+			this.name = name;
+			this.min = min;
+			this.max = max;
+			this.steps = Math.max(1, steps);
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		public List<Double> values() {
+			List<Double> values = new ArrayList<>(steps);
+			for (int i = 0; i < steps; i++) {
+				values.add(steps == 1 ? min : min + (max - min) * i / (steps - 1));
+			}
+			return values;
+		}
+
+		double sample(Random random) {
+			return min + (max - min) * random.nextDouble();
+		}
+	}
+
+	private final String algorithmName;
+	private final List<Dimension> dimensions = new ArrayList<>();
+
+	public ParameterSpace(String algorithmName) {
+		this.algorithmName = algorithmName;
+	}
+
+	/**
+	 * The parameters worth tuning for the algorithm, or null if it has no sweep space
+	 * (the Evolutionary Tree Miner takes too long per run to sweep).
+	 */
+	public static ParameterSpace defaultFor(String algorithmName) {
+		switch (algorithmName) {
+		case "Inductive Miner":
+			return new ParameterSpace(algorithmName)
+					.add("noiseThreshold", 0.0, 0.5, 6);
+		case "Heuristics Miner":
+			return new ParameterSpace(algorithmName)
+					.add("dependencyThreshold", 0.5, 0.95, 4)
+					.add("andThreshold", 0.3, 0.9, 4);
+		case "Split Miner":
+			return new ParameterSpace(algorithmName)
+					.add("frequencyThreshold", 0.0, 0.8, 5)
+					.add("parallelismThreshold", 0.0, 0.4, 5);
+		default:
+			return null;
+		}
+	}
+
+	public ParameterSpace add(String name, double min, double max, int steps) {
+		dimensions.add(new Dimension(name, min, max, steps));
+		return this;
+	}
+
+	public String getAlgorithmName() {
+		return algorithmName;
+	}
+
+	public List<Dimension> getDimensions() {
+		return dimensions;
+	}
+
+	/**
+	 * Every combination of the dimension values.
+	 */
+	public List<Map<String, Double>> grid() {
+		List<Map<String, Double>> points = new ArrayList<>();
+		points.add(new LinkedHashMap<>());
+		for (Dimension dimension : dimensions) {
+			List<Map<String, Double>> extended = new ArrayList<>();
+			for (Map<String, Double> point : points) {
+				for (Double value : dimension.values()) {
+					Map<String, Double> next = new LinkedHashMap<>(point);
+					next.put(dimension.getName(), value);
+					extended.add(next);
+				}
+			}
+			points = extended;
+		}
+		return points;
+	}
+
+	/**
+	 * Uniformly sampled points; the same seed gives the same points.
+	 */
+	public List<Map<String, Double>> random(int count, long seed) {
+		Random random = new Random(seed);
+		List<Map<String, Double>> points = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) {
+			Map<String, Double> point = new LinkedHashMap<>();
+			for (Dimension dimension : dimensions) {
+				point.put(dimension.getName(), dimension.sample(random));
+			}
+			points.add(point);
+		}
+		return points;
+	}
+}
@@ -0,0 +1,169 @@
+package main.sweep;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import org.processmining.plugins.InductiveMiner.mining.MiningParameters;
+import org.processmining.plugins.InductiveMiner.mining.MiningParametersIMf;
+import org.processmining.plugins.heuristicsnet.miner.heuristics.miner.settings.HeuristicsMinerSettings;
+
+import main.algorithms.HeuristicMinerAlgorithm;
+import main.algorithms.InductiveMinerAlgorithm;
+import main.algorithms.MiningAlgorithm;
+import main.algorithms.MiningAlgorithmSelector;
+import main.algorithms.SplitMinerAlgorithm;
+import main.comparison.ComparisonPipeline;
+import main.comparison.ComparisonScheduler;
+
+/**
+ * Runs the comparison pipeline for many parameter configurations of one algorithm and finds the
+ * Pareto front of fitness, precision and mining time.
+ *
+ * Every configuration mines with its own algorithm instance, so runs do not share parameters.
+ * All runs use the same pipeline and therefore the same log, whose event classes are computed once.
+ * Configurations run in parallel under the limits of the scheduler.
+ */
+public class ParameterSweep {
+
+	private final ComparisonPipeline pipeline;
+	private final ComparisonScheduler scheduler;
+
+	public ParameterSweep(ComparisonPipeline pipeline, ComparisonScheduler scheduler) {
+		this.pipeline = pipeline;
+		this.scheduler = scheduler;
+	}
+
+	/**
+	 * Runs every configuration and blocks until all finished. The consumer is called with each finished
+	 * point on the calling thread; the Pareto optimal points are marked once all runs are done.
+	 */
+	public List<SweepPoint> run(ParameterSpace space, List<Map<String, Double>> configurations,
+			Consumer<SweepPoint> onPoint) throws InterruptedException {
+		List<SweepPoint> points = new ArrayList<>();
+		for (Map<String, Double> values : configurations) {
+			points.add(new SweepPoint(space.getAlgorithmName(), values));
+		}
+
+		scheduler.runEach(points, SweepPoint::getAlgorithmName, point -> {
+			MiningAlgorithm algorithm = MiningAlgorithmSelector.createAlgorithm(point.getAlgorithmName());
+			apply(algorithm, point.getValues());
+			return pipeline.run(algorithm);
+		}, (point, result) -> {
+			point.setResult(result);
+			if (onPoint != null) {
+				onPoint.accept(point);
+			}
+		});
+
+		paretoFront(points);
+		return points;
+	}
+
+	/**
+	 * Marks and returns the complete points that no other point dominates: none has at least the same
+	 * fitness and precision and at most the same mining time while being better in one of them.
+	 * The front is sorted by fitness, best first.
+	 */
+	public static List<SweepPoint> paretoFront(List<SweepPoint> points) {
+		List<SweepPoint> front = new ArrayList<>();
+		for (SweepPoint candidate : points) {
+			boolean dominated = !candidate.isComplete();
+			for (int i = 0; i < points.size() && !dominated; i++) {
+				SweepPoint other = points.get(i);
+				dominated = other != candidate && other.isComplete() && dominates(other, candidate);
+			}
+			candidate.setParetoOptimal(!dominated);
+			if (!dominated) {
+				front.add(candidate);
+			}
+		}
+		front.sort(Comparator.comparingDouble(SweepPoint::getFitness).reversed()
+				.thenComparing(Comparator.comparingDouble(SweepPoint::getPrecision).reversed())
+				.thenComparingLong(SweepPoint::getExecutionTime));
+		return front;
+	}
+
+	private static boolean dominates(SweepPoint a, SweepPoint b) {
+		boolean noWorse = a.getFitness() >= b.getFitness() && a.getPrecision() >= b.getPrecision()
+				&& a.getExecutionTime() <= b.getExecutionTime();
+		boolean better = a.getFitness() > b.getFitness() || a.getPrecision() > b.getPrecision()
+				|| a.getExecutionTime() < b.getExecutionTime();
+		return noWorse && better;
+	}
+
+	/**
+	 * Sets the parameters of a point on the algorithm, leaving its other parameters as they are.
+	 * Used for the runs of a sweep and to apply the chosen point to the algorithm used for mining.
+	 */
+	public static void apply(MiningAlgorithm algorithm, Map<String, Double> values) {
+		if (algorithm instanceof InductiveMinerAlgorithm) {
+			MiningParameters params = (MiningParameters) algorithm.getParameters();
+			for (Map.Entry<String, Double> entry : values.entrySet()) {
+				if ("noiseThreshold".equals(entry.getKey())) {
+					if (!(params instanceof MiningParametersIMf)) {
+						params = infrequent(params);
+						algorithm.setParameters(params);
+					}
+					params.setNoiseThreshold(entry.getValue().floatValue());
+				} else {
+					throw unknown(algorithm, entry.getKey());
+				}
+			}
+		} else if (algorithm instanceof HeuristicMinerAlgorithm) {
+			HeuristicsMinerSettings settings = (HeuristicsMinerSettings) algorithm.getParameters();
+			for (Map.Entry<String, Double> entry : values.entrySet()) {
+				double value = entry.getValue();
+				switch (entry.getKey()) {
+				case "dependencyThreshold":
+					settings.setDependencyThreshold(value);
+					break;
+				case "andThreshold":
+					settings.setAndThreshold(value);
+					break;
+				case "l2lThreshold":
+					settings.setL2lThreshold(value);
+					break;
+				case "relativeToBestThreshold":
+					settings.setRelativeToBestThreshold(value);
+					break;
+				case "longDistanceThreshold":
+					settings.setLongDistanceThreshold(value);
+					break;
+				default:
+					throw unknown(algorithm, entry.getKey());
+				}
+			}
+		} else if (algorithm instanceof SplitMinerAlgorithm) {
+			Map<String, Object> params = new HashMap<>();
+			for (Map.Entry<String, Double> entry : values.entrySet()) {
+				if (!"frequencyThreshold".equals(entry.getKey()) && !"parallelismThreshold".equals(entry.getKey())) {
+					throw unknown(algorithm, entry.getKey());
+				}
+				params.put(entry.getKey(), entry.getValue());
+			}
+			algorithm.setParameters(params);
+		} else {
+			throw new IllegalArgumentException("No sweep parameters for " + algorithm.getAlgorithmName());
+		}
+	}
+
+	/**
+	 * The infrequent variant of the Inductive Miner with the classifiers and threading of the given parameters.
+	 * Plain IM ignores the noise threshold, so sweeping it there would mine the same model at every point.
+	 */
+	private static MiningParameters infrequent(MiningParameters params) {
+		MiningParameters infrequent = new MiningParametersIMf();
+		infrequent.setClassifier(params.getClassifier());
+		infrequent.setLifeCycleClassifier(params.getLifeCycleClassifier());
+		infrequent.setUseMultithreading(params.isUseMultithreading());
+		return infrequent;
+	}
+
+	private static IllegalArgumentException unknown(MiningAlgorithm algorithm, String parameter) {
+		return new IllegalArgumentException("Unknown parameter " + parameter + " for " + algorithm.getAlgorithmName());
+	}
+}
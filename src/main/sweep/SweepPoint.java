@@ -0,0 +1,79 @@
+package main.sweep;
+
+import java.util.Collections;
+import java.util.Locale;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import main.comparison.AlgorithmResult;
+
+/**
+ * One configuration of a sweep and the result of running the comparison pipeline with it.
+ */
+public class SweepPoint {
+
+	private final String algorithmName;
+	private final Map<String, Double> values;
+	private AlgorithmResult result;
+	private boolean paretoOptimal;
+
+	public SweepPoint(String algorithmName, Map<String, Double> values) {
+		this.algorithmName = algorithmName;
+		this.values = Collections.unmodifiableMap(values);
+	}
+
+	public String getAlgorithmName() {
+		return algorithmName;
+	}
+
+	public Map<String, Double> getValues() {
+		return values;
+	}
+
+	public AlgorithmResult getResult() {
+		return result;
+	}
+
+	void setResult(AlgorithmResult result) {
+		this.result = result;
+	}
+
+	public boolean isParetoOptimal() {
+		return paretoOptimal;
+	}
+
+	void setParetoOptimal(boolean paretoOptimal) {
+		this.paretoOptimal = paretoOptimal;
+	}
+
+	/**
+	 * Whether the run produced fitness and precision, so the point can be compared.
+	 */
+	public boolean isComplete() {
+		return result != null && result.getError() == null && !Double.isNaN(result.getFitness())
+				&& !Double.isNaN(result.getPrecision());
+	}
+
+	public double getFitness() {
+		return result != null ? result.getFitness() : Double.NaN;
+	}
+
+	public double getPrecision() {
+		return result != null ? result.getPrecision() : Double.NaN;
+	}
+
+	public long getExecutionTime() {
+		return result != null ? result.getExecutionTime() : 0;
+	}
+
+	public String getParameterSummary() {
+		return values.entrySet().stream()
+				.map(e -> e.getKey() + "=" + String.format(Locale.ROOT, "%.3f", e.getValue()))
+				.collect(Collectors.joining(", "));
+	}
+
+	@Override
+	public String toString() {
+		return algorithmName + " [" + getParameterSummary() + "]";
+	}
+}
@@ -2,23 +2,22 @@ package main.utils;
 
 import javafx.stage.FileChooser;
 import javafx.stage.Window;
-import org.deckfour.xes.model.XEvent;
 import org.deckfour.xes.model.XLog;
-import org.deckfour.xes.model.XTrace;
-import org.deckfour.xes.out.XesXmlSerializer;
-import org.deckfour.xes.factory.XFactory;
-import org.deckfour.xes.factory.XFactoryRegistry;
 import org.processmining.contexts.uitopia.UIContext;
 import org.processmining.framework.plugin.PluginContext;
+import org.processmining.models.connections.petrinets.behavioral.FinalMarkingConnection;
+import org.processmining.models.connections.petrinets.behavioral.InitialMarkingConnection;
 import org.processmining.models.graphbased.directed.petrinet.Petrinet;
 import org.processmining.plugins.pnml.exporting.PnmlExportNetToPNML;
+import main.io.XesStreamWriter;
+import main.log.CompactLog;
+import main.log.VariantIndex;
+import main.model.AcceptingPetriNet;
 import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileOutputStream;
 import java.io.FileWriter;
 import java.io.IOException;
-import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
+import java.util.List;
 
 public class ExportController {
 
@@ -28,20 +27,25 @@ public class ExportController {
 			throws Exception {
 		FileChooser fileChooser = new FileChooser();
 		fileChooser.setTitle("Save Event Log as XES");
-		fileChooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("XES Files", "*.xes"));
+		fileChooser.getExtensionFilters().addAll(new FileChooser.ExtensionFilter("XES Files", "*.xes"),
+				new FileChooser.ExtensionFilter("Compressed XES Files", "*.xes.gz"));
 		fileChooser.setInitialFileName(getSuggestedFileName(pnmlFile, null, "xes"));
 
 		File file = fileChooser.showSaveDialog(ownerWindow);
 		if (file != null) {
-			File outputFile = file.getName().toLowerCase().endsWith(".xes") ? file
-					: new File(file.getAbsolutePath() + ".xes");
-			XFactory factory = XFactoryRegistry.instance().currentDefault();
-			XesXmlSerializer serializer = new XesXmlSerializer();
-			serializer.serialize(log, new FileOutputStream(outputFile));
+			XesStreamWriter.write(log, toXesFile(file));
 		}
 	}
 
-	public static void exportLogAsTxt(XLog log, File pnmlFile, String algorithmName, Window ownerWindow) {
+	/**
+	 * Adds the .xes extension unless the file already ends with .xes or .xes.gz.
+	 */
+	public static File toXesFile(File file) {
+		String name = file.getName().toLowerCase();
+		return name.endsWith(".xes") || name.endsWith(".xes.gz") ? file : new File(file.getAbsolutePath() + ".xes");
+	}
+
+	public static void exportLogAsTxt(CompactLog log, File pnmlFile, String algorithmName, Window ownerWindow) {
 		FileChooser fileChooser = new FileChooser();
 		fileChooser.setTitle("Save Event Log as Text");
 		fileChooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("Text Files", "*.txt"));
@@ -60,19 +64,20 @@ public class ExportController {
 
 				writer.write("==========================================\n\n");
 
-				int traceNumber = 1;
-				for (XTrace trace : log) {
-					writer.write(String.format("Trace %d (%d events):\n", traceNumber, trace.size()));
+				VariantIndex variants = log.getVariantIndex();
+				writer.write(String.format("%d traces, %d variants\n\n", variants.getTraceCount(), variants.size()));
+
+				for (int v = 0; v < variants.size(); v++) {
+					VariantIndex.Variant variant = variants.getVariant(v);
+					List<String> activities = variant.getActivities();
+					writer.write(String.format("Variant %d (%d traces, %d events):\n", v + 1, variant.getCount(),
+							activities.size()));
 
-					int eventNumber = 1;
-					for (XEvent event : trace) {
-						String eventName = event.getAttributes().get("concept:name").toString();
-						writer.write(String.format("  %d. %s\n", eventNumber, eventName));
-						eventNumber++;
+					for (int i = 0; i < activities.size(); i++) {
+						writer.write(String.format("  %d. %s\n", i + 1, activities.get(i)));
 					}
 
 					writer.write("\n");
-					traceNumber++;
 				}
 			} catch (IOException e) {
 				e.printStackTrace();
@@ -80,7 +85,10 @@ public class ExportController {
 		}
 	}
 
-	public static void exportPnml(Petrinet net, File originalFile, String algorithm, Window window, boolean isReduced) throws Exception {
+	/**
+	 * Saves the model with its markings, which the exporter looks up in the plugin context.
+	 */
+	public static void exportPnml(AcceptingPetriNet model, File originalFile, String algorithm, Window window, boolean isReduced) throws Exception {
 	    FileChooser fileChooser = new FileChooser();
 	    fileChooser.setTitle("Save Discovered Model");
 
@@ -102,19 +110,13 @@ public class ExportController {
 	        File outputFile = file.getName().toLowerCase().endsWith(".pnml") ? file
 	                : new File(file.getAbsolutePath() + ".pnml");
 	        PluginContext context = new UIContext().getMainPluginContext();
+	        context.addConnection(new InitialMarkingConnection(model.getNet(), model.getInitialMarking()));
+	        context.addConnection(new FinalMarkingConnection(model.getNet(), model.getFinalMarking()));
 	        PnmlExportNetToPNML exporter = new PnmlExportNetToPNML();
-	        exporter.exportPetriNetToPNMLFile(context, net, outputFile);
-
-	        formatPnmlFile(outputFile);
+	        exporter.exportPetriNetToPNMLFile(context, model.getNet(), outputFile);
 	    }
 	}
 
-	private static void formatPnmlFile(File file) throws Exception {
-		String xml = new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
-		xml = xml.replaceAll("><", ">\n<");
-		Files.write(file.toPath(), xml.getBytes(StandardCharsets.UTF_8));
-	}
-
 	public static String getSuggestedFileName(File originalFile, String algorithmName, String fileType) {
 		String baseName = "process";
 
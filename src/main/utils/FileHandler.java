@@ -18,9 +18,9 @@ public class FileHandler {
 		FileChooser fileChooser = new FileChooser();
 		fileChooser.setTitle("Import Process Model or Log");
 		FileChooser.ExtensionFilter allFilter = new FileChooser.ExtensionFilter("All Supported Files", "*.pnml",
-				"*.xes");
+				"*.xes", "*.xes.gz");
 		FileChooser.ExtensionFilter pnmlFilter = new FileChooser.ExtensionFilter("PNML Files", "*.pnml");
-		FileChooser.ExtensionFilter xesFilter = new FileChooser.ExtensionFilter("XES Files", "*.xes");
+		FileChooser.ExtensionFilter xesFilter = new FileChooser.ExtensionFilter("XES Files", "*.xes", "*.xes.gz");
 
 		fileChooser.getExtensionFilters().addAll(allFilter, pnmlFilter, xesFilter);
 		fileChooser.setSelectedExtensionFilter(allFilter);
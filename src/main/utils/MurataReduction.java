@@ -1,17 +1,23 @@
 package main.utils;
 
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Set;
 import org.processmining.contexts.uitopia.UIPluginContext;
 import org.processmining.models.graphbased.directed.petrinet.Petrinet;
+import org.processmining.models.graphbased.directed.petrinet.elements.Place;
 import org.processmining.plugins.petrinet.reduction.Murata;
 import org.processmining.plugins.petrinet.reduction.MurataInput;
 import org.processmining.models.semantics.petrinet.Marking;
 import org.processmining.plugins.petrinet.reduction.MurataOutput;
 import org.processmining.plugins.petrinet.reduction.MurataParameters;
 
+import main.model.AcceptingPetriNet;
+
 /**
  * Utility class to perform Murata reduction on Petri nets.
- * It removes silent transitions while preserving the behaviour of the net.
+ * It removes silent transitions while preserving the behaviour of the net. The reduced net keeps the markings
+ * of the original one, moved to the places that remain.
  */
 public class MurataReduction {
     private final UIPluginContext pluginContext;
@@ -26,8 +32,11 @@ public class MurataReduction {
         this.originalModel = originalModel;
     }
 
-    public Petrinet removeSilentTransitions(Petrinet model, Marking initialMarking) {
+    public AcceptingPetriNet removeSilentTransitions(AcceptingPetriNet acceptingNet) {
         try {
+            Petrinet model = acceptingNet.getNet();
+            Marking initialMarking = acceptingNet.getInitialMarking();
+
             // Create Murata instance
             Murata murata = new Murata();
             
@@ -55,7 +64,8 @@ public class MurataReduction {
             }
             
             
-            return output.getNet();
+            return new AcceptingPetriNet(output.getNet(), output.getMarking(),
+                    mapMarking(acceptingNet.getFinalMarking(), output));
             
         } catch (Exception e) {
             System.err.println("[ERROR] Murata reduction failed: " + e.getMessage());
@@ -67,6 +77,26 @@ public class MurataReduction {
         }
     }
     
+    /**
+     * The marking on the places of the reduced net. Murata only carries the initial marking along; places that
+     * were fused away are dropped, and the reduced net falls back to its sink places if none remain.
+     */
+    private static Marking mapMarking(Marking marking, MurataOutput output) {
+        Map<Place, Place> placeMapping = output.getPlaceMapping();
+        Marking mapped = new Marking();
+        if (placeMapping == null) {
+            return mapped;
+        }
+        Set<Place> remaining = new HashSet<>(output.getNet().getPlaces());
+        for (Place place : marking.baseSet()) {
+            Place reduced = placeMapping.get(place);
+            if (reduced != null && remaining.contains(reduced)) {
+                mapped.add(reduced, marking.occurrences(place));
+            }
+        }
+        return mapped;
+    }
+    
     public String getStatistics(Petrinet originalModel, Petrinet discoveredModel, Petrinet reducedModel) {
         if (originalModel == null || discoveredModel == null || reducedModel == null) {
             return "Statistics unavailable: null model provided\n";
@@ -0,0 +1,129 @@
+package main.utils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.Charset;
+
+/**
+ * Thread scoped redirection of {@code System.out}.
+ * On first use System.out is replaced, once, by a stream that writes to the target of the current thread
+ * or to the original stdout when the thread has none. The target is not inherited: threads started or pool
+ * tasks run inside a scope print normally, so a long lived worker never keeps writing to a finished scope.
+ * Other threads keep printing normally, so noisy plugins can be silenced while several run in parallel.
+ *
+ * <pre>
+ * try (OutputCapture.Scope scope = OutputCapture.redirect(buffer)) {
+ *     // plugin calls
+ * }
+ * </pre>
+ */
+public final class OutputCapture {
+
+	/** Target that drops everything written to it. */
+	public static final OutputStream DISCARD = new OutputStream() {
+		@Override
+		public void write(int b) {}
+
+		@Override
+		public void write(byte[] b, int off, int len) {}
+	};
+
+	private static final ThreadLocal<OutputStream> TARGET = new ThreadLocal<>();
+	private static PrintStream originalOut;
+
+	private OutputCapture() {
+	}
+
+	/**
+	 * Redirects System.out of the current thread to the target until the scope is closed.
+	 * Scopes may be nested; closing one restores the previous target.
+	 */
+	public static Scope redirect(OutputStream target) {
+		install();
+		OutputStream previous = TARGET.get();
+		TARGET.set(target);
+		return () -> {
+			if (previous == null) {
+				TARGET.remove();
+			} else {
+				TARGET.set(previous);
+			}
+		};
+	}
+
+	private static synchronized void install() {
+		if (originalOut == null) {
+			originalOut = System.out;
+			System.setOut(new PrintStream(new Dispatcher(originalOut), true));
+		}
+	}
+
+	public interface Scope extends AutoCloseable {
+		@Override
+		void close();
+	}
+
+	private static class Dispatcher extends OutputStream {
+		private final OutputStream fallback;
+
+		Dispatcher(OutputStream fallback) {
+			this.fallback = fallback;
+		}
+
+		private OutputStream target() {
+			OutputStream target = TARGET.get();
+			return target != null ? target : fallback;
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			target().write(b);
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			target().write(b, off, len);
+		}
+
+		@Override
+		public void flush() throws IOException {
+			target().flush();
+		}
+	}
+
+	/**
+	 * Keeps the last bytes written to it, for showing what a plugin printed without unbounded growth.
+	 */
+	public static class TailBuffer extends OutputStream {
+		private final byte[] buffer;
+		private long written;
+
+		public TailBuffer(int capacity) {
+			this.buffer = new byte[capacity];
+		}
+
+		@Override
+		public synchronized void write(int b) {
+			buffer[(int) (written++ % buffer.length)] = (byte) b;
+		}
+
+		@Override
+		public synchronized void write(byte[] b, int off, int len) {
+			for (int i = 0; i < len; i++) {
+				buffer[(int) (written++ % buffer.length)] = b[off + i];
+			}
+		}
+
+		@Override
+		public synchronized String toString() {
+			int size = (int) Math.min(written, buffer.length);
+			byte[] tail = new byte[size];
+			int start = (int) ((written - size) % buffer.length);
+			for (int i = 0; i < size; i++) {
+				tail[i] = buffer[(start + i) % buffer.length];
+			}
+			return new String(tail, Charset.defaultCharset());
+		}
+	}
+}